@@ -0,0 +1,71 @@
+package com.cws.sam.benchmarks;
+
+import com.cws.sam.SmartattendancemanagementApplication;
+import com.cws.sam.models.User;
+import com.cws.sam.repositories.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Boots the real application against an in-memory H2 database for benchmark state
+final class BenchmarkApplication {
+
+    static final int CLASSES = 100;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String databaseName, Path tempFacesDir, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=benchmark",
+                "--spring.main.banner-mode=off",
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.hibernate.naming.implicit-strategy=org.hibernate.boot.model.naming.ImplicitNamingStrategyLegacyJpaImpl",
+                "--face.recognition.temp-dir=" + tempFacesDir.toAbsolutePath()));
+        // Extra arguments replace defaults with the same key
+        for (String extra : extraArgs) {
+            String key = extra.substring(0, extra.indexOf('=') + 1);
+            args.removeIf(arg -> arg.startsWith(key));
+            args.add(extra);
+        }
+        return new SpringApplicationBuilder(SmartattendancemanagementApplication.class)
+                .run(args.toArray(String[]::new));
+    }
+
+    // Users named user0..user{count-1}, each with a random face image of imageBytes bytes,
+    // spread round-robin over CLASSES classes (class0..class{CLASSES-1})
+    static void seedUsers(ConfigurableApplicationContext context, int count, int imageBytes) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        Random random = new Random(42);
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setPassword("password");
+            user.setRole("STUDENT");
+            user.setClassName("class" + (i % CLASSES));
+            if (imageBytes > 0) {
+                byte[] image = new byte[imageBytes];
+                random.nextBytes(image);
+                user.setFaceImage(image);
+            }
+            batch.add(user);
+            if (batch.size() == 500) {
+                userRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        userRepository.saveAll(batch);
+    }
+}
@@ -0,0 +1,61 @@
+package com.cws.sam.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Nearest-face search as the worker does it (face_recognition.compare_faces): Euclidean distance
+// from one 128-d probe to every gallery embedding, keeping the closest match under the tolerance.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddingMatchBenchmark {
+
+    private static final int DIMENSIONS = 128;
+    private static final float TOLERANCE = 0.6f;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int gallerySize;
+
+    // Contiguous row-major matrix, one embedding per row
+    private float[] gallery;
+    private float[] probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        gallery = new float[gallerySize * DIMENSIONS];
+        for (int i = 0; i < gallery.length; i++) {
+            gallery[i] = (float) (random.nextGaussian() * 0.1);
+        }
+        // Probe close to a row in the middle so the match is found but the whole gallery is scanned
+        probe = new float[DIMENSIONS];
+        int row = gallerySize / 2;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            probe[d] = gallery[row * DIMENSIONS + d] + (float) (random.nextGaussian() * 0.01);
+        }
+    }
+
+    @Benchmark
+    public int nearestMatch() {
+        int best = -1;
+        float bestDistance = TOLERANCE * TOLERANCE;
+        for (int row = 0; row < gallerySize; row++) {
+            int offset = row * DIMENSIONS;
+            float sum = 0f;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                float diff = gallery[offset + d] - probe[d];
+                sum += diff * diff;
+            }
+            if (sum < bestDistance) {
+                bestDistance = sum;
+                best = row;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,42 @@
+package com.cws.sam.benchmarks;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Stand-in for encode_faces.py: same arguments and output format, no Python or dlib needed.
+// Every <userId>.jpg gets a random 128-d embedding seeded by its user id, so reruns are stable.
+public class FakeEncoder {
+
+    private static final int DIMENSIONS = 128;
+
+    public static void main(String[] args) throws Exception {
+        Path inputDir = null;
+        Path output = null;
+        for (String arg : args) {
+            if (arg.startsWith("--input_dir=")) {
+                inputDir = Paths.get(arg.substring("--input_dir=".length()));
+            } else if (arg.startsWith("--output=")) {
+                output = Paths.get(arg.substring("--output=".length()));
+            }
+        }
+
+        Path temp = Paths.get(output + ".tmp");
+        try (Stream<Path> files = Files.list(inputDir); BufferedWriter out = Files.newBufferedWriter(temp)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String id = file.getFileName().toString().replaceFirst("\\.jpg$", "");
+                Random random = new Random(Long.parseLong(id));
+                StringBuilder line = new StringBuilder("{\"id\":\"").append(id).append("\",\"encoding\":[");
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    line.append(d > 0 ? "," : "").append((float) (random.nextGaussian() * 0.1));
+                }
+                out.write(line.append("]}\n").toString());
+            }
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,185 @@
+package com.cws.sam.benchmarks;
+
+import com.cws.sam.services.FrameRing;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Stand-in for attendance_camera.py: accepts the same arguments, needs no camera or Python, and posts
+// synthetic recognition events to /mark at a fixed rate. Latencies are measured from the scheduled send
+// time (so a slow server cannot hide queueing) and written to <statsDir>/worker-<pid>.bin when done.
+// With --frames=<ring> it also consumes browser frames from the ring, spending loadtest.frameCostMs on each.
+// Like the real worker it prints a TELEMETRY line every 5 s with its mark (and frame) timings.
+public class FakeWorker {
+
+    private static final StringBuilder frameSamples = new StringBuilder();
+    private static final StringBuilder captureSamples = new StringBuilder();
+    private static final StringBuilder markSamples = new StringBuilder();
+    private static final StringBuilder depthSamples = new StringBuilder();
+    private static long captured;
+
+    public static void main(String[] args) throws Exception {
+        String apiEndpoint = null;
+        String sessionId = "";
+        String frames = null;
+        for (String arg : args) {
+            if (arg.startsWith("--api_endpoint=")) {
+                apiEndpoint = arg.substring("--api_endpoint=".length());
+            } else if (arg.startsWith("--session_id=")) {
+                sessionId = arg.substring("--session_id=".length());
+            } else if (arg.startsWith("--frames=")) {
+                frames = arg.substring("--frames=".length());
+            }
+        }
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "5"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.duration", 30L));
+        int users = Integer.getInteger("loadtest.users", 100);
+        Path statsDir = Paths.get(System.getProperty("loadtest.statsDir", "."));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        if (frames != null) {
+            consumeFrames(Paths.get(frames), Long.getLong("loadtest.frameCostMs", 30L));
+            System.out.println("Frame stream opened successfully.");
+        } else {
+            System.out.println("Camera opened successfully. Press 'q' to quit manually.");
+        }
+
+        // Parameter updates arrive on stdin as in attendance_camera.py; the rate stays fixed, they are only echoed
+        Thread control = new Thread(() -> {
+            try (BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in))) {
+                String line;
+                while ((line = stdin.readLine()) != null) {
+                    System.out.println("Parameters updated: " + line);
+                }
+            } catch (IOException e) {
+                // Backend went away; the worker ends on its own schedule
+            }
+        });
+        control.setDaemon(true);
+        control.start();
+
+        Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    TimeUnit.SECONDS.sleep(5);
+                    reportTelemetry();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reporter.setDaemon(true);
+        reporter.start();
+
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        long maxEvents = durationNanos / intervalNanos;
+        long[] latencies = new long[(int) maxEvents];
+        int sent = 0;
+        int errors = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < maxEvents; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            String username = "user" + ThreadLocalRandom.current().nextInt(users);
+            String body = "{\"username\":\"" + username + "\",\"timestamp\":\"" + LocalDateTime.now()
+                    + "\",\"session_id\":\"" + sessionId + "\"}";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(apiEndpoint))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .header("X-Client-Id", "worker-" + ProcessHandle.current().pid())
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors++;
+                }
+            } catch (IOException e) {
+                errors++;
+            }
+            latencies[sent++] = System.nanoTime() - scheduled;
+            sample(markSamples, (System.nanoTime() - scheduled) / 1e6);
+        }
+        reportTelemetry();
+
+        Path stats = statsDir.resolve("worker-" + ProcessHandle.current().pid() + ".bin");
+        Path temp = statsDir.resolve(stats.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(sent);
+            out.writeInt(errors);
+            for (int i = 0; i < sent; i++) {
+                out.writeLong(latencies[i]);
+            }
+        }
+        Files.move(temp, stats);
+        System.out.println("Fake worker finished: " + sent + " events, " + errors + " errors");
+    }
+
+    private static synchronized void sample(StringBuilder samples, double value) {
+        samples.append(samples.isEmpty() ? "" : ",").append(String.format(Locale.ROOT, "%.3f", value));
+    }
+
+    // Same line format as python-client/worker_telemetry.py; every browser frame taken is processed
+    private static synchronized void reportTelemetry() {
+        System.out.println("TELEMETRY {\"captured\":" + captured + ",\"processed\":" + captured
+                + ",\"queue_depth\":[" + depthSamples.toString().replace(".000", "") + "],\"stages_ms\":{"
+                + "\"capture\":[" + captureSamples + "],\"frame\":[" + frameSamples + "],\"mark\":[" + markSamples + "]}}");
+        System.out.flush();
+        captured = 0;
+        frameSamples.setLength(0);
+        captureSamples.setLength(0);
+        markSamples.setLength(0);
+        depthSamples.setLength(0);
+    }
+
+    // Takes the newest frame, "recognizes" it for frameCostMs, and repeats until the backend closes the ring
+    private static void consumeFrames(Path file, long frameCostMs) throws IOException {
+        FrameRing ring = FrameRing.open(file);
+        Thread consumer = new Thread(() -> {
+            try {
+                long waitingSince = System.nanoTime();
+                long lastSeq = 0;
+                while (!ring.isClosed()) {
+                    FrameRing.Frame frame = ring.readLatest();
+                    if (frame == null) {
+                        Thread.sleep(5);
+                        continue;
+                    }
+                    long taken = System.nanoTime();
+                    Thread.sleep(frameCostMs);
+                    synchronized (FakeWorker.class) {
+                        captured++;
+                        sample(captureSamples, (taken - waitingSince) / 1e6);
+                        sample(frameSamples, (System.nanoTime() - taken) / 1e6);
+                        sample(depthSamples, lastSeq == 0 ? 1 : frame.seq() - lastSeq);
+                    }
+                    lastSeq = frame.seq();
+                    waitingSince = System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+}
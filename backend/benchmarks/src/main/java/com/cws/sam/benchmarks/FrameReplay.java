@@ -0,0 +1,157 @@
+package com.cws.sam.benchmarks;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Plays recorded (or synthetic) JPEG frames to /frames the way the browser does (use-frame-stream.ts):
+// a 12-byte header with the capture time and the frames skipped so far, then the JPEG. A frame is skipped,
+// not queued, while the previous one is still being sent. Runs inside LoadTestHarness or standalone:
+//   FrameReplay ws://localhost:8081/frames?session=<id> [--frames-dir=<dir>] [--frame-rate=10] [--duration=30]
+public class FrameReplay {
+
+    private static final int HEADER_BYTES = 12;
+
+    private final URI uri;
+    private final List<byte[]> frames;
+    private final double frameRate;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private volatile WebSocket socket;
+    private volatile CompletableFuture<WebSocket> pending = CompletableFuture.completedFuture(null);
+
+    public FrameReplay(URI uri, List<byte[]> frames, double frameRate) {
+        this.uri = uri;
+        this.frames = frames;
+        this.frameRate = frameRate;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String dir = null;
+        double rate = 10;
+        int duration = 30;
+        for (String arg : args) {
+            if (arg.startsWith("--frames-dir=")) {
+                dir = arg.substring("--frames-dir=".length());
+            } else if (arg.startsWith("--frame-rate=")) {
+                rate = Double.parseDouble(arg.substring("--frame-rate=".length()));
+            } else if (arg.startsWith("--duration=")) {
+                duration = Integer.parseInt(arg.substring("--duration=".length()));
+            }
+        }
+        List<byte[]> frames = dir != null ? load(Paths.get(dir)) : synthetic(30, 640, 480);
+        FrameReplay replay = new FrameReplay(URI.create(args[0]), frames, rate);
+        replay.start();
+        TimeUnit.SECONDS.sleep(duration);
+        replay.stop();
+        System.out.println("Frames sent=" + replay.getSent() + " skipped=" + replay.getSkipped());
+    }
+
+    // JPEG files of a directory in name order
+    public static List<byte[]> load(Path dir) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().matches("(?i).*\\.jpe?g")).sorted()::iterator) {
+                frames.add(Files.readAllBytes(file));
+            }
+        }
+        if (frames.isEmpty()) {
+            throw new IOException("No JPEG frames in " + dir);
+        }
+        return frames;
+    }
+
+    // A face-coloured oval moving across a noisy background, so every frame encodes to a realistic, different size
+    public static List<byte[]> synthetic(int count, int width, int height) throws IOException {
+        List<byte[]> frames = new ArrayList<>(count);
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int gray = 96 + random.nextInt(64);
+                    image.setRGB(x, y, gray << 16 | gray << 8 | gray);
+                }
+            }
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(new Color(220, 180, 150));
+            graphics.fillOval(width / 4 + i * width / (2 * count), height / 4, width / 4, height / 2);
+            graphics.dispose();
+            ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", jpeg);
+            frames.add(jpeg.toByteArray());
+        }
+        return frames;
+    }
+
+    public void start() {
+        socket = HttpClient.newHttpClient().newWebSocketBuilder()
+                .buildAsync(uri, new WebSocket.Listener() {
+                }).join();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "frame-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sendNext, 0, (long) (1_000_000 / frameRate), TimeUnit.MICROSECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (socket != null && !socket.isOutputClosed()) {
+            pending.whenComplete((ws, e) -> socket.sendClose(WebSocket.NORMAL_CLOSURE, ""));
+        }
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    private void sendNext() {
+        if (socket.isOutputClosed()) {
+            scheduler.shutdown();
+            return;
+        }
+        if (!pending.isDone()) {
+            skipped.incrementAndGet();
+            return;
+        }
+        byte[] jpeg = frames.get((int) (sent.get() % frames.size()));
+        ByteBuffer message = ByteBuffer.allocate(HEADER_BYTES + jpeg.length).order(ByteOrder.LITTLE_ENDIAN);
+        Instant now = Instant.now();
+        message.putDouble(now.getEpochSecond() * 1000.0 + now.getNano() / 1_000_000.0)
+                .putInt((int) skipped.get()).put(jpeg).flip();
+        // The JDK client masks the payload in 8-byte words through the buffer's byte order, so it must be big-endian
+        message.order(ByteOrder.BIG_ENDIAN);
+        pending = socket.sendBinary(message, true);
+        sent.incrementAndGet();
+    }
+}
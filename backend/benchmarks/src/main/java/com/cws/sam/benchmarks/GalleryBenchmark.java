@@ -0,0 +1,51 @@
+package com.cws.sam.benchmarks;
+
+import com.cws.sam.dtos.GalleryScope;
+import com.cws.sam.services.FaceRecognitionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Time to export a session gallery at session start: every enrolled face, or one class out of
+// BenchmarkApplication.CLASSES
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GalleryBenchmark {
+
+    // Typical size of a compressed enrollment JPEG
+    private static final int IMAGE_BYTES = 16 * 1024;
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    @Param({"all", "class"})
+    public String scope;
+
+    private ConfigurableApplicationContext context;
+    private FaceRecognitionService faceRecognitionService;
+    private GalleryScope galleryScope;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("gallery" + users, Files.createTempDirectory("faces"));
+        BenchmarkApplication.seedUsers(context, users, IMAGE_BYTES);
+        faceRecognitionService = context.getBean(FaceRecognitionService.class);
+        galleryScope = scope.equals("class") ? GalleryScope.of("class0", null, null) : GalleryScope.ALL;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int setupGallery() throws Exception {
+        return faceRecognitionService.setupGallery("benchmark", galleryScope);
+    }
+}
@@ -0,0 +1,71 @@
+package com.cws.sam.benchmarks;
+
+import com.cws.sam.config.JwtFilter;
+import com.cws.sam.services.JWTService;
+import com.cws.sam.services.MyUserDetailsService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private JWTService jwtService;
+    private JwtFilter jwtFilter;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("jwt", Files.createTempDirectory("faces"));
+        BenchmarkApplication.seedUsers(context, 1, 0);
+        jwtService = context.getBean(JWTService.class);
+        jwtFilter = context.getBean(JwtFilter.class);
+        userDetails = context.getBean(MyUserDetailsService.class).loadUserByUsername("user0@example.com");
+        token = jwtService.generateToken("user0@example.com", List.of("ROLE_STUDENT"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken("user0@example.com", List.of("ROLE_STUDENT"));
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtService.validateToken(token, userDetails);
+    }
+
+    // Full authenticated request pass: header parse, user lookup, validation, roles, security context
+    @Benchmark
+    public void filterAuthenticatedRequest(Blackhole blackhole) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            jwtFilter.doFilter(request, response, new MockFilterChain());
+            blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
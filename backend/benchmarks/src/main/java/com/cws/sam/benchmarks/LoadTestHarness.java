@@ -0,0 +1,336 @@
+package com.cws.sam.benchmarks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Boots the backend on H2, starts N recognition sessions through /start-recognition with FakeWorker
+// as the worker process, lets every worker stream marks at the given rate, then reports throughput,
+// latency percentiles and error rates for /mark and /start-recognition.
+//
+// Options (all optional): --sessions=10 --rate=5 (marks/s per session) --duration=30 (s) --users=1000
+//                         --face-bytes=0 (enrolled image size, drives gallery build cost) --result=<json file>
+//                         --threads=platform|virtual|both (both runs the same load once per mode, Java 21+)
+//                         --source=browser streams frames to every session over /frames (FrameReplay), with
+//                         --frame-rate=10 --frames-dir=<recorded JPEGs, synthetic if unset> --frame-cost=30 (ms per frame in the worker)
+//                         any --spring.* / --server.* / --rate-limit.* / --logging.* / --face.* option is passed to the application
+public class LoadTestHarness {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--spring.") || arg.startsWith("--server.") || arg.startsWith("--rate-limit.")
+                    || arg.startsWith("--logging.") || arg.startsWith("--face.")) {
+                appArgs.add(arg);
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "10"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "5"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int faceBytes = Integer.parseInt(options.getOrDefault("face-bytes", "0"));
+        Path result = Paths.get(options.getOrDefault("result", "target/loadtest-result.json"));
+        FrameSource frames = null;
+        if (options.getOrDefault("source", "camera").equals("browser")) {
+            String dir = options.get("frames-dir");
+            frames = new FrameSource(dir != null ? FrameReplay.load(Paths.get(dir)) : FrameReplay.synthetic(30, 640, 480),
+                    Double.parseDouble(options.getOrDefault("frame-rate", "10")),
+                    Long.parseLong(options.getOrDefault("frame-cost", "30")));
+        }
+
+        String threads = options.getOrDefault("threads", "platform");
+        List<String> modes = threads.equals("both") ? List.of("platform", "virtual") : List.of(threads);
+
+        List<String> passes = new ArrayList<>();
+        for (String mode : modes) {
+            passes.add(runPass(mode, sessions, rate, duration, users, faceBytes, frames, appArgs));
+        }
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Files.writeString(result, "{\n"
+                + "  \"sessions\": " + sessions + ",\n"
+                + "  \"ratePerSession\": " + rate + ",\n"
+                + "  \"durationSeconds\": " + duration + ",\n"
+                + "  \"users\": " + users + ",\n"
+                + "  \"javaVersion\": " + Runtime.version().feature() + ",\n"
+                + "  \"runs\": [\n    " + String.join(",\n    ", passes) + "\n  ]\n"
+                + "}\n");
+        System.out.println("Result written to " + result.toAbsolutePath());
+    }
+
+    // One full run against a fresh context; returns the run's JSON
+    private static String runPass(String mode, int sessions, double rate, int duration, int users, int faceBytes,
+                                  FrameSource frames, List<String> baseArgs) throws Exception {
+        boolean virtual = mode.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21) {
+            System.out.println("Warning: Java " + Runtime.version().feature()
+                    + " has no virtual threads, the virtual run uses platform threads");
+        }
+
+        Path statsDir = Files.createTempDirectory("loadtest-stats");
+        int port = freePort();
+        String workerCommand = String.join(",",
+                javaExecutable(), "-Xmx48m", "-XX:TieredStopAtLevel=1",
+                "-Dloadtest.rate=" + rate, "-Dloadtest.duration=" + duration,
+                "-Dloadtest.users=" + users, "-Dloadtest.statsDir=" + statsDir,
+                "-Dloadtest.frameCostMs=" + (frames != null ? frames.costMs() : 0),
+                "-cp", System.getProperty("java.class.path"), FakeWorker.class.getName());
+
+        String encoderCommand = String.join(",",
+                javaExecutable(), "-Xmx64m", "-cp", System.getProperty("java.class.path"), FakeEncoder.class.getName());
+
+        List<String> appArgs = new ArrayList<>(baseArgs);
+        appArgs.add("--server.port=" + port);
+        appArgs.add("--spring.threads.virtual.enabled=" + virtual);
+        appArgs.add("--face.recognition.worker-command=" + workerCommand);
+        appArgs.add("--face.recognition.encoder-command=" + encoderCommand);
+        appArgs.add("--face.recognition.gallery.snapshot-dir=" + Files.createTempDirectory("gallery"));
+        appArgs.add("--face.recognition.api-endpoint=http://localhost:" + port + "/mark");
+        appArgs.add("--face.recognition.frames.dir=" + Files.createTempDirectory("frames"));
+
+        ConfigurableApplicationContext context = BenchmarkApplication.start(
+                "loadtest_" + mode, Files.createTempDirectory("faces"), appArgs.toArray(String[]::new));
+        try {
+            BenchmarkApplication.seedUsers(context, users, faceBytes);
+            System.out.printf("Started backend (%s threads) on port %d with %d users; %d sessions x %.1f marks/s for %ds%n",
+                    mode, port, users, sessions, rate, duration);
+
+            HttpClient client = HttpClient.newHttpClient();
+            long[] startLatencies = new long[sessions];
+            int startErrors = 0;
+            ExecutorService starters = Executors.newFixedThreadPool(Math.min(sessions, 16));
+            List<Future<Long>> starts = new ArrayList<>();
+            List<FrameReplay> replays = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                String email = "camera" + i + "@loadtest.local";
+                // One client id per session, as if each camera were started from its own browser
+                if (frames == null) {
+                    starts.add(starters.submit(() -> post(client, port, "/start-recognition?email=" + email, email)));
+                } else {
+                    starts.add(starters.submit(() -> startStreaming(client, port, email, frames, replays)));
+                }
+            }
+            for (int i = 0; i < sessions; i++) {
+                long latency = starts.get(i).get();
+                if (latency < 0) {
+                    startErrors++;
+                }
+                startLatencies[i] = Math.abs(latency);
+            }
+            starters.shutdown();
+
+            // Every worker writes its stats file when it is done
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration + 60L);
+            while (countStatsFiles(statsDir) < sessions - startErrors && System.nanoTime() < deadline) {
+                Thread.sleep(500);
+            }
+            replays.forEach(FrameReplay::stop);
+            post(client, port, "/stop-recognition", "harness");
+
+            Report marks = readWorkerStats(statsDir);
+            Report startReport = new Report(startLatencies, startErrors);
+            System.out.println();
+            System.out.println(startReport.format("/start-recognition", duration));
+            System.out.println(marks.format("/mark", duration));
+            // As reported by the workers themselves in their TELEMETRY lines
+            String workerJson = ", \"workerStages\": {"
+                    + stageReport(context.getBean(MeterRegistry.class), "recognition.worker.stage", "worker") + "}";
+            String frameJson = "";
+            if (frames != null) {
+                long sent = replays.stream().mapToLong(FrameReplay::getSent).sum();
+                long skipped = replays.stream().mapToLong(FrameReplay::getSkipped).sum();
+                frameJson = ", \"frames\": " + frameReport(context.getBean(MeterRegistry.class), sent, skipped);
+            }
+            System.out.println();
+
+            return "{\"threads\": \"" + mode + "\", "
+                    + "\"virtualThreadsActive\": " + (virtual && Runtime.version().feature() >= 21) + ", "
+                    + "\"startRecognition\": " + startReport.toJson(duration) + ", "
+                    + "\"mark\": " + marks.toJson(duration) + workerJson + frameJson + "}";
+        } finally {
+            context.close();
+        }
+    }
+
+    // Returns latency in nanoseconds, negated for failed requests
+    private static long post(HttpClient client, int port, String path, String clientId) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                            .header("X-Client-Id", clientId)
+                            .POST(HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            long latency = System.nanoTime() - start;
+            return response.statusCode() == 200 ? latency : -latency;
+        } catch (IOException | InterruptedException e) {
+            return -(System.nanoTime() - start);
+        }
+    }
+
+    // Starts a browser-fed session and plays frames to its socket; latency as in post()
+    private static long startStreaming(HttpClient client, int port, String email, FrameSource frames,
+                                       List<FrameReplay> replays) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                                    + "/start-recognition?source=browser&email=" + email))
+                            .header("X-Client-Id", email)
+                            .POST(HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            long latency = System.nanoTime() - start;
+            Matcher path = Pattern.compile("\"frames\"\\s*:\\s*\"([^\"]+)\"").matcher(response.body());
+            if (response.statusCode() != 200 || !path.find()) {
+                return -latency;
+            }
+            FrameReplay replay = new FrameReplay(URI.create("ws://localhost:" + port + path.group(1)),
+                    frames.frames(), frames.rate());
+            replay.start();
+            replays.add(replay);
+            return latency;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            return -(System.nanoTime() - start);
+        }
+    }
+
+    // Prints and returns as JSON what happened to the streamed frames, from the application's own metrics
+    private static String frameReport(MeterRegistry registry, long sent, long skipped) {
+        double received = registry.find("frames.received").counters().stream().mapToDouble(Counter::count).sum();
+        Map<String, Double> dropped = new TreeMap<>();
+        registry.find("frames.dropped").counters()
+                .forEach(counter -> dropped.merge(counter.getId().getTag("reason"), counter.count(), Double::sum));
+        System.out.printf("%-20s sent=%d skipped-in-client=%d received=%.0f dropped=%s%n",
+                "frames", sent, skipped, received, dropped);
+        String latencyJson = stageReport(registry, "frames.latency", "frames");
+        StringBuilder droppedJson = new StringBuilder();
+        dropped.forEach((reason, count) -> droppedJson.append(droppedJson.isEmpty() ? "" : ", ")
+                .append(String.format(Locale.ROOT, "\"%s\": %.0f", reason, count)));
+        return String.format(Locale.ROOT, "{\"sent\": %d, \"skippedInClient\": %d, \"received\": %.0f, "
+                + "\"dropped\": {%s}, \"latency\": {%s}}", sent, skipped, received, droppedJson, latencyJson);
+    }
+
+    // Prints one line per stage of a timer with a histogram and returns the stages as JSON fields
+    private static String stageReport(MeterRegistry registry, String timer, String label) {
+        StringBuilder json = new StringBuilder();
+        for (Timer stageTimer : registry.find(timer).timers()) {
+            HistogramSnapshot snapshot = stageTimer.takeSnapshot();
+            String stage = stageTimer.getId().getTag("stage");
+            System.out.printf("%-20s count=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms%n", label + " " + stage,
+                    snapshot.count(), bucketMillis(snapshot, 0.5), bucketMillis(snapshot, 0.9),
+                    bucketMillis(snapshot, 0.99), snapshot.max(TimeUnit.MILLISECONDS));
+            json.append(json.isEmpty() ? "" : ", ").append(String.format(Locale.ROOT,
+                    "\"%s\": {\"count\": %d, \"p50Ms\": %.3f, \"p90Ms\": %.3f, \"p99Ms\": %.3f, \"maxMs\": %.3f}",
+                    stage, snapshot.count(), bucketMillis(snapshot, 0.5), bucketMillis(snapshot, 0.9),
+                    bucketMillis(snapshot, 0.99), snapshot.max(TimeUnit.MILLISECONDS)));
+        }
+        return json.toString();
+    }
+
+    // Upper bound of the histogram bucket holding the given quantile (both timers publish a histogram)
+    private static double bucketMillis(HistogramSnapshot snapshot, double quantile) {
+        double target = quantile * snapshot.count();
+        for (CountAtBucket bucket : snapshot.histogramCounts()) {
+            if (bucket.count() >= target) {
+                return bucket.bucket(TimeUnit.MILLISECONDS);
+            }
+        }
+        return snapshot.max(TimeUnit.MILLISECONDS);
+    }
+
+    private static Report readWorkerStats(Path statsDir) throws IOException {
+        List<long[]> all = new ArrayList<>();
+        int errors = 0;
+        try (Stream<Path> files = Files.list(statsDir)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".bin"))::iterator) {
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                    long[] latencies = new long[in.readInt()];
+                    errors += in.readInt();
+                    for (int i = 0; i < latencies.length; i++) {
+                        latencies[i] = in.readLong();
+                    }
+                    all.add(latencies);
+                }
+            }
+        }
+        long[] merged = all.stream().flatMapToLong(Arrays::stream).toArray();
+        return new Report(merged, errors);
+    }
+
+    private static long countStatsFiles(Path statsDir) throws IOException {
+        try (Stream<Path> files = Files.list(statsDir)) {
+            return files.filter(f -> f.toString().endsWith(".bin")).count();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaExecutable() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private record FrameSource(List<byte[]> frames, double rate, long costMs) {
+    }
+
+    static final class Report {
+        private final long[] sorted;
+        private final int errors;
+
+        Report(long[] latencies, int errors) {
+            this.sorted = latencies.clone();
+            Arrays.sort(sorted);
+            this.errors = errors;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+
+        double errorRate() {
+            return sorted.length == 0 ? 0 : (double) errors / sorted.length;
+        }
+
+        String format(String name, int duration) {
+            return String.format("%-20s requests=%d throughput=%.1f/s errors=%.2f%% p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                    name, sorted.length, (double) sorted.length / duration, errorRate() * 100,
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                    percentileMillis(100));
+        }
+
+        String toJson(int duration) {
+            return String.format(Locale.ROOT,
+                    "{\"requests\": %d, \"throughputPerSecond\": %.2f, \"errorRate\": %.5f, \"p50Ms\": %.3f, "
+                            + "\"p90Ms\": %.3f, \"p99Ms\": %.3f, \"p999Ms\": %.3f, \"maxMs\": %.3f}",
+                    sorted.length, (double) sorted.length / duration, errorRate(), percentileMillis(50),
+                    percentileMillis(90), percentileMillis(99), percentileMillis(99.9), percentileMillis(100));
+        }
+    }
+}
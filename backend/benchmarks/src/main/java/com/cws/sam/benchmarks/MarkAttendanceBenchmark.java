@@ -0,0 +1,48 @@
+package com.cws.sam.benchmarks;
+
+import com.cws.sam.services.FaceRecognitionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Each invocation marks the next user; the first pass over a day inserts, later passes update the out time
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkAttendanceBenchmark {
+
+    private static final int USERS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private FaceRecognitionService faceRecognitionService;
+    private LocalDateTime day;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Debouncing off: every call should reach the database path being measured
+        context = BenchmarkApplication.start("mark", Files.createTempDirectory("faces"),
+                "--attendance.debounce.window=0s");
+        BenchmarkApplication.seedUsers(context, USERS, 0);
+        faceRecognitionService = context.getBean(FaceRecognitionService.class);
+        day = LocalDateTime.now().withHour(8).withMinute(0).withSecond(0).withNano(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FaceRecognitionService.MarkResult markAttendance() {
+        int i = next++;
+        LocalDateTime time = day.plusMinutes(i / USERS);
+        return faceRecognitionService.markAttendance("user" + (i % USERS), time.toString());
+    }
+}
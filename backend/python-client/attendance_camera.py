@@ -7,8 +7,14 @@ import logging
 import argparse
 import sys
 import time
+import json
+import threading
 import numpy as np
 
+from gallery_snapshot import GallerySnapshot
+from frame_ring import RingSource, DirectorySource
+from worker_telemetry import Telemetry
+
 # Setup logging
 logging.basicConfig(
     level=logging.INFO,
@@ -17,14 +23,57 @@ logging.basicConfig(
 )
 logger = logging.getLogger(__name__)
 
+class RecognitionParams:
+    """Throughput knobs of this worker; the backend can change them while it runs (see watch_stdin)"""
+
+    FIELDS = {"frame_skip": int, "downscale": float, "model": str, "tolerance": float, "max_fps": float}
+
+    def __init__(self, frame_skip=3, downscale=0.25, model="hog", tolerance=0.6, max_fps=0.0):
+        self.frame_skip = frame_skip
+        self.downscale = downscale
+        self.model = model
+        self.tolerance = tolerance
+        self.max_fps = max_fps
+
+    def update(self, changes):
+        """Apply known fields of a dict; each assignment is atomic, so the frame loop never sees a torn value"""
+        for name, kind in self.FIELDS.items():
+            if changes.get(name) is not None:
+                setattr(self, name, kind(changes[name]))
+
+    def __repr__(self):
+        return ", ".join(f"{name}={getattr(self, name)}" for name in self.FIELDS)
+
+
+def watch_stdin(params):
+    """Read JSON parameter updates, one per line, from the backend until stdin closes"""
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            params.update(json.loads(line))
+            logger.info(f"Parameters updated: {params}")
+        except (ValueError, TypeError) as e:
+            logger.error(f"Ignoring invalid parameter update {line!r}: {e}")
+
+
 class FaceAttendanceSystem:
-    def __init__(self, known_faces_dir, api_endpoint):
+    def __init__(self, known_faces_dir, api_endpoint, session_id=None, gallery=None, params=None, telemetry=None):
         self.known_face_encodings = []
         self.known_face_names = []
         self.known_faces_dir = known_faces_dir
         self.api_endpoint = api_endpoint
+        self.session_id = session_id
         self.attendance_marked = False
-        self.load_known_faces()
+        self.params = params or RecognitionParams()
+        self.telemetry = telemetry or Telemetry()
+        # perf_counter() when the frame being processed was read, for the frame-to-mark time
+        self.frame_read_at = None
+        # Shared snapshot published by the backend; replaces decoding and encoding a directory of images
+        self.gallery = gallery
+        if self.gallery is None:
+            self.load_known_faces()
 
     def load_known_faces(self):
         """Load and encode known faces from directory"""
@@ -70,18 +119,29 @@ class FaceAttendanceSystem:
                 "username": username,
                 "timestamp": now.isoformat()
             }
+            if self.session_id:
+                # Lets the server drop repeat reports of the same face from this session
+                payload["session_id"] = self.session_id
 
             logger.info(f"Sending attendance for {username} to {self.api_endpoint}")
-            response = requests.post(
-                self.api_endpoint,
-                json=payload,
-                timeout=5
-            )
+            with self.telemetry.measure("mark"):
+                response = requests.post(
+                    self.api_endpoint,
+                    json=payload,
+                    headers={"X-Client-Id": f"worker-{os.getpid()}"},
+                    timeout=5
+                )
 
             if response.status_code == 200:
+                if self.frame_read_at is not None:
+                    self.telemetry.record("frame_to_mark", time.perf_counter() - self.frame_read_at)
                 logger.info(f"Successfully marked attendance for {username}")
                 self.attendance_marked = True
                 return True
+            elif response.status_code == 202:
+                # An earlier report of this face is still being marked; the next frame asks again
+                logger.info(f"Attendance for {username} is still being marked")
+                return False
             else:
                 logger.error(f"Failed to mark attendance. Status code: {response.status_code}, Response: {response.text}")
                 return False
@@ -101,27 +161,37 @@ class FaceAttendanceSystem:
         if self.attendance_marked:
             return frame
 
+        # Read once so a concurrent update cannot change them halfway through the frame
+        downscale = self.params.downscale
+        tolerance = self.params.tolerance
+
         # Resize frame for faster processing
-        small_frame = cv2.resize(frame, (0, 0), fx=0.25, fy=0.25)
+        small_frame = cv2.resize(frame, (0, 0), fx=downscale, fy=downscale)
 
         # Convert BGR to RGB (face_recognition uses RGB)
         rgb_small_frame = cv2.cvtColor(small_frame, cv2.COLOR_BGR2RGB)
 
         # Find faces and their encodings
-        face_locations = face_recognition.face_locations(rgb_small_frame)
-        face_encodings = face_recognition.face_encodings(rgb_small_frame, face_locations)
+        with self.telemetry.measure("detect"):
+            face_locations = face_recognition.face_locations(rgb_small_frame, model=self.params.model)
+        with self.telemetry.measure("encode"):
+            face_encodings = face_recognition.face_encodings(rgb_small_frame, face_locations)
 
         # Check each face
         for (top, right, bottom, left), face_encoding in zip(face_locations, face_encodings):
             # Compare with known faces
-            matches = face_recognition.compare_faces(self.known_face_encodings, face_encoding, tolerance=0.6)
+            with self.telemetry.measure("match"):
+                if self.gallery is not None:
+                    match = self.gallery.match(face_encoding, tolerance=tolerance)
+                else:
+                    matches = face_recognition.compare_faces(self.known_face_encodings, face_encoding, tolerance=tolerance)
+                    match = self.known_face_names[matches.index(True)] if True in matches else None
             name = "Unknown"
             color = (0, 0, 255)  # Red for unknown
 
             # If a match was found
-            if True in matches:
-                best_match_index = matches.index(True)
-                name = self.known_face_names[best_match_index]
+            if match is not None:
+                name = match
                 color = (0, 255, 0)  # Green for recognized
 
                 # Mark attendance if not already marked
@@ -131,10 +201,10 @@ class FaceAttendanceSystem:
                         logger.info("Recognition complete - Attendance marked")
 
             # Scale back face locations
-            top = int(top * 4)
-            right = int(right * 4)
-            bottom = int(bottom * 4)
-            left = int(left * 4)
+            top = int(top / downscale)
+            right = int(right / downscale)
+            bottom = int(bottom / downscale)
+            left = int(left / downscale)
 
             # Draw box around face
             cv2.rectangle(frame, (left, top), (right, bottom), color, 2)
@@ -166,26 +236,73 @@ def open_camera():
 
 def main():
     parser = argparse.ArgumentParser(description='Face Recognition Attendance System')
-    parser.add_argument('--known_faces_dir', required=True, help='Directory containing known face images')
+    parser.add_argument('--known_faces_dir', help='Directory containing known face images')
+    parser.add_argument('--gallery', help='Gallery snapshot pointer file published by the backend')
+    parser.add_argument('--allow_list', help='File of usernames this session may match (one per line)')
     parser.add_argument('--api_endpoint', default='http://localhost:8080/api/mark', help='API endpoint for marking attendance')
+    parser.add_argument('--session_id', default=None, help='Recognition session id, sent back with every mark')
+    parser.add_argument('--frame_skip', type=int, default=3, help='Run detection on every n-th frame')
+    parser.add_argument('--downscale', type=float, default=0.25, help='Scale factor applied before detection')
+    parser.add_argument('--model', default='hog', choices=['hog', 'cnn'], help='face_recognition detection model')
+    parser.add_argument('--tolerance', type=float, default=0.6, help='Maximum face distance for a match')
+    parser.add_argument('--max_fps', type=float, default=0, help='Upper bound on processed frames per second, 0 for none')
+    parser.add_argument('--frames', help='Frame ring file fed by the browser through the backend, instead of a camera')
+    parser.add_argument('--frames_dir', help='Directory of recorded frames to replay instead of a camera')
+    parser.add_argument('--frames_fps', type=float, default=15, help='Replay rate for --frames_dir')
+    parser.add_argument('--telemetry_interval', type=float, default=5, help='Seconds between TELEMETRY lines for the backend')
     args = parser.parse_args()
+    if not args.known_faces_dir and not args.gallery:
+        parser.error('one of --known_faces_dir or --gallery is required')
 
     try:
-        system = FaceAttendanceSystem(args.known_faces_dir, args.api_endpoint)
-        video_capture = open_camera()
-        if video_capture is None:
-            logger.critical("Error: Could not open video source after multiple attempts")
-            return
-
-        logger.info("Camera opened successfully. Press 'q' to quit manually.")
+        gallery = None
+        if args.gallery:
+            allow_list = None
+            if args.allow_list:
+                with open(args.allow_list, encoding="utf-8") as f:
+                    allow_list = [line.strip() for line in f if line.strip()]
+            gallery = GallerySnapshot(args.gallery, allow_list)
+        params = RecognitionParams(args.frame_skip, args.downscale, args.model, args.tolerance, args.max_fps)
+        logger.info(f"Recognition parameters: {params}")
+        threading.Thread(target=watch_stdin, args=(params,), daemon=True).start()
+        telemetry = Telemetry(args.telemetry_interval)
+        system = FaceAttendanceSystem(args.known_faces_dir, args.api_endpoint, args.session_id, gallery, params,
+                                      telemetry)
+        # Streamed and recorded frames run headless and end with their source; a local camera is reopened on errors
+        camera = not args.frames and not args.frames_dir
+        if args.frames:
+            video_capture = RingSource(args.frames, cv2, np)
+            logger.info("Frame stream opened successfully.")
+        elif args.frames_dir:
+            video_capture = DirectorySource(args.frames_dir, cv2, args.frames_fps)
+            logger.info(f"Recorded frames opened successfully: {len(video_capture.files)} frames.")
+        else:
+            video_capture = open_camera()
+            if video_capture is None:
+                logger.critical("Error: Could not open video source after multiple attempts")
+                return
+            logger.info("Camera opened successfully. Press 'q' to quit manually.")
 
         consecutive_errors = 0
         max_consecutive_errors = 5
         frame_counter = 0
-        skip_frames = 3  # Process every 3rd frame
+        last_processed = 0.0
+        gallery_checked = time.monotonic()
+        waiting_since = None
 
         while True:
+            telemetry.maybe_flush()
+            if waiting_since is None:
+                waiting_since = time.perf_counter()
             ret, frame = video_capture.read()
+            if not camera:
+                if not ret:
+                    logger.info("Frame source ended")
+                    break
+                if frame is None:
+                    # Nothing new from the browser yet
+                    time.sleep(0.005)
+                    continue
             if not ret:
                 logger.error("Failed to capture frame")
                 consecutive_errors += 1
@@ -202,27 +319,50 @@ def main():
             else:
                 consecutive_errors = 0  # Reset error counter
 
-            # Process frame every 'skip_frames' frames
-            if frame_counter % skip_frames == 0:
-                processed_frame = system.process_frame(frame)
+            # Time spent waiting for this frame, including polls that found nothing new
+            system.frame_read_at = time.perf_counter()
+            telemetry.record("capture", system.frame_read_at - waiting_since)
+            waiting_since = None
+            if hasattr(video_capture, "backlog"):
+                telemetry.depth(video_capture.backlog)
+
+            # Pick up a newly published gallery snapshot without restarting
+            if gallery is not None and time.monotonic() - gallery_checked > 5:
+                gallery.refresh()
+                gallery_checked = time.monotonic()
+
+            # Process every 'frame_skip'-th frame, and no more than max_fps frames per second
+            now = time.monotonic()
+            max_fps = params.max_fps
+            due = max_fps <= 0 or now - last_processed >= 1.0 / max_fps
+            if frame_counter % max(1, params.frame_skip) == 0 and due:
+                last_processed = now
+                with telemetry.measure("frame"):
+                    processed_frame = system.process_frame(frame)
+                telemetry.frame(processed=True)
             else:
                 processed_frame = frame  # Display current frame without processing
+                telemetry.frame(processed=False)
 
             # Display the resulting frame
-            cv2.imshow('Face Recognition Attendance System', processed_frame)
+            if camera:
+                cv2.imshow('Face Recognition Attendance System', processed_frame)
             frame_counter += 1
 
             # Exit conditions
             if system.attendance_marked:
+                telemetry.flush()
                 logger.info("Attendance marked successfully. Exiting...")
                 time.sleep(2)
                 break
 
-            if cv2.waitKey(1) & 0xFF == ord('q'):
+            if camera and cv2.waitKey(1) & 0xFF == ord('q'):
                 break
 
+        telemetry.flush()
         video_capture.release()
-        cv2.destroyAllWindows()
+        if camera:
+            cv2.destroyAllWindows()
         logger.info("System shutdown complete")
 
     except KeyboardInterrupt:
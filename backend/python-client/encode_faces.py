@@ -0,0 +1,47 @@
+import argparse
+import json
+import logging
+import os
+
+import face_recognition
+
+logging.basicConfig(
+    level=logging.INFO,
+    format="%(asctime)s - %(levelname)s - %(message)s",
+    handlers=[logging.StreamHandler()]
+)
+logger = logging.getLogger(__name__)
+
+
+def main():
+    """Encode every <id>.jpg in a directory; writes one JSON line per image to the output file.
+    An empty encoding means no face was found, so the backend does not try that image again."""
+    parser = argparse.ArgumentParser(description='Encode enrollment images into face embeddings')
+    parser.add_argument('--input_dir', required=True, help='Directory of <userId>.jpg images')
+    parser.add_argument('--output', required=True, help='JSON lines file to write')
+    args = parser.parse_args()
+
+    count = 0
+    with open(args.output + ".tmp", "w", encoding="utf-8") as out:
+        for filename in sorted(os.listdir(args.input_dir)):
+            user_id, ext = os.path.splitext(filename)
+            if ext.lower() not in (".jpg", ".jpeg", ".png"):
+                continue
+            encoding = []
+            try:
+                image = face_recognition.load_image_file(os.path.join(args.input_dir, filename))
+                encodings = face_recognition.face_encodings(image)
+                if encodings:
+                    encoding = [float(value) for value in encodings[0]]
+                else:
+                    logger.warning(f"No face found in {filename}")
+            except Exception as e:
+                logger.error(f"Error processing file {filename}: {e}")
+            out.write(json.dumps({"id": user_id, "encoding": encoding}) + "\n")
+            count += 1
+    os.replace(args.output + ".tmp", args.output)
+    logger.info(f"Encoded {count} images.")
+
+
+if __name__ == "__main__":
+    main()
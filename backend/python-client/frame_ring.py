@@ -0,0 +1,113 @@
+import mmap
+import os
+import struct
+import time
+
+# Mirrors com.cws.sam.services.FrameRing: little-endian, 64-byte header, 32-byte slot headers
+HEADER = struct.Struct("<4siii")
+SLOT = struct.Struct("<qqqi")
+MAGIC = b"SAMR"
+FORMAT_VERSION = 1
+HEADER_BYTES = 64
+SLOT_HEADER_BYTES = 32
+WRITE_SEQ, READ_SEQ, READ_AT, CLOSED, READ_COUNT = 16, 24, 32, 40, 48
+
+
+class FrameRing:
+    """Reader side of the backend's per-session frame ring. Always returns the newest frame, so a worker
+    that falls behind skips stale frames; what it took is written back for the backend's latency and
+    dropped-frame metrics."""
+
+    def __init__(self, path):
+        with open(path, "r+b") as f:
+            self.map = mmap.mmap(f.fileno(), 0)
+        magic, fmt, self.slots, self.slot_size = HEADER.unpack_from(self.map, 0)
+        if magic != MAGIC or fmt != FORMAT_VERSION:
+            raise ValueError(f"Unsupported frame ring format in {path}")
+
+    def _long(self, offset):
+        return struct.unpack_from("<q", self.map, offset)[0]
+
+    @property
+    def closed(self):
+        return struct.unpack_from("<i", self.map, CLOSED)[0] != 0
+
+    def read_latest(self):
+        """(seq, capture epoch microseconds, JPEG bytes) of the newest unread frame, or None"""
+        while True:
+            seq = self._long(WRITE_SEQ)
+            if seq == 0 or seq <= self._long(READ_SEQ):
+                return None
+            slot = HEADER_BYTES + (seq % self.slots) * self.slot_size
+            slot_seq, capture, _received, length = SLOT.unpack_from(self.map, slot)
+            if slot_seq != seq:
+                continue
+            data = self.map[slot + SLOT_HEADER_BYTES:slot + SLOT_HEADER_BYTES + length]
+            if self._long(slot) != seq:
+                # Overwritten while copying; a newer frame is there
+                continue
+            struct.pack_into("<q", self.map, READ_AT, time.time_ns() // 1000)
+            struct.pack_into("<q", self.map, READ_COUNT, self._long(READ_COUNT) + 1)
+            struct.pack_into("<q", self.map, READ_SEQ, seq)
+            return seq, capture, data
+
+    def close(self):
+        self.map.close()
+
+
+class RingSource:
+    """Frames streamed from the browser through the backend; same read()/release() shape as cv2.VideoCapture"""
+
+    def __init__(self, path, cv2, np):
+        self.ring = FrameRing(path)
+        self.cv2 = cv2
+        self.np = np
+        self.last_seq = 0
+        # Frames that arrived since the previous read, of which only the newest was taken
+        self.backlog = 0
+
+    def isOpened(self):
+        return not self.ring.closed
+
+    def read(self):
+        """(True, frame) for a new frame, (True, None) when none arrived yet, (False, None) once the session ended"""
+        frame = self.ring.read_latest()
+        if frame is None:
+            return (not self.ring.closed), None
+        seq, _capture, data = frame
+        self.backlog = seq - self.last_seq if self.last_seq else 1
+        self.last_seq = seq
+        image = self.cv2.imdecode(self.np.frombuffer(data, dtype=self.np.uint8), self.cv2.IMREAD_COLOR)
+        return True, image
+
+    def release(self):
+        self.ring.close()
+
+
+class DirectorySource:
+    """Recorded frames from disk, in file name order, at a fixed rate; for tests without a camera or browser"""
+
+    def __init__(self, directory, cv2, fps=15.0):
+        self.files = sorted(os.path.join(directory, name) for name in os.listdir(directory)
+                            if name.lower().endswith((".jpg", ".jpeg", ".png")))
+        self.cv2 = cv2
+        self.interval = 1.0 / fps
+        self.index = 0
+        self.next_at = time.monotonic()
+
+    def isOpened(self):
+        return self.index < len(self.files)
+
+    def read(self):
+        if self.index >= len(self.files):
+            return False, None
+        delay = self.next_at - time.monotonic()
+        if delay > 0:
+            time.sleep(delay)
+        self.next_at = max(self.next_at + self.interval, time.monotonic())
+        frame = self.cv2.imread(self.files[self.index])
+        self.index += 1
+        return True, frame
+
+    def release(self):
+        pass
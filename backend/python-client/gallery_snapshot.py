@@ -0,0 +1,67 @@
+import logging
+import os
+import struct
+
+import numpy as np
+
+logger = logging.getLogger(__name__)
+
+# Mirrors com.cws.sam.services.GallerySnapshot: little-endian, 64-byte header
+HEADER = struct.Struct("<4siqii qqqq")
+MAGIC = b"SAMG"
+FORMAT_VERSION = 1
+
+
+class GallerySnapshot:
+    """Read-only view of the backend's gallery snapshot. The embedding matrix is a numpy memmap,
+    so every worker on the host shares the same physical pages instead of holding its own copy."""
+
+    def __init__(self, pointer_file, allow_list=None):
+        self.pointer_file = pointer_file
+        self.allowed = set(allow_list) if allow_list is not None else None
+        self.current_file = None
+        self.version = None
+        self.names = []
+        self.encodings = np.empty((0, 128), dtype="<f4")
+        self.refresh()
+
+    def refresh(self):
+        """Switch to the published snapshot if the pointer moved; returns True when it did."""
+        try:
+            with open(self.pointer_file, encoding="utf-8") as f:
+                name = f.read().strip()
+        except OSError as e:
+            logger.error(f"Cannot read gallery pointer {self.pointer_file}: {e}")
+            return False
+        if name == self.current_file:
+            return False
+
+        path = os.path.join(os.path.dirname(self.pointer_file), name)
+        with open(path, "rb") as f:
+            magic, fmt, version, count, dims, ids_offset, matrix_offset, names_offset, names_length = \
+                HEADER.unpack(f.read(HEADER.size))
+            if magic != MAGIC or fmt != FORMAT_VERSION:
+                logger.error(f"Unsupported gallery snapshot format in {path}")
+                return False
+            f.seek(names_offset)
+            names = f.read(names_length).decode("utf-8").split("\n") if count else []
+
+        matrix = np.memmap(path, dtype="<f4", mode="r", offset=matrix_offset, shape=(count, dims)) \
+            if count else np.empty((0, 128), dtype="<f4")
+        if self.allowed is not None:
+            # A scoped session copies just its rows; small next to the shared matrix
+            rows = [i for i, n in enumerate(names) if n in self.allowed]
+            matrix = np.asarray(matrix[rows])
+            names = [names[i] for i in rows]
+
+        self.current_file, self.version, self.names, self.encodings = name, version, names, matrix
+        logger.info(f"Loaded gallery snapshot version {version} with {len(names)} faces.")
+        return True
+
+    def match(self, encoding, tolerance):
+        """Closest gallery face within tolerance, or None."""
+        if len(self.names) == 0:
+            return None
+        distances = np.linalg.norm(self.encodings - encoding, axis=1)
+        best = int(np.argmin(distances))
+        return self.names[best] if distances[best] <= tolerance else None
@@ -0,0 +1,100 @@
+import argparse
+import base64
+import json
+import logging
+import os
+import time
+
+import numpy as np
+import requests
+
+logger = logging.getLogger(__name__)
+
+
+class GallerySync:
+    """Local copy of the backend's face gallery for a recognition device, kept current through
+    GET /gallery/sync (com.cws.sam.services.GallerySyncService). The first call downloads the whole
+    gallery; later calls only the users that changed. State is saved to state_file so a restarted
+    device resumes from its version instead of downloading everything again. token must belong to a DEVICE
+    or ADMIN account; the backend refuses the gallery to anyone else."""
+
+    def __init__(self, base_url, token=None, state_file="gallery_state.json", timeout=10):
+        self.url = base_url.rstrip("/") + "/gallery/sync"
+        self.headers = {"Authorization": f"Bearer {token}"} if token else {}
+        self.state_file = state_file
+        self.timeout = timeout
+        self.version = 0
+        self.users = {}  # user id -> (username, float32 matrix: centroid first, then outlier vectors)
+        self._load()
+
+    def sync(self):
+        """Apply the changes since our version; returns True when the gallery changed."""
+        response = requests.get(self.url, params={"since": self.version}, headers=self.headers,
+                                timeout=self.timeout)
+        if response.status_code == 304:
+            return False
+        response.raise_for_status()
+        payload = response.json()  # requests undoes the gzip content encoding
+
+        if payload["full"]:
+            self.users = {}
+        dims = payload["dims"]
+        for upsert in payload["upserts"]:
+            vectors = np.frombuffer(base64.b64decode(upsert["vectors"]), dtype="<f4").reshape(-1, dims)
+            self.users[upsert["userId"]] = (upsert["username"], vectors)
+        for user_id in payload["deletes"]:
+            self.users.pop(user_id, None)
+
+        logger.info(f"Gallery {'snapshot' if payload['full'] else 'delta'} {self.version} -> {payload['version']}: "
+                    f"{len(payload['upserts'])} updated, {len(payload['deletes'])} deleted, {len(self.users)} users")
+        self.version = payload["version"]
+        self._save()
+        return True
+
+    def matrix(self):
+        """Usernames and one row per match vector, in the layout the worker matches against."""
+        names, rows = [], []
+        for username, vectors in self.users.values():
+            names.extend([username] * len(vectors))
+            rows.append(vectors)
+        return names, np.vstack(rows) if rows else np.empty((0, 128), dtype="<f4")
+
+    def _load(self):
+        if not os.path.exists(self.state_file):
+            return
+        with open(self.state_file, encoding="utf-8") as f:
+            state = json.load(f)
+        self.version = state["version"]
+        self.users = {int(user_id): (user["username"], np.asarray(user["vectors"], dtype="<f4"))
+                      for user_id, user in state["users"].items()}
+
+    def _save(self):
+        state = {"version": self.version,
+                 "users": {user_id: {"username": username, "vectors": vectors.tolist()}
+                           for user_id, (username, vectors) in self.users.items()}}
+        temp = self.state_file + ".tmp"
+        with open(temp, "w", encoding="utf-8") as f:
+            json.dump(state, f)
+        os.replace(temp, self.state_file)
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Keep a device's face gallery in sync with the backend")
+    parser.add_argument("--url", default="http://localhost:8080")
+    parser.add_argument("--token", default=os.environ.get("SAM_TOKEN"))
+    parser.add_argument("--state", default="gallery_state.json")
+    parser.add_argument("--interval", type=float, default=30.0)
+    args = parser.parse_args()
+
+    logging.basicConfig(level=logging.INFO, format="%(asctime)s - %(levelname)s - %(message)s")
+    gallery = GallerySync(args.url, args.token, args.state)
+    while True:
+        try:
+            gallery.sync()
+        except requests.RequestException as e:
+            logger.warning(f"Gallery sync failed, keeping version {gallery.version}: {e}")
+        time.sleep(args.interval)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,65 @@
+import json
+import sys
+import time
+from contextlib import contextmanager
+
+# Read by com.cws.sam.services.WorkerTelemetryService; stage names must be ones it knows
+PREFIX = "TELEMETRY "
+STAGES = ("capture", "frame", "detect", "encode", "match", "mark", "frame_to_mark")
+
+
+class Telemetry:
+    """Frame counts and per-stage timings of this worker, printed as one TELEMETRY line on stdout every
+    interval seconds. The backend keeps them per session for /sessions/{session}/stats."""
+
+    MAX_SAMPLES = 1000  # per stage and interval, so a fast camera cannot make a line arbitrarily long
+
+    def __init__(self, interval=5.0, out=sys.stdout):
+        self.interval = interval
+        self.out = out
+        self.last_flush = time.monotonic()
+        self._reset()
+
+    def _reset(self):
+        self.captured = 0
+        self.processed = 0
+        self.queue_depth = []
+        self.stages = {stage: [] for stage in STAGES}
+
+    def frame(self, processed):
+        self.captured += 1
+        if processed:
+            self.processed += 1
+
+    def record(self, stage, seconds):
+        samples = self.stages[stage]
+        if len(samples) < self.MAX_SAMPLES:
+            samples.append(round(seconds * 1000, 3))
+
+    def depth(self, frames_waiting):
+        if len(self.queue_depth) < self.MAX_SAMPLES:
+            self.queue_depth.append(frames_waiting)
+
+    @contextmanager
+    def measure(self, stage):
+        start = time.perf_counter()
+        try:
+            yield
+        finally:
+            self.record(stage, time.perf_counter() - start)
+
+    def maybe_flush(self):
+        now = time.monotonic()
+        if now - self.last_flush >= self.interval:
+            self.flush()
+            self.last_flush = now
+
+    def flush(self):
+        report = {
+            "captured": self.captured,
+            "processed": self.processed,
+            "queue_depth": self.queue_depth,
+            "stages_ms": {stage: samples for stage, samples in self.stages.items() if samples},
+        }
+        print(PREFIX + json.dumps(report, separators=(",", ":")), file=self.out, flush=True)
+        self._reset()
@@ -0,0 +1,92 @@
+#!/usr/bin/env bash
+# Measures cold start time (until /actuator/health answers UP) and resident memory for each deployment mode:
+#   jvm      plain executable jar                          mvn package
+#   aot-cds  AOT-processed, extracted jar + CDS archive     mvn -Paot package
+#   native   GraalVM native image                          mvn -Pnative native:compile
+# Modes whose build output is missing are skipped. Run from backend/ after building.
+#
+# Environment:
+#   PORT=18081          port the app listens on
+#   RUNS=3              starts per mode; the reported figure is the median
+#   APP_ARGS=...        extra application arguments, e.g. datasource overrides
+#   EXTRA_CLASSPATH=... extra jars for the JVM modes, e.g. a JDBC driver
+#   RESULT=target/startup-results.csv
+set -euo pipefail
+
+PORT=${PORT:-18081}
+RUNS=${RUNS:-3}
+APP_ARGS=${APP_ARGS:-}
+EXTRA_CLASSPATH=${EXTRA_CLASSPATH:-}
+RESULT=${RESULT:-target/startup-results.csv}
+JAR=$(ls target/smartattendancemanagement-*-exec.jar 2>/dev/null | head -n 1 || true)
+NATIVE=target/smartattendancemanagement
+CDS_DIR=target/cds
+
+now_ms() { date +%s%3N; }
+
+# Starts "$@", waits for health UP, prints "<startup ms> <rss kB>", then stops the process
+measure() {
+  local start pid rss
+  start=$(now_ms)
+  "$@" --server.port="$PORT" $APP_ARGS > target/startup-run.log 2>&1 &
+  pid=$!
+  until curl -fs "http://localhost:$PORT/actuator/health" 2>/dev/null | grep -q '"UP"'; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "process exited before becoming healthy, see target/startup-run.log" >&2
+      return 1
+    fi
+    sleep 0.05
+  done
+  local elapsed=$(( $(now_ms) - start ))
+  rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$elapsed $rss"
+}
+
+median() { sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'; }
+
+run_mode() {
+  local mode=$1; shift
+  local times=() rsses=()
+  for _ in $(seq "$RUNS"); do
+    read -r elapsed rss < <(measure "$@")
+    times+=("$elapsed"); rsses+=("$rss")
+  done
+  local time_median rss_median
+  time_median=$(printf '%s\n' "${times[@]}" | median)
+  rss_median=$(printf '%s\n' "${rsses[@]}" | median)
+  printf '%-8s startup=%6d ms  rss=%7d kB\n' "$mode" "$time_median" "$rss_median"
+  echo "$mode,$time_median,$rss_median" >> "$RESULT"
+}
+
+mkdir -p "$(dirname "$RESULT")"
+echo "mode,startup_ms,rss_kb" > "$RESULT"
+
+if [[ -n "$JAR" ]]; then
+  run_mode jvm java -cp "$JAR${EXTRA_CLASSPATH:+:$EXTRA_CLASSPATH}" org.springframework.boot.loader.launch.JarLauncher
+
+  if unzip -l "$JAR" | grep 'SmartattendancemanagementApplication__ApplicationContextInitializer' > /dev/null; then
+    rm -rf "$CDS_DIR"
+    java -Djarmode=tools -jar "$JAR" extract --destination "$CDS_DIR" > /dev/null
+    APP_JAR=$(ls "$CDS_DIR"/*.jar | head -n 1)
+    CP="$APP_JAR${EXTRA_CLASSPATH:+:$EXTRA_CLASSPATH}"
+    # Training run: refresh the context once and dump every loaded class into the archive
+    java -XX:ArchiveClassesAtExit="$CDS_DIR/app.jsa" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+      -cp "$CP" com.cws.sam.SmartattendancemanagementApplication --server.port="$PORT" $APP_ARGS > target/cds-training.log 2>&1
+    run_mode aot-cds java -XX:SharedArchiveFile="$CDS_DIR/app.jsa" -Dspring.aot.enabled=true \
+      -cp "$CP" com.cws.sam.SmartattendancemanagementApplication
+  else
+    echo "aot-cds  skipped (build with mvn -Paot package)"
+  fi
+else
+  echo "No executable jar in target/, run mvn package first" >&2
+fi
+
+if [[ -x "$NATIVE" ]]; then
+  run_mode native "$NATIVE"
+else
+  echo "native   skipped (build with mvn -Pnative native:compile)"
+fi
+
+echo "Results written to $RESULT"
@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Starts two backend instances on one machine sharing one database, as two nodes behind a load balancer
+# would. Each gets its own port, node id and working directories; sessions, stop requests and /status
+# are shared through the recognition_sessions table. Ctrl-C stops both. Run from backend/ after mvn package.
+#
+# Environment:
+#   PORTS="8081 8082"   ports of the two nodes
+#   APP_ARGS=...        extra application arguments for both, e.g. datasource overrides
+#   EXTRA_CLASSPATH=... extra jars, e.g. the H2 driver for a file database with AUTO_SERVER=TRUE
+#   JWT_SECRET=...      shared token key (base64); generated once per run when unset
+set -euo pipefail
+
+PORTS=${PORTS:-"8081 8082"}
+APP_ARGS=${APP_ARGS:-}
+EXTRA_CLASSPATH=${EXTRA_CLASSPATH:-}
+JAR=$(ls target/smartattendancemanagement-*-exec.jar | head -n 1)
+JWT_SECRET=${JWT_SECRET:-$(head -c 32 /dev/urandom | base64)}
+
+pids=()
+trap 'kill "${pids[@]}" 2>/dev/null || true' EXIT INT TERM
+
+for port in $PORTS; do
+  dir=target/node-$port
+  mkdir -p "$dir"
+  java -cp "$JAR${EXTRA_CLASSPATH:+:$EXTRA_CLASSPATH}" org.springframework.boot.loader.launch.JarLauncher \
+    --server.port="$port" \
+    --cluster.node-id="node-$port" \
+    --jwt.secret="$JWT_SECRET" \
+    --face.recognition.api-endpoint="http://localhost:$port/mark" \
+    --face.recognition.temp-dir="$dir/temp_faces" \
+    --face.recognition.gallery.snapshot-dir="$dir/gallery_snapshot" \
+    $APP_ARGS > "$dir/app.log" 2>&1 &
+  pids+=($!)
+  echo "node-$port: pid $!, log $dir/app.log"
+done
+
+wait
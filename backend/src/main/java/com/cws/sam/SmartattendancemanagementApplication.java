@@ -2,8 +2,10 @@ package com.cws.sam;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SmartattendancemanagementApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,40 @@
+package com.cws.sam.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Attendance rules per role, e.g. attendance.policy.roles.STUDENT.grace-period-minutes=5
+@Data
+@Component
+@ConfigurationProperties(prefix = "attendance.policy")
+public class AttendancePolicyProperties {
+
+    // Used for any role without its own entry
+    private Rule defaults = new Rule();
+
+    private Map<String, Rule> roles = new HashMap<>();
+
+    @Data
+    public static class Rule {
+        private LocalTime shiftStart = LocalTime.of(9, 0);
+        private LocalTime shiftEnd = LocalTime.of(17, 0);
+        private int gracePeriodMinutes = 10;
+        private int halfDayThresholdMinutes = 240;
+        private int minGapMinutes = 5;
+
+        public Rule copy() {
+            Rule copy = new Rule();
+            copy.setShiftStart(shiftStart);
+            copy.setShiftEnd(shiftEnd);
+            copy.setGracePeriodMinutes(gracePeriodMinutes);
+            copy.setHalfDayThresholdMinutes(halfDayThresholdMinutes);
+            copy.setMinGapMinutes(minGapMinutes);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cws.sam.config;
+
+import com.cws.sam.services.UserIdentityService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+// Caches are declared in application.yml (spring.cache.*). Spring Boot already publishes
+// cache.gets/cache.puts/cache.evictions per cache; this adds the hit ratio as a gauge.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public MeterBinder userCacheHitRatio(CacheManager cacheManager) {
+        return registry -> {
+            for (String name : List.of(UserIdentityService.BY_EMAIL, UserIdentityService.BY_USERNAME)) {
+                Cache cache = cacheManager.getCache(name);
+                if (cache instanceof CaffeineCache caffeineCache) {
+                    Gauge.builder("cache.hit.ratio", caffeineCache.getNativeCache(), c -> c.stats().hitRate())
+                            .tag("cache", name)
+                            .register(registry);
+                }
+            }
+        };
+    }
+}
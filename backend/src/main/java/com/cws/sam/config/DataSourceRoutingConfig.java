@@ -0,0 +1,63 @@
+package com.cws.sam.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.Nullable;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// spring.datasource.* stays the primary (writes and non-read-only work); spring.datasource.replica.* takes the
+// same keys for the replica, each with its own hikari block so the pools are sized separately.
+// Registered unconditionally and checked at runtime: the -Paot and -Pnative builds fix the bean set at build time,
+// so a condition on the replica URL would be decided by the build's configuration, not the deployment's.
+// Without spring.datasource.replica.url read-only work goes to the primary as well.
+@Configuration
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, Environment environment) {
+        return pool(properties, "spring.datasource.hikari", "primary", environment);
+    }
+
+    // No bean (null) when no replica is configured
+    @Bean
+    public HikariDataSource replicaDataSource(Environment environment) {
+        if (!environment.containsProperty("spring.datasource.replica.url")) {
+            return null;
+        }
+        DataSourceProperties properties = Binder.get(environment)
+                .bind("spring.datasource.replica", DataSourceProperties.class)
+                .orElseThrow(() -> new IllegalStateException("spring.datasource.replica is not configured"));
+        return pool(properties, "spring.datasource.replica.hikari", "replica", environment);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, @Nullable HikariDataSource replicaDataSource) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.PRIMARY, primaryDataSource,
+                ReadWriteRoutingDataSource.REPLICA, replicaDataSource != null ? replicaDataSource : primaryDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String hikariPrefix, String name,
+                                         Environment environment) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind(hikariPrefix, Bindable.ofInstance(dataSource));
+        if (dataSource.getPoolName() == null) {
+            dataSource.setPoolName(name);
+        }
+        return dataSource;
+    }
+}
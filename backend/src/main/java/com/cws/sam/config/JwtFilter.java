@@ -2,6 +2,8 @@ package com.cws.sam.config;
 
 import com.cws.sam.services.JWTService;
 import com.cws.sam.services.MyUserDetailsService;
+import com.cws.sam.services.RecognitionMetrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,12 +26,17 @@ import java.util.stream.Collectors;
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    private static final String FRAMES_PATH = "/frames";
+
     @Autowired
     private JWTService jwtService;
 
     @Autowired
     ApplicationContext applicationContext;
 
+    @Autowired
+    private RecognitionMetrics recognitionMetrics;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -40,13 +47,21 @@ public class JwtFilter extends OncePerRequestFilter {
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             token = authHeader.substring(7);
+        } else if (FRAMES_PATH.equals(request.getServletPath())) {
+            // Browsers cannot set headers on a WebSocket handshake, so the frame socket takes the token as a parameter
+            token = request.getParameter("access_token");
+        }
+        if (token != null) {
             username = jwtService.extractUserName(token);
         }
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            Timer.Sample validation = Timer.start();
             UserDetails userDetails = applicationContext.getBean(MyUserDetailsService.class).loadUserByUsername(username);
+            boolean valid = jwtService.validateToken(token, userDetails);
+            validation.stop(recognitionMetrics.jwtValidation());
 
-            if (jwtService.validateToken(token, userDetails)) {
+            if (valid) {
                 List<String> roles = jwtService.extractRoles(token);
                 List<GrantedAuthority> authorities = roles.stream()
                         .map(SimpleGrantedAuthority::new)
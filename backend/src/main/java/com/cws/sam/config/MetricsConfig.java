@@ -0,0 +1,16 @@
+package com.cws.sam.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Lets RequestMetricsFilter report SQL statements per request
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put("hibernate.session_factory.statement_inspector",
+                new StatementCountingInspector());
+    }
+}
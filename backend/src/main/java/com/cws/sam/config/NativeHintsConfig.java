@@ -0,0 +1,72 @@
+package com.cws.sam.config;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Reflection and resource hints for the AOT and native builds (mvn -Paot / -Pnative).
+// Only read at build time; a regular JVM run never calls the registrar.
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.ApplicationHints.class)
+public class NativeHintsConfig {
+
+    static class ApplicationHints implements RuntimeHintsRegistrar {
+
+        private static final MemberCategory[] FULL_ACCESS = {
+                MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_DECLARED_METHODS
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Entities: Hibernate instantiates them and reads the Lombok-generated fields and accessors
+            forEachClass(classLoader, "com/cws/sam/models", type -> hints.reflection().registerType(type, FULL_ACCESS));
+
+            // DTOs: built by JPQL constructor expressions and serialized from ResponseEntity<?> and Map bodies,
+            // which Spring cannot infer from controller signatures
+            BindingReflectionHintsRegistrar binding = new BindingReflectionHintsRegistrar();
+            forEachClass(classLoader, "com/cws/sam/dtos", type -> {
+                binding.registerReflectionHints(hints.reflection(), ClassUtils.resolveClassName(type.getName(), classLoader));
+                hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            });
+
+            // jjwt: Jwts, Keys and the algorithm registries load their implementations by class name,
+            // and the Jackson serializer is found through the service loader
+            forEachClass(classLoader, "io/jsonwebtoken/impl", type -> hints.reflection().registerType(type, FULL_ACCESS));
+            forEachClass(classLoader, "io/jsonwebtoken/jackson/io", type -> hints.reflection().registerType(type, FULL_ACCESS));
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+            // springdoc: the OpenAPI model is serialized reflectively and Swagger UI is served from the webjar
+            forEachClass(classLoader, "io/swagger/v3/oas/models", type -> hints.reflection().registerType(type,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS));
+            hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/**");
+        }
+
+        private static void forEachClass(ClassLoader classLoader, String packagePath, Consumer<TypeReference> consumer) {
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+            MetadataReaderFactory readers = new CachingMetadataReaderFactory(resolver);
+            try {
+                for (Resource resource : resolver.getResources("classpath*:" + packagePath + "/**/*.class")) {
+                    consumer.accept(TypeReference.of(readers.getMetadataReader(resource).getClassMetadata().getClassName()));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to scan " + packagePath + " for native hints", e);
+            }
+        }
+    }
+}
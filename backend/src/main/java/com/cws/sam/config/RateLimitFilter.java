@@ -0,0 +1,145 @@
+package com.cws.sam.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Token-bucket admission control for the endpoints listed under rate-limit.endpoints.
+// Runs just inside Spring Security so clients can be keyed on the authenticated user.
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Map<String, EndpointLimiter> limiters = Map.of();
+
+    @PostConstruct
+    void init() {
+        Map<String, EndpointLimiter> configured = new HashMap<>();
+        properties.getEndpoints().forEach((path, endpoint) -> configured.put(path, new EndpointLimiter(path, endpoint)));
+        limiters = Map.copyOf(configured);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !limiters.containsKey(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointLimiter limiter = limiters.get(request.getServletPath());
+        long waitNanos = limiter.tryAcquire(clientKey(request), System.nanoTime());
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("message", "Too many requests, retry after " + retryAfterSeconds + "s");
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        String remote = request.getRemoteAddr();
+        if (properties.getTrustedProxies().contains(remote)) {
+            String client = request.getHeader(properties.getClientHeader());
+            if (client != null && !client.isBlank()) {
+                return "client:" + client;
+            }
+        }
+        return "addr:" + remote;
+    }
+
+    private final class EndpointLimiter {
+        private final RateLimitProperties.Limit perClient;
+        private final TokenBucket global;
+        private final Cache<String, TokenBucket> clients;
+        private final Counter rejectedClient;
+        private final Counter rejectedGlobal;
+
+        EndpointLimiter(String path, RateLimitProperties.Endpoint endpoint) {
+            this.perClient = endpoint.getPerClient();
+            this.global = endpoint.getGlobal() != null
+                    ? new TokenBucket(endpoint.getGlobal().getCapacity(), endpoint.getGlobal().getRefillPerSecond())
+                    : null;
+            if (perClient != null) {
+                new TokenBucket(perClient.getCapacity(), perClient.getRefillPerSecond()); // validate at startup
+            }
+            this.clients = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxClients())
+                    .expireAfterAccess(Duration.ofMinutes(10))
+                    .build();
+            this.rejectedClient = Counter.builder("http.server.requests.rejected")
+                    .description("Requests refused by the rate limiter").tag("uri", path).tag("limit", "client")
+                    .register(registry);
+            this.rejectedGlobal = Counter.builder("http.server.requests.rejected")
+                    .description("Requests refused by the rate limiter").tag("uri", path).tag("limit", "global")
+                    .register(registry);
+        }
+
+        // Client bucket first so one noisy client is refused without draining the shared budget
+        long tryAcquire(String client, long now) {
+            TokenBucket clientBucket = perClient != null
+                    ? clients.get(client, key -> new TokenBucket(perClient.getCapacity(), perClient.getRefillPerSecond()))
+                    : null;
+            if (clientBucket != null) {
+                long wait = clientBucket.tryAcquire(now);
+                if (wait > 0) {
+                    rejectedClient.increment();
+                    return wait;
+                }
+            }
+            if (global != null) {
+                long wait = global.tryAcquire(now);
+                if (wait > 0) {
+                    if (clientBucket != null) {
+                        clientBucket.release();
+                    }
+                    rejectedGlobal.increment();
+                    return wait;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.cws.sam.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Admission limits per endpoint path, e.g. rate-limit.endpoints.[/mark].per-client.refill-per-second=10
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Clients are told apart by their authenticated user, otherwise by remote address. Only requests from
+    // trusted-proxies may name a client in this header instead (workers send their own id)
+    private String clientHeader = "X-Client-Id";
+
+    private List<String> trustedProxies = new ArrayList<>();
+
+    // Upper bound on per-client buckets kept per endpoint; idle clients are dropped first
+    private int maxClients = 10_000;
+
+    private Map<String, Endpoint> endpoints = new HashMap<>();
+
+    @Data
+    public static class Endpoint {
+        // Either limit may be left out
+        private Limit perClient;
+        private Limit global;
+    }
+
+    @Data
+    public static class Limit {
+        private int capacity = 10;
+        private double refillPerSecond = 5;
+    }
+}
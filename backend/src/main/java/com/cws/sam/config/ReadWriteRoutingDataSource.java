@@ -0,0 +1,38 @@
+package com.cws.sam.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Sends read-only transactions to the replica and everything else to the primary.
+// Must sit behind a LazyConnectionDataSourceProxy so the connection is fetched after the
+// transaction's read-only flag is set rather than when the transaction begins.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private static final Object PRIMARY_ONLY = new Object();
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnly && !TransactionSynchronizationManager.hasResource(PRIMARY_ONLY) ? REPLICA : PRIMARY;
+    }
+
+    // Keeps the current read-only transaction on the primary, e.g. to read back a write the replica may not have yet.
+    // Has to run before the transaction's first statement; a no-op outside a transaction.
+    public static void usePrimaryForCurrentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(PRIMARY_ONLY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PRIMARY_ONLY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PRIMARY_ONLY);
+            }
+        });
+    }
+}
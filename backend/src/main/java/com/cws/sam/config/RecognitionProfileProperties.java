@@ -0,0 +1,22 @@
+package com.cws.sam.config;
+
+import com.cws.sam.dtos.RecognitionParams;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Named parameter sets for recognition workers, e.g. face.recognition.profiles.light.frame-skip=6.
+// /start-recognition picks one by name (default-profile otherwise) and may override single fields.
+@Data
+@Component
+@ConfigurationProperties(prefix = "face.recognition")
+public class RecognitionProfileProperties {
+
+    private String defaultProfile = "balanced";
+
+    private Map<String, RecognitionParams> profiles = new HashMap<>(Map.of(
+            "balanced", new RecognitionParams(3, 0.25, "hog", 0.6, 0.0)));
+}
@@ -3,6 +3,7 @@ package com.cws.sam.config;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -39,7 +40,8 @@ public class SecurityConfig {
             "/mark",
             "/start-recognition",
             "/stop-recognition",
-            "/check"
+            "/check",
+            "/actuator/health/**"
     };
 
     @Bean
@@ -47,6 +49,11 @@ public class SecurityConfig {
         return http.csrf(AbstractHttpConfigurer::disable) // Stateless API, CSRF not needed
                 .authorizeHttpRequests(request -> request
                         .requestMatchers(PUBLIC_URLS).permitAll()
+                        // Policy changes rewrite the status of every stored record
+                        .requestMatchers(HttpMethod.PUT, "/policy/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/policy/**").hasRole("ADMIN")
+                        // Face embeddings of every user: recognition devices and admins only
+                        .requestMatchers("/gallery/**").hasAnyRole("ADMIN", "DEVICE")
                         .anyRequest().authenticated())
                 .httpBasic(Customizer.withDefaults())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -0,0 +1,27 @@
+package com.cws.sam.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+// spring.threads.virtual.enabled switches Tomcat, the @Async/@Scheduled executors and the recognition
+// worker readers to virtual threads. Spring Boot ignores the flag below Java 21, so say which mode is live.
+@Slf4j
+@Configuration
+public class ThreadingConfig {
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Request handling and worker I/O run on virtual threads");
+        } else if (requested) {
+            log.warn("Virtual threads requested but Java {} does not support them; using platform threads",
+                    Runtime.version().feature());
+        }
+    }
+}
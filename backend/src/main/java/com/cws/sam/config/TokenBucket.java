@@ -0,0 +1,42 @@
+package com.cws.sam.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket. Instead of a token count plus a refill timestamp, the whole state is one
+// long: the time at which the bucket will be full again. Taking a token pushes that time forward by
+// one refill interval; the request is refused if that would put it more than `capacity` intervals
+// ahead of now. One CAS per acquire, no lock, no background refill.
+final class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(int capacity, double refillPerSecond) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity must be >= 1 and refill-per-second > 0");
+        }
+        this.nanosPerToken = (long) (1_000_000_000L / refillPerSecond);
+        this.burstNanos = nanosPerToken * capacity;
+    }
+
+    // Returns 0 if a token was taken, otherwise how many nanoseconds until one is available
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + nanosPerToken;
+            long ahead = next - nowNanos;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Gives back a token taken by tryAcquire, used when a later check refuses the request
+    void release() {
+        fullAt.addAndGet(-nanosPerToken);
+    }
+}
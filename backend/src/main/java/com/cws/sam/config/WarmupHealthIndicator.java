@@ -0,0 +1,25 @@
+package com.cws.sam.config;
+
+import com.cws.sam.services.WarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// "warmup" health component, part of the readiness group (see management.endpoint.health.group.readiness):
+// /actuator/health/readiness stays OUT_OF_SERVICE until WarmupService has run every phase.
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private WarmupService warmupService;
+
+    @Override
+    public Health health() {
+        Health.Builder health = warmupService.isFinished() ? Health.up() : Health.outOfService();
+        if (warmupService.isFinished()) {
+            health.withDetail("totalMs", warmupService.getTotalMs());
+        }
+        return health.withDetail("phases", warmupService.getPhases()).build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.cws.sam.config;
+
+import com.cws.sam.controllers.FrameWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+// Raw binary WebSocket for browser camera frames; no STOMP or SockJS, one message per frame
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private FrameWebSocketHandler frameWebSocketHandler;
+
+    @Value("${face.recognition.frames.allowed-origins:http://localhost:8080}")
+    private String[] allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(frameWebSocketHandler, "/frames").setAllowedOrigins(allowedOrigins);
+    }
+}
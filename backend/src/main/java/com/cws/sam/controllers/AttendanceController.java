@@ -0,0 +1,127 @@
+package com.cws.sam.controllers;
+
+import com.cws.sam.repositories.UserRepository;
+import com.cws.sam.services.AttendanceArchiveService;
+import com.cws.sam.services.AttendanceImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/attendance")
+public class AttendanceController {
+
+    @Autowired
+    private AttendanceArchiveService attendanceArchiveService;
+
+    @Autowired
+    private AttendanceImportService attendanceImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Export attendance for a date range as CSV, including months already moved to the archive
+    @Operation(summary = "Export attendance in a date range as CSV")
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<Long, String> usernames = userRepository.findAllUsernames().stream()
+                .collect(Collectors.toMap(UserRepository.UsernameRow::getId, UserRepository.UsernameRow::getUsername));
+
+        StreamingResponseBody body = outputStream -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write("id,userId,username,date,inTime,outTime,status\n");
+            attendanceArchiveService.forEachInRange(from, to, record -> {
+                try {
+                    writer.write(record.getId() + "," + record.getUserId() + ","
+                            + csv(usernames.get(record.getUserId())) + "," + record.getDate() + ","
+                            + csv(record.getInTime()) + "," + csv(record.getOutTime()) + ","
+                            + csv(record.getStatus()) + "\n");
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=attendance-" + from + "-" + to + ".csv")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+
+    @Operation(summary = "Archive one closed month of attendance, e.g. 2024-01")
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Object>> archive(
+            @RequestParam("month") @DateTimeFormat(pattern = "yyyy-MM") YearMonth yearMonth) {
+        Map<String, Object> response = new HashMap<>();
+        if (!yearMonth.isBefore(YearMonth.now())) {
+            response.put("success", false);
+            response.put("message", "Only closed months can be archived");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            int archived = attendanceArchiveService.archiveMonth(yearMonth);
+            response.put("success", true);
+            response.put("archivedRecords", archived);
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Failed to archive attendance: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    @Operation(summary = "Import legacy attendance from CSV (username,date,inTime[,outTime])")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importCsv(@RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.ok(attendanceImportService.importUpload(file));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body("Error importing attendance: " + e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Resume an interrupted import from its last checkpoint")
+    @PostMapping("/import/resume")
+    public ResponseEntity<?> resumeImport(@RequestParam String name) {
+        try {
+            return ResponseEntity.ok(attendanceImportService.importFile(name));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body("Error importing attendance: " + e.getMessage());
+        }
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        return text.contains(",") || text.contains("\"")
+                ? "\"" + text.replace("\"", "\"\"") + "\""
+                : text;
+    }
+}
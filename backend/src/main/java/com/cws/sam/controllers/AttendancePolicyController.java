@@ -0,0 +1,58 @@
+package com.cws.sam.controllers;
+
+import com.cws.sam.config.AttendancePolicyProperties;
+import com.cws.sam.services.AttendancePolicyService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/policy")
+public class AttendancePolicyController {
+
+    @Autowired
+    private AttendancePolicyService attendancePolicyService;
+
+    @Operation(summary = "Get attendance policy rules by role")
+    @GetMapping
+    public Map<String, AttendancePolicyProperties.Rule> getPolicies() {
+        return attendancePolicyService.getRules();
+    }
+
+    // Admins only (SecurityConfig); stored for every node
+    @Operation(summary = "Replace the policy for a role and re-evaluate stored attendance")
+    @PutMapping("/{role}")
+    public ResponseEntity<Map<String, Object>> updatePolicy(
+            @PathVariable String role,
+            @RequestBody AttendancePolicyProperties.Rule rule) {
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int changed = attendancePolicyService.updatePolicy(role, rule);
+            response.put("success", true);
+            response.put("updatedRecords", changed);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @Operation(summary = "Re-evaluate the status of all stored attendance")
+    @PostMapping("/reevaluate")
+    public ResponseEntity<Map<String, Object>> reevaluate() {
+        long start = System.currentTimeMillis();
+        int changed = attendancePolicyService.reevaluateAll();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("updatedRecords", changed);
+        response.put("elapsedMs", System.currentTimeMillis() - start);
+        return ResponseEntity.ok(response);
+    }
+}
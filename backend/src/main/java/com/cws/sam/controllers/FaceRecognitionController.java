@@ -1,6 +1,10 @@
 package com.cws.sam.controllers;
 
+import com.cws.sam.dtos.GalleryScope;
+import com.cws.sam.dtos.RecognitionParams;
+import com.cws.sam.dtos.RecognitionSessionDto;
 import com.cws.sam.models.Attendance;
+import com.cws.sam.models.RecognitionSession;
 import com.cws.sam.services.FaceRecognitionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -10,8 +14,10 @@ import org.springframework.web.bind.annotation.*;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:8080")
@@ -20,15 +26,50 @@ public class FaceRecognitionController {
     @Autowired
     private FaceRecognitionService faceRecognitionService;
 
+    // Without className/site/shift the session matches against every enrolled face.
+    // Worker parameters come from the named profile (face.recognition.profiles); frameSkip, downscale,
+    // model, tolerance and maxFps override single values of it.
+    // source=browser: the worker takes frames streamed to the returned WebSocket path instead of a local camera.
     @PostMapping("/start-recognition")
-    public ResponseEntity<Map<String, Object>> startRecognition(@RequestParam String email) {
+    public ResponseEntity<Map<String, Object>> startRecognition(@RequestParam String email,
+                                                                @RequestParam(required = false) String className,
+                                                                @RequestParam(required = false) String site,
+                                                                @RequestParam(required = false) String shift,
+                                                                @RequestParam(required = false) String profile,
+                                                                @RequestParam(defaultValue = "camera") String source,
+                                                                @ModelAttribute RecognitionParams overrides) {
         Map<String, Object> response = new HashMap<>();
 
-        boolean started = faceRecognitionService.startRecognition(email);
+        if (!source.equals("camera") && !source.equals("browser")) {
+            response.put("success", false);
+            response.put("message", "source must be camera or browser");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        RecognitionParams params;
+        try {
+            params = faceRecognitionService.resolveParams(profile, overrides);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
 
-        if (started) {
+        Optional<RecognitionSessionDto> started = faceRecognitionService.startRecognition(
+                email, GalleryScope.of(className, site, shift), params, source.equals("browser"));
+
+        if (started.isPresent()) {
             response.put("success", true);
             response.put("message", "Face recognition started successfully");
+            response.put("session", started.get().getSession());
+            response.put("scope", started.get().getScope());
+            response.put("galleryFaces", started.get().getGalleryFaces());
+            response.put("galleryMs", started.get().getGalleryMs());
+            response.put("startMs", started.get().getStartMs());
+            response.put("params", started.get().getParams());
+            if (started.get().getFrames() != null) {
+                response.put("frames", started.get().getFrames());
+            }
             return ResponseEntity.ok(response);
         } else {
             response.put("success", false);
@@ -41,14 +82,21 @@ public class FaceRecognitionController {
     public ResponseEntity<Map<String, Object>> markAttendance(@RequestBody Map<String, String> payload) {
         String username = payload.get("username");
         String timestamp = payload.get("timestamp");
+        String session = payload.get("session_id");
 
-        boolean marked = faceRecognitionService.markAttendance(username, timestamp);
+        FaceRecognitionService.MarkResult result = faceRecognitionService.markAttendance(username, timestamp, session);
 
         Map<String, Object> response = new HashMap<>();
-        if (marked) {
+        if (result == FaceRecognitionService.MarkResult.MARKED) {
             response.put("success", true);
             response.put("message", "Attendance marked successfully for " + username);
             return ResponseEntity.ok(response);
+        } else if (result == FaceRecognitionService.MarkResult.PENDING) {
+            // An earlier report of this face is still being marked; report again to learn the outcome
+            response.put("success", false);
+            response.put("pending", true);
+            response.put("message", "Attendance for " + username + " is still being marked");
+            return ResponseEntity.accepted().body(response);
         } else {
             response.put("success", false);
             response.put("message", "Failed to mark attendance");
@@ -72,13 +120,75 @@ public class FaceRecognitionController {
         }
     }
 
+    // Cluster-wide: sessions on every node, whichever node serves the request
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getStatus() {
+        List<Map<String, Object>> sessions = faceRecognitionService.sessions().stream()
+                .map(session -> {
+                    Map<String, Object> entry = new HashMap<>();
+                    entry.put("session", session.getId());
+                    entry.put("email", session.getEmail());
+                    entry.put("node", session.getNodeId());
+                    entry.put("startedAt", session.getStartedAt().toString());
+                    entry.put("stopping", session.isStopRequested());
+                    entry.put("params", faceRecognitionService.paramsOf(session));
+                    return entry;
+                })
+                .collect(Collectors.toList());
+
         Map<String, Object> response = new HashMap<>();
-        response.put("running", faceRecognitionService.isRunning());
+        response.put("running", !sessions.isEmpty());
+        response.put("sessions", sessions);
         return ResponseEntity.ok(response);
     }
 
+    // Retunes a running session on whichever node runs it; fields left out of the body keep their value
+    @PostMapping("/sessions/{session}/params")
+    public ResponseEntity<Map<String, Object>> updateParams(@PathVariable String session,
+                                                            @RequestBody RecognitionParams changes) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Optional<RecognitionParams> params = faceRecognitionService.updateParams(session, changes);
+            if (params.isEmpty()) {
+                response.put("success", false);
+                response.put("message", "No running session " + session);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "Parameters updated");
+            response.put("params", params.get());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Frames, per-stage timings and queue depth reported by the session's worker over the last telemetry window.
+    // Only the node running the session has them; other nodes answer 409 with that node's id.
+    @GetMapping("/sessions/{session}/stats")
+    public ResponseEntity<Map<String, Object>> sessionStats(@PathVariable String session) {
+        Map<String, Object> response = new HashMap<>();
+        Optional<Map<String, Object>> stats = faceRecognitionService.sessionStats(session);
+        if (stats.isPresent()) {
+            response.put("success", true);
+            response.put("session", session);
+            response.putAll(stats.get());
+            return ResponseEntity.ok(response);
+        }
+        Optional<RecognitionSession> running = faceRecognitionService.findSession(session);
+        if (running.isPresent()) {
+            response.put("success", false);
+            response.put("message", "Session " + session + " runs on node " + running.get().getNodeId());
+            response.put("node", running.get().getNodeId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("success", false);
+        response.put("message", "No running session " + session);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
     @GetMapping("/check")
     public ResponseEntity<Map<String, Object>> checkAttendance(@RequestParam String email) {
         // Call the service to check attendance
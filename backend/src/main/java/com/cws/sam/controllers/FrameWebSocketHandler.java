@@ -0,0 +1,52 @@
+package com.cws.sam.controllers;
+
+import com.cws.sam.services.FrameIngestService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+
+// ws://<host>/frames?session=<id>&access_token=<jwt>: one binary message per camera frame of a session started with
+// source=browser (see FrameIngestService for the message layout). The connection has to reach the node
+// that runs the session, which /start-recognition reports.
+@Slf4j
+@Component
+public class FrameWebSocketHandler extends BinaryWebSocketHandler {
+
+    private static final String SESSION = "recognitionSession";
+
+    @Autowired
+    private FrameIngestService frameIngestService;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession connection) throws IOException {
+        String session = connection.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(connection.getUri()).build().getQueryParams().getFirst("session");
+        if (session == null || !frameIngestService.isOpen(session)) {
+            connection.close(CloseStatus.POLICY_VIOLATION.withReason("No browser-fed recognition session on this node"));
+            return;
+        }
+        connection.getAttributes().put(SESSION, session);
+        connection.setBinaryMessageSizeLimit(frameIngestService.maxMessageBytes());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession connection, BinaryMessage message) throws IOException {
+        String session = (String) connection.getAttributes().get(SESSION);
+        if (session != null && !frameIngestService.accept(session, message.getPayload())) {
+            // Recognition finished or was stopped
+            connection.close(CloseStatus.NORMAL.withReason("Recognition session ended"));
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession connection, Throwable exception) {
+        log.debug("Frame stream of {} failed", connection.getAttributes().get(SESSION), exception);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cws.sam.controllers;
+
+import com.cws.sam.services.GallerySyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@Slf4j
+@RestController
+public class GalleryController {
+
+    @Autowired
+    private GallerySyncService gallerySyncService;
+
+    // Gallery for recognition devices: the changes since the device's version, or everything when since=0
+    // or the device is too far behind (full=true). The body is always gzipped JSON; 304 when nothing changed.
+    // Bodies are face embeddings, so nothing may store them and only DEVICE and ADMIN accounts get them
+    // (SecurityConfig); devices keep their own copy and version.
+    @Operation(summary = "Gallery changes since a version, for recognition devices")
+    @GetMapping("/gallery/sync")
+    public ResponseEntity<byte[]> sync(@RequestParam(defaultValue = "0") long since) {
+        GallerySyncService.Payload payload;
+        try {
+            payload = gallerySyncService.sync(since);
+        } catch (IOException e) {
+            log.warn("Could not build the gallery since version {}", since, e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        String eTag = "\"gallery-" + payload.version() + "\"";
+        if (payload.body() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag)
+                    .cacheControl(CacheControl.noStore()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .header("X-Gallery-Version", Long.toString(payload.version()))
+                .header("X-Gallery-Full", Boolean.toString(payload.full()))
+                .eTag(eTag)
+                .cacheControl(CacheControl.noStore())
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .body(payload.body());
+    }
+}
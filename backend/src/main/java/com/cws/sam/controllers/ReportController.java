@@ -0,0 +1,88 @@
+package com.cws.sam.controllers;
+
+import com.cws.sam.services.AttendanceAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/reports")
+public class ReportController {
+
+    @Autowired
+    private AttendanceAnalyticsService attendanceAnalyticsService;
+
+    @Operation(summary = "Analytics snapshot size and age")
+    @GetMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> snapshot() {
+        return timed(() -> attendanceAnalyticsService.snapshotInfo());
+    }
+
+    @Operation(summary = "Rebuild the analytics snapshot from the database")
+    @PostMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> rebuildSnapshot() {
+        return timed(() -> {
+            attendanceAnalyticsService.rebuild();
+            return attendanceAnalyticsService.snapshotInfo();
+        });
+    }
+
+    @Operation(summary = "Histogram of minutes late past the grace period")
+    @GetMapping("/late-arrivals")
+    public ResponseEntity<Map<String, Object>> lateArrivals(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "5") int bucketMinutes,
+            @RequestParam(defaultValue = "120") int maxMinutes) {
+
+        if (to.isBefore(from) || bucketMinutes <= 0 || maxMinutes < bucketMinutes) {
+            return badRange();
+        }
+        return timed(() -> attendanceAnalyticsService.lateArrivalHistogram(from, to, bucketMinutes, maxMinutes));
+    }
+
+    @Operation(summary = "Attendance percentage per role")
+    @GetMapping("/attendance-rate")
+    public ResponseEntity<Map<String, Object>> attendanceRate(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        if (to.isBefore(from)) {
+            return badRange();
+        }
+        return timed(() -> attendanceAnalyticsService.attendanceRateByRole(from, to));
+    }
+
+    @Operation(summary = "Week-over-week attendance and late arrival trend")
+    @GetMapping("/weekly-trend")
+    public ResponseEntity<Map<String, Object>> weeklyTrend(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        if (to.isBefore(from)) {
+            return badRange();
+        }
+        return timed(() -> attendanceAnalyticsService.weeklyTrend(from, to));
+    }
+
+    private ResponseEntity<Map<String, Object>> timed(Supplier<Map<String, Object>> report) {
+        long start = System.nanoTime();
+        Map<String, Object> response = new HashMap<>(report.get());
+        response.put("elapsedMicros", (System.nanoTime() - start) / 1_000);
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> badRange() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Invalid report parameters");
+        return ResponseEntity.badRequest().body(response);
+    }
+}
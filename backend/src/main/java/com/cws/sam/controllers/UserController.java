@@ -1,8 +1,14 @@
 package com.cws.sam.controllers;
 
+import com.cws.sam.dtos.FaceEnrollmentDto;
 import com.cws.sam.dtos.LoginRequestDto;
 import com.cws.sam.dtos.LoginResponseDto;
+import com.cws.sam.dtos.UserDetailDto;
 import com.cws.sam.dtos.UserRequestDto;
+import com.cws.sam.dtos.UserResponseDto;
+import com.cws.sam.exceptions.FaceImageProcessingException;
+import com.cws.sam.exceptions.FaceImageRejectedException;
+import com.cws.sam.exceptions.UserNotFoundException;
 import com.cws.sam.models.User;
 import com.cws.sam.repositories.UserRepository;
 import com.cws.sam.services.UserService;
@@ -10,19 +16,27 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 public class UserController {
 
@@ -32,18 +46,39 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    // Each bulk upload holds a database connection, so all bulk uploads together get at most this many
+    // threads; by default half the primary pool, leaving the rest for other requests
+    @Value("${face.enrollment.bulk-parallelism:0}")
+    private int bulkParallelism;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int poolSize;
+
+    @Autowired
+    private SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    private SimpleAsyncTaskExecutor bulkUploadExecutor;
+
+    @PostConstruct
+    void init() {
+        int limit = bulkParallelism > 0 ? bulkParallelism : Math.max(1, poolSize / 2);
+        bulkUploadExecutor = taskExecutorBuilder.threadNamePrefix("bulk-upload-").concurrencyLimit(limit).build();
+    }
+
     // Get all users
     @Operation(summary = "Get all users")
     @GetMapping
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public List<UserResponseDto> getAllUsers() {
+        return userService.getAllUsers();
     }
 
-    // Get user by email
+    // Get user by email, with recent attendance
     @Operation(summary = "Get user by email")
     @GetMapping("/user")
-    public ResponseEntity<User> getUserByEmail(@RequestParam("email") String email) {
-        return userRepository.findByEmail(email)
+    public ResponseEntity<UserDetailDto> getUserByEmail(
+            @RequestParam("email") String email,
+            @RequestParam(value = "days", defaultValue = "30") int days) {
+        return userService.getUserDetail(email, days)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -61,7 +96,7 @@ public class UserController {
 
         try {
             User registeredUser = userService.register(userRequestDto);
-            return new ResponseEntity<>(registeredUser, HttpStatus.CREATED);
+            return new ResponseEntity<>(UserResponseDto.from(registeredUser), HttpStatus.CREATED);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error creating user: " + e.getMessage());
         }
@@ -81,13 +116,12 @@ public class UserController {
             @RequestParam("email") String email,
             @RequestBody UserRequestDto userRequestDto) {
 
-        Optional<User> optionalUser = userRepository.findByEmail(email);
-        if (optionalUser.isEmpty()) {
+        if (!userRepository.existsByEmail(email)) {
             return ResponseEntity.notFound().build();
         }
 
         User updatedUser = userService.updateByEmail(email, userRequestDto, null);
-        return ResponseEntity.ok(updatedUser);
+        return ResponseEntity.ok(UserResponseDto.from(updatedUser));
     }
 
     // Upload face image by email
@@ -97,18 +131,116 @@ public class UserController {
             @RequestParam String email,
             @RequestParam("faceImage") MultipartFile faceImage) {
 
-        Optional<User> optionalUser = userRepository.findByEmail(email);
-        if (optionalUser.isEmpty()) {
+        if (!userRepository.existsByEmail(email)) {
             return ResponseEntity.notFound().build();
         }
 
         try {
-            User user = optionalUser.get();
-            user.setFaceImage(faceImage.getBytes());
-            userRepository.save(user);
+            userService.updateFaceImageByEmail(email, faceImage);
             return ResponseEntity.ok("Face image uploaded successfully");
-        } catch (IOException e) {
-            return ResponseEntity.badRequest().body("Error processing face image: " + e.getMessage());
+        } catch (FaceImageRejectedException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            response.put("reasons", e.getQuality().getReasons());
+            response.put("quality", e.getQuality());
+            return ResponseEntity.badRequest().body(response);
+        } catch (FaceImageProcessingException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Bulk upload: one file per user, named <email>.<ext>; files are checked and stored in parallel
+    @Operation(summary = "Upload face images for many users at once")
+    @PostMapping(value = "/images", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> uploadFaceImages(@RequestParam("faceImages") List<MultipartFile> faceImages) {
+        List<CompletableFuture<Map<String, Object>>> uploads = faceImages.stream()
+                .map(faceImage -> CompletableFuture.supplyAsync(() -> uploadOne(faceImage), bulkUploadExecutor))
+                .collect(Collectors.toList());
+        List<Map<String, Object>> results = uploads.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+        long accepted = results.stream().filter(result -> Boolean.TRUE.equals(result.get("success"))).count();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("accepted", accepted);
+        response.put("rejected", results.size() - accepted);
+        response.put("results", results);
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> uploadOne(MultipartFile faceImage) {
+        String fileName = Objects.requireNonNullElse(faceImage.getOriginalFilename(), "");
+        int dot = fileName.lastIndexOf('.');
+        String email = dot > 0 ? fileName.substring(0, dot) : fileName;
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("file", fileName);
+        result.put("email", email);
+        try {
+            userService.updateFaceImageByEmail(email, faceImage);
+            result.put("success", true);
+        } catch (FaceImageRejectedException e) {
+            result.put("success", false);
+            result.put("reasons", e.getQuality().getReasons());
+            result.put("quality", e.getQuality());
+        } catch (FaceImageProcessingException e) {
+            result.put("success", false);
+            result.put("reasons", List.of(e.getMessage()));
+        } catch (UserNotFoundException e) {
+            result.put("success", false);
+            result.put("reasons", List.of("no user with this email"));
+        } catch (RuntimeException e) {
+            // Anything else, e.g. a database error, fails this file only instead of the whole batch
+            log.warn("Could not store face image {}", fileName, e);
+            result.put("success", false);
+            result.put("reasons", List.of("could not store the photo: " + e.getMessage()));
+        }
+        return result;
+    }
+
+    // Additional enrollment photos of one user; each is checked like /image and all of them are
+    // summarized into the user's match vector
+    @Operation(summary = "Add enrollment photos for a user")
+    @PostMapping(value = "/enrollments", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> addEnrollments(
+            @RequestParam String email,
+            @RequestParam("faceImages") List<MultipartFile> faceImages) {
+        try {
+            List<Map<String, Object>> results = userService.addEnrollmentImages(email, faceImages);
+            long accepted = results.stream().filter(result -> Boolean.TRUE.equals(result.get("success"))).count();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("accepted", accepted);
+            response.put("rejected", results.size() - accepted);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (UserNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(summary = "List a user's enrollment photos")
+    @GetMapping("/enrollments")
+    public ResponseEntity<List<FaceEnrollmentDto>> getEnrollments(@RequestParam String email) {
+        try {
+            return ResponseEntity.ok(userService.getEnrollments(email));
+        } catch (UserNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(summary = "Delete one enrollment photo")
+    @DeleteMapping("/enrollments/{id}")
+    public ResponseEntity<?> deleteEnrollment(@PathVariable Long id, @RequestParam String email) {
+        try {
+            if (userService.deleteEnrollment(email, id)) {
+                return ResponseEntity.ok("Enrollment photo deleted successfully");
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No enrollment photo " + id + " for " + email);
+        } catch (UserNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (FaceImageProcessingException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
@@ -128,9 +260,7 @@ public class UserController {
     @Operation(summary = "Delete user by email")
     @DeleteMapping("/user")
     public ResponseEntity<?> deleteUser(@RequestParam("email") String email) {
-        Optional<User> user = userRepository.findByEmail(email);
-        if (user.isPresent()) {
-            userRepository.delete(user.get());
+        if (userService.deleteUser(email)) {
             return ResponseEntity.ok("User deleted successfully");
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
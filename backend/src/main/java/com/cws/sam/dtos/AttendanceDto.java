@@ -0,0 +1,21 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceDto {
+
+    private Long id;
+    private LocalDate date;
+    private LocalDateTime inTime;
+    private LocalDateTime outTime;
+    private String status;
+
+}
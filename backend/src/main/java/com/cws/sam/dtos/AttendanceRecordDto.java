@@ -0,0 +1,23 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Flat attendance row used for range exports, read from the database or from archive files
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceRecordDto {
+
+    private Long id;
+    private Long userId;
+    private LocalDate date;
+    private LocalDateTime inTime;
+    private LocalDateTime outTime;
+    private String status;
+
+}
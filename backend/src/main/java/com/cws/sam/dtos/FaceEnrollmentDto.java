@@ -0,0 +1,23 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One enrollment photo as listed by GET /enrollments, without the image itself
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceEnrollmentDto {
+
+    private Long id;
+    private boolean primary;
+    // pending (not embedded yet), encoded or no-face
+    private String status;
+    private boolean outlier;
+    // Face distance to the user's current centroid, null while pending
+    private Double distance;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,25 @@
+package com.cws.sam.dtos;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Result of the upload-time quality check; reasons is empty when the image is accepted
+@Data
+public class FaceImageQualityDto {
+
+    private int width;
+    private int height;
+    // Variance of the Laplacian of the grey image; low means blurry
+    private double sharpness;
+    // Mean grey level, 0-255
+    private double brightness;
+    // Share of pixels that are nearly black or nearly white
+    private double clipped;
+    private List<String> reasons = new ArrayList<>();
+
+    public boolean isAccepted() {
+        return reasons.isEmpty();
+    }
+}
@@ -0,0 +1,44 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.StringJoiner;
+
+// Which users a recognition session matches against; unset fields are not filtered on
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GalleryScope {
+
+    public static final GalleryScope ALL = new GalleryScope(null, null, null);
+
+    private String className;
+    private String site;
+    private String shift;
+
+    public static GalleryScope of(String className, String site, String shift) {
+        return new GalleryScope(blankToNull(className), blankToNull(site), blankToNull(shift));
+    }
+
+    public boolean isAll() {
+        return className == null && site == null && shift == null;
+    }
+
+    // Short label for logs and meter tags, e.g. "class=CS101,site=main"
+    public String label() {
+        if (isAll()) {
+            return "all";
+        }
+        StringJoiner label = new StringJoiner(",");
+        if (className != null) label.add("class=" + className);
+        if (site != null) label.add("site=" + site);
+        if (shift != null) label.add("shift=" + shift);
+        return label.toString();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,20 @@
+package com.cws.sam.dtos;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportResultDto {
+
+    private String file;
+    private long resumedFromLine;
+    private long linesRead;
+    private long imported;
+    private long rejected;
+    private long elapsedMs;
+    // First rejected lines only, to keep the response small on bad files
+    private List<String> errors = new ArrayList<>();
+
+}
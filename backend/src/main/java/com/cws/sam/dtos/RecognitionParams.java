@@ -0,0 +1,81 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Worker throughput knobs for one recognition session. A null field means "unchanged" in an update
+// and "not set" in request overrides; a resolved set (profile plus overrides) has every field.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecognitionParams {
+
+    // Run detection on every n-th camera frame
+    private Integer frameSkip;
+    // Frames are scaled by this factor before detection; smaller is faster and misses small faces
+    private Double downscale;
+    // face_recognition detector: hog (CPU) or cnn (accurate, needs a GPU to be fast)
+    private String model;
+    // Maximum face distance for a match; lower is stricter
+    private Double tolerance;
+    // Upper bound on processed frames per second, 0 for no limit
+    private Double maxFps;
+
+    // These values with every non-null field of changes applied on top
+    public RecognitionParams overlay(RecognitionParams changes) {
+        if (changes == null) {
+            return new RecognitionParams(frameSkip, downscale, model, tolerance, maxFps);
+        }
+        return new RecognitionParams(
+                Objects.requireNonNullElse(changes.frameSkip, frameSkip),
+                Objects.requireNonNullElse(changes.downscale, downscale),
+                Objects.requireNonNullElse(changes.model, model),
+                Objects.requireNonNullElse(changes.tolerance, tolerance),
+                Objects.requireNonNullElse(changes.maxFps, maxFps));
+    }
+
+    // Empty when every field is set and in range
+    public List<String> validate() {
+        List<String> errors = new ArrayList<>();
+        if (frameSkip == null || frameSkip < 1 || frameSkip > 30) {
+            errors.add("frameSkip must be between 1 and 30");
+        }
+        if (downscale == null || downscale <= 0 || downscale > 1) {
+            errors.add("downscale must be greater than 0 and at most 1");
+        }
+        if (model == null || !(model.equals("hog") || model.equals("cnn"))) {
+            errors.add("model must be hog or cnn");
+        }
+        if (tolerance == null || tolerance <= 0 || tolerance > 1) {
+            errors.add("tolerance must be greater than 0 and at most 1");
+        }
+        if (maxFps == null || maxFps < 0) {
+            errors.add("maxFps must be 0 (no limit) or more");
+        }
+        return errors;
+    }
+
+    // Command-line arguments of attendance_camera.py
+    public List<String> toArgs() {
+        return List.of("--frame_skip=" + frameSkip, "--downscale=" + downscale, "--model=" + model,
+                "--tolerance=" + tolerance, "--max_fps=" + maxFps);
+    }
+
+    // Same keys as the command-line arguments, for the control line written to the worker's stdin
+    public Map<String, Object> toWorkerFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("frame_skip", frameSkip);
+        fields.put("downscale", downscale);
+        fields.put("model", model);
+        fields.put("tolerance", tolerance);
+        fields.put("max_fps", maxFps);
+        return fields;
+    }
+}
@@ -0,0 +1,21 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// What /start-recognition reports back: the session, its gallery and how long starting it took
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecognitionSessionDto {
+
+    private String session;
+    private String scope;
+    private int galleryFaces;
+    private long galleryMs;
+    private long startMs;
+    private RecognitionParams params;
+    // WebSocket path for the camera frames of a browser-fed session, null when the worker uses a local camera
+    private String frames;
+}
@@ -0,0 +1,17 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDetailDto {
+
+    private UserResponseDto user;
+    private List<AttendanceDto> recentAttendance;
+
+}
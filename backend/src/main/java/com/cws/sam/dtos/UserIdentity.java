@@ -0,0 +1,20 @@
+package com.cws.sam.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+// Who a user is, for authentication and marking; cached, so it never carries the face image
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "password")
+public class UserIdentity {
+
+    private Long id;
+    private String username;
+    private String email;
+    private String password;
+    private String role;
+}
@@ -21,4 +21,13 @@ public class UserRequestDto {
     @Schema(description = "Role", example = "STUDENT")
     private String role;
 
+    @Schema(description = "Class or course group", example = "CS101")
+    private String className;
+
+    @Schema(description = "Site or campus", example = "main")
+    private String site;
+
+    @Schema(description = "Shift", example = "morning")
+    private String shift;
+
 }
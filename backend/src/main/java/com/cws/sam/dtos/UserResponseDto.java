@@ -0,0 +1,28 @@
+package com.cws.sam.dtos;
+
+import com.cws.sam.models.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Read model for users; never carries the password hash or the face image bytes
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserResponseDto {
+
+    private Long id;
+    private String username;
+    private String email;
+    private String role;
+    private String className;
+    private String site;
+    private String shift;
+    private boolean hasFaceImage;
+
+    public static UserResponseDto from(User user) {
+        return new UserResponseDto(user.getId(), user.getUsername(), user.getEmail(), user.getRole(),
+                user.getClassName(), user.getSite(), user.getShift(),
+                user.getFaceImage() != null && user.getFaceImage().length > 0);
+    }
+}
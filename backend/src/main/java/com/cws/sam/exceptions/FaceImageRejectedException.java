@@ -0,0 +1,17 @@
+package com.cws.sam.exceptions;
+
+import com.cws.sam.dtos.FaceImageQualityDto;
+
+public class FaceImageRejectedException extends FaceImageProcessingException {
+
+    private final FaceImageQualityDto quality;
+
+    public FaceImageRejectedException(FaceImageQualityDto quality) {
+        super("Face image rejected: " + String.join("; ", quality.getReasons()));
+        this.quality = quality;
+    }
+
+    public FaceImageQualityDto getQuality() {
+        return quality;
+    }
+}
@@ -2,30 +2,43 @@ package com.cws.sam.models;
 
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
-@Data
+@Getter
+@Setter
+@ToString(exclude = "user")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "attendance")
+// (user_id, date) is unique: at most one record per user per day, merged by imports and marks
+@Table(name = "attendance",
+        uniqueConstraints = @UniqueConstraint(name = "uk_attendance_user_date", columnNames = {"user_id", "date"}))
 public class Attendance {
 
     @Id
+    @EqualsAndHashCode.Include
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // MySQL does not allow foreign keys on a partitioned table; AttendancePartitionService drops this one
+    // when it partitions the table, everywhere else it stays
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
+    // Partition key, see AttendancePartitionService
+    @Column(nullable = false)
     private LocalDate date;
     private LocalDateTime inTime;
     private LocalDateTime outTime;
-    private String status; // Present, Half Day, Absent
+    private String status; // Present, Late, Half Day (see AttendancePolicyEvaluator)
 
 }
@@ -0,0 +1,58 @@
+package com.cws.sam.models;
+
+import com.cws.sam.config.AttendancePolicyProperties;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.SourceType;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// A rule changed through PUT /policy/{role}; overrides attendance.policy for that role on every node
+// (AttendancePolicyService). The role is stored normalized, "DEFAULT" for the fallback rule.
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Table(name = "attendance_policies")
+public class AttendancePolicy {
+
+    @Id
+    private String role;
+
+    @Column(nullable = false)
+    private LocalTime shiftStart;
+    @Column(nullable = false)
+    private LocalTime shiftEnd;
+    private int gracePeriodMinutes;
+    private int halfDayThresholdMinutes;
+    private int minGapMinutes;
+
+    // Database time, so nodes polling for changes compare one clock
+    @UpdateTimestamp(source = SourceType.DB)
+    private LocalDateTime updatedAt;
+
+    public AttendancePolicy(String role, AttendancePolicyProperties.Rule rule) {
+        this.role = role;
+        this.shiftStart = rule.getShiftStart();
+        this.shiftEnd = rule.getShiftEnd();
+        this.gracePeriodMinutes = rule.getGracePeriodMinutes();
+        this.halfDayThresholdMinutes = rule.getHalfDayThresholdMinutes();
+        this.minGapMinutes = rule.getMinGapMinutes();
+    }
+
+    public AttendancePolicyProperties.Rule toRule() {
+        AttendancePolicyProperties.Rule rule = new AttendancePolicyProperties.Rule();
+        rule.setShiftStart(shiftStart);
+        rule.setShiftEnd(shiftEnd);
+        rule.setGracePeriodMinutes(gracePeriodMinutes);
+        rule.setHalfDayThresholdMinutes(halfDayThresholdMinutes);
+        rule.setMinGapMinutes(minGapMinutes);
+        return rule;
+    }
+}
@@ -0,0 +1,65 @@
+package com.cws.sam.models;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+// One enrollment photo of a user. Each is embedded once; the user's match vector (User.faceEncoding) is the
+// robust centroid of all of them, and photos far from it form the few extra vectors in User.faceOutliers.
+// The primary photo is the one in User.faceImage, copied here once a user has more than one.
+@Entity
+@Getter
+@Setter
+@ToString(exclude = {"user", "image", "encoding"})
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Table(name = "face_enrollments", indexes = @Index(name = "idx_face_enrollments_user", columnList = "user_id"))
+@NoArgsConstructor
+public class FaceEnrollment {
+
+    @Id
+    @EqualsAndHashCode.Include
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Lob
+    @Column(columnDefinition = "LONGBLOB")
+    private byte[] image;
+
+    // Bumped with every new image, so an embedding computed from an older image is not stored for it
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long imageVersion;
+
+    // Little-endian float32 embedding of image; null until encoded, empty if no face was found
+    @Column(length = 2048)
+    private byte[] encoding;
+
+    private boolean primaryImage;
+
+    // Too far from the centroid to be part of it; set each time the centroid is computed
+    private boolean outlier;
+
+    private LocalDateTime createdAt;
+
+    public FaceEnrollment(User user, byte[] image, boolean primaryImage) {
+        this.user = user;
+        this.image = image;
+        this.primaryImage = primaryImage;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public void setImage(byte[] image) {
+        this.image = image;
+        this.imageVersion++;
+    }
+}
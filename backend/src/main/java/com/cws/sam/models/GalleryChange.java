@@ -0,0 +1,37 @@
+package com.cws.sam.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SourceType;
+
+import java.time.LocalDateTime;
+
+// One entry of the gallery change log: the user's face, enrollment photos or username changed, or the user
+// was deleted. The id is the gallery version devices sync from (GallerySyncService); what changed is read
+// from the user row at sync time, so several changes of one user collapse into one.
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Table(name = "gallery_changes", indexes = @Index(name = "idx_gallery_changes_created", columnList = "created_at"))
+public class GalleryChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+
+    // Database time, like the settle check it is compared with, so application nodes' clocks do not matter
+    @CreationTimestamp(source = SourceType.DB)
+    private LocalDateTime createdAt;
+
+    public GalleryChange(Long userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,39 @@
+package com.cws.sam.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SourceType;
+
+import java.time.LocalDateTime;
+
+// One entry of the identity change log: a user was updated or deleted. Every node polls it and evicts the
+// cached identity under the email and the username from before the change (UserIdentityService).
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Table(name = "identity_changes", indexes = @Index(name = "idx_identity_changes_created", columnList = "created_at"))
+public class IdentityChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String email;
+
+    private String username;
+
+    // Database time, so the poll window does not depend on application nodes' clocks
+    @CreationTimestamp(source = SourceType.DB)
+    private LocalDateTime createdAt;
+
+    public IdentityChange(String email, String username) {
+        this.email = email;
+        this.username = username;
+    }
+}
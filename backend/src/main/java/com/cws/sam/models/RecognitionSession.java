@@ -0,0 +1,39 @@
+package com.cws.sam.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// One row per running recognition worker across the cluster. The owning node renews the lease on every
+// heartbeat; a row whose lease ran out belongs to a node that died and is removed by whichever node sees it.
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "recognition_sessions", indexes = {
+        @Index(name = "idx_sessions_node", columnList = "node_id"),
+        @Index(name = "idx_sessions_lease", columnList = "lease_expires_at")
+})
+public class RecognitionSession {
+
+    @Id
+    private String id; // session id handed to the worker
+    private String email;
+    private String nodeId;
+    private LocalDateTime startedAt;
+    private LocalDateTime leaseExpiresAt;
+    // Set by any node to ask the owner to stop this worker on its next heartbeat
+    private boolean stopRequested;
+    // Current worker parameters as JSON (RecognitionParams)
+    @Column(length = 512)
+    private String params;
+    // Set by a node other than the owner after changing params; the owner passes them to the worker
+    private boolean paramsChanged;
+}
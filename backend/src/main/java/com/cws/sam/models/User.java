@@ -1,19 +1,31 @@
 package com.cws.sam.models;
 
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
-import org.springframework.web.multipart.MultipartFile;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.List;
 
+// No @Data: generated equals/hashCode/toString would walk the lazy attendances collection and the image
 @Entity
-@Data
-@Table(name = "users")
+@Getter
+@Setter
+@ToString(exclude = {"password", "faceImage", "faceEncoding", "faceOutliers", "attendances"})
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_class", columnList = "class_name"),
+        @Index(name = "idx_users_site", columnList = "site"),
+        @Index(name = "idx_users_shift", columnList = "shift")
+})
 @NoArgsConstructor
 public class User {
 
     @Id
+    @EqualsAndHashCode.Include
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String username;
@@ -21,10 +33,34 @@ public class User {
     private String email;
     private String role; // ROLE_ADMIN, ROLE_STAFF, ROLE_STUDENT
 
+    // Groups a recognition session can be scoped to; null means the user belongs to no such group
+    private String className;
+    private String site;
+    private String shift;
+
     @Lob
     @Column(columnDefinition = "LONGBLOB") // Optional: for MySQL
     private byte[] faceImage;
 
+    // Bumped with every new faceImage, so an embedding computed from an older image is not stored for it
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long faceImageVersion;
+
+    // Little-endian float32 match vector: the embedding of faceImage, or with several enrollment photos
+    // (FaceEnrollment) their robust centroid. Null until computed, empty if no face was found.
+    @Column(length = 2048)
+    private byte[] faceEncoding;
+
+    // Extra match vectors, back to back, for enrollment photos far from the centroid; null or empty if none
+    @Column(length = 8192)
+    private byte[] faceOutliers;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     private List<Attendance> attendances;
+
+    public void setFaceImage(byte[] faceImage) {
+        this.faceImage = faceImage;
+        this.faceImageVersion++;
+    }
 }
@@ -1,5 +1,6 @@
 package com.cws.sam.models;
 
+import com.cws.sam.dtos.UserIdentity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,15 +10,21 @@ import java.util.Collections;
 
 public class UserPrincipal implements UserDetails {
 
-    private User user;
+    private UserIdentity user;
 
-    public UserPrincipal(User user) {
+    public UserPrincipal(UserIdentity user) {
         this.user = user;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.singleton(new SimpleGrantedAuthority("ROLE_"+user.getRole()));
+        return Collections.singleton(new SimpleGrantedAuthority(authority(user.getRole())));
+    }
+
+    // Roles are stored both as "ADMIN" and as "ROLE_ADMIN"; either becomes the authority ROLE_ADMIN
+    public static String authority(String role) {
+        String upper = role == null ? "" : role.trim().toUpperCase();
+        return upper.startsWith("ROLE_") ? upper : "ROLE_" + upper;
     }
 
     @Override
@@ -0,0 +1,24 @@
+package com.cws.sam.repositories;
+
+import com.cws.sam.models.AttendancePolicy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AttendancePolicyRepository extends JpaRepository<AttendancePolicy, String> {
+
+    // Read-write transactions so the reads go to the primary and see a change another node just made
+
+    @Transactional
+    @Query("select p from AttendancePolicy p")
+    List<AttendancePolicy> findAllPolicies();
+
+    @Transactional
+    @Query("select max(p.updatedAt) from AttendancePolicy p")
+    LocalDateTime findLastChange();
+}
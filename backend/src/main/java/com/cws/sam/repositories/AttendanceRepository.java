@@ -1,10 +1,19 @@
 package com.cws.sam.repositories;
 
+import com.cws.sam.dtos.AttendanceDto;
+import com.cws.sam.dtos.AttendanceRecordDto;
 import com.cws.sam.models.Attendance;
 import com.cws.sam.models.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,8 +21,66 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
 
     Optional<Attendance> findByUserAndDate(User user, LocalDate date);
     List<Attendance> findByUser(User user);
+    // Report reads: read-only so they go to the replica when one is configured
+    @Transactional(readOnly = true)
     List<Attendance> findByUserAndDateBetween(User user, LocalDate startDate, LocalDate endDate);
+    @Transactional(readOnly = true)
     List<Attendance> findByDate(LocalDate date);
 
     Optional<Attendance> findByUserUsernameAndDate(String username, LocalDate today);
+
+    // Range reads always bound on date so MySQL prunes to the matching monthly partitions
+    @Query("select new com.cws.sam.dtos.AttendanceRecordDto(a.id, a.user.id, a.date, a.inTime, a.outTime, a.status) " +
+            "from Attendance a where a.date between :from and :to order by a.date, a.id")
+    List<AttendanceRecordDto> findRecordsByDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select new com.cws.sam.dtos.AttendanceRecordDto(a.id, a.user.id, a.date, a.inTime, a.outTime, a.status) " +
+            "from Attendance a where a.id > :afterId order by a.id")
+    List<AttendanceRecordDto> findRecordsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select min(a.date) from Attendance a")
+    Optional<LocalDate> findOldestDate();
+
+    @Transactional
+    @Modifying
+    @Query("delete from Attendance a where a.date between :from and :to")
+    int deleteByDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    Optional<Attendance> findByUserIdAndDate(Long userId, LocalDate date);
+
+    @Query("select new com.cws.sam.dtos.AttendanceDto(a.id, a.date, a.inTime, a.outTime, a.status) " +
+            "from Attendance a where a.user.id = :userId and a.date >= :since order by a.date desc")
+    List<AttendanceDto> findRecentDtosByUserId(@Param("userId") Long userId, @Param("since") LocalDate since);
+
+    // Keyset page of the columns the policy engine needs, without loading entities
+    @Query("select a.id as id, u.role as role, a.inTime as inTime, a.outTime as outTime, a.status as status " +
+            "from Attendance a join a.user u where a.id > :afterId order by a.id")
+    List<StatusRow> findStatusRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset page of new records with their user's role, for the analytics catch-up read
+    @Query("select a.id as id, u.id as userId, u.role as role, a.date as date, a.inTime as inTime, " +
+            "a.outTime as outTime from Attendance a join a.user u where a.id > :afterId order by a.id")
+    List<MarkRow> findMarkRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update Attendance a set a.status = :status where a.id in :ids")
+    int updateStatus(@Param("status") String status, @Param("ids") Collection<Long> ids);
+
+    interface StatusRow {
+        Long getId();
+        String getRole();
+        LocalDateTime getInTime();
+        LocalDateTime getOutTime();
+        String getStatus();
+    }
+
+    interface MarkRow {
+        Long getId();
+        Long getUserId();
+        String getRole();
+        LocalDate getDate();
+        LocalDateTime getInTime();
+        LocalDateTime getOutTime();
+    }
 }
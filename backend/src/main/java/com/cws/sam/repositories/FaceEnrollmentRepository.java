@@ -0,0 +1,65 @@
+package com.cws.sam.repositories;
+
+import com.cws.sam.models.FaceEnrollment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FaceEnrollmentRepository extends JpaRepository<FaceEnrollment, Long> {
+
+    long countByUserId(Long userId);
+
+    Optional<FaceEnrollment> findFirstByUserIdAndPrimaryImageTrue(Long userId);
+
+    // Listing without the images
+    @Query("select e.id as id, e.primaryImage as primaryImage, e.outlier as outlier, e.createdAt as createdAt, " +
+            "e.encoding as encoding from FaceEnrollment e where e.user.id = :userId order by e.id")
+    List<EnrollmentRow> findRowsByUserId(@Param("userId") Long userId);
+
+    @Query("select e.id as id, e.image as image, e.imageVersion as imageVersion from FaceEnrollment e " +
+            "where e.encoding is null order by e.id")
+    List<ImageRow> findImagesToEncode(Pageable page);
+
+    // Users whose match vector has to be recomputed from their enrollments, once none of them is pending;
+    // a photo uploaded after encodeEnrollments waits for the next build instead of being left out
+    @Query("select distinct e.user.id from FaceEnrollment e where e.user.faceEncoding is null " +
+            "and not exists (select p.id from FaceEnrollment p where p.user = e.user and p.encoding is null)")
+    List<Long> findUsersToSummarize(Pageable page);
+
+    @Query("select e.id as id, e.encoding as encoding from FaceEnrollment e " +
+            "where e.user.id = :userId and e.encoding is not null order by e.id")
+    List<EncodingRow> findEncodingsByUserId(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from FaceEnrollment e where e.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    interface EnrollmentRow {
+        Long getId();
+        boolean isPrimaryImage();
+        boolean isOutlier();
+        LocalDateTime getCreatedAt();
+        byte[] getEncoding();
+    }
+
+    interface ImageRow {
+        Long getId();
+        byte[] getImage();
+        long getImageVersion();
+    }
+
+    interface EncodingRow {
+        Long getId();
+        byte[] getEncoding();
+    }
+}
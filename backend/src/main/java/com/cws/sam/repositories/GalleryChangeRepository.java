@@ -0,0 +1,45 @@
+package com.cws.sam.repositories;
+
+import com.cws.sam.models.GalleryChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface GalleryChangeRepository extends JpaRepository<GalleryChange, Long> {
+
+    @Query("select max(c.id) from GalleryChange c")
+    Long findLatestVersion();
+
+    @Query("select max(c.id) from GalleryChange c where c.createdAt < :before")
+    Long findLatestVersionBefore(@Param("before") LocalDateTime before);
+
+    @Query("select min(c.id) from GalleryChange c")
+    Long findOldestVersion();
+
+    @Query("select c.id as id, c.userId as userId, c.createdAt as createdAt from GalleryChange c " +
+            "where c.id > :since order by c.id")
+    List<ChangeRow> findChangesSince(@Param("since") long since, Pageable page);
+
+    // The clock gallery change timestamps are taken from
+    @Query(value = "SELECT LOCALTIMESTAMP", nativeQuery = true)
+    LocalDateTime findDatabaseTime();
+
+    @Transactional
+    @Modifying
+    @Query("delete from GalleryChange c where c.createdAt < :before and c.id < :keep")
+    int deleteOlderThan(@Param("before") LocalDateTime before, @Param("keep") long keep);
+
+    interface ChangeRow {
+        Long getId();
+        Long getUserId();
+        LocalDateTime getCreatedAt();
+    }
+}
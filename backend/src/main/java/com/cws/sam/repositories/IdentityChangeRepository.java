@@ -0,0 +1,30 @@
+package com.cws.sam.repositories;
+
+import com.cws.sam.models.IdentityChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface IdentityChangeRepository extends JpaRepository<IdentityChange, Long> {
+
+    // Read-write so the poll reads the primary: a lagging replica would hold back evictions
+    @Transactional
+    @Query("select c from IdentityChange c where c.createdAt >= :since order by c.id")
+    List<IdentityChange> findChangesSince(@Param("since") LocalDateTime since);
+
+    @Transactional
+    @Query(value = "SELECT LOCALTIMESTAMP", nativeQuery = true)
+    LocalDateTime findDatabaseTime();
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdentityChange c where c.createdAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,87 @@
+package com.cws.sam.repositories;
+
+import com.cws.sam.models.RecognitionSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecognitionSessionRepository extends JpaRepository<RecognitionSession, String> {
+
+    // Nodes coordinate through these rows, so the reads are read-write transactions: a read-only one
+    // would go to the replica and miss a stop or params change that was just written
+
+    @Transactional
+    @Query("select s from RecognitionSession s where s.id = :id")
+    Optional<RecognitionSession> findSession(@Param("id") String id);
+
+    @Transactional
+    @Query("select s from RecognitionSession s where s.leaseExpiresAt > :now order by s.startedAt")
+    List<RecognitionSession> findLive(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Query("select s.id from RecognitionSession s where s.nodeId = :node and s.stopRequested = true")
+    List<String> findStopRequests(@Param("node") String nodeId);
+
+    @Transactional
+    @Query("select s from RecognitionSession s where s.nodeId = :node and s.paramsChanged = true")
+    List<RecognitionSession> findParamChanges(@Param("node") String nodeId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RecognitionSession s where s.id = :id")
+    int deleteSession(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("update RecognitionSession s set s.params = :params, s.paramsChanged = :changed where s.id = :id")
+    int updateParams(@Param("id") String id, @Param("params") String params, @Param("changed") boolean changed);
+
+    // Only clears the flag if nobody changed the params again in the meantime
+    @Transactional
+    @Modifying
+    @Query("update RecognitionSession s set s.paramsChanged = false where s.id = :id and s.params = :params")
+    int clearParamsChanged(@Param("id") String id, @Param("params") String params);
+
+    @Transactional
+    @Modifying
+    @Query("update RecognitionSession s set s.leaseExpiresAt = :expires where s.nodeId = :node and s.id in :ids")
+    int renew(@Param("node") String nodeId, @Param("ids") Collection<String> ids,
+              @Param("expires") LocalDateTime expires);
+
+    @Transactional
+    @Modifying
+    @Query("update RecognitionSession s set s.stopRequested = true where s.nodeId <> :node")
+    int requestStopOnOtherNodes(@Param("node") String nodeId);
+
+    @Transactional
+    @Modifying
+    @Query("update RecognitionSession s set s.stopRequested = true where s.email = :email and s.nodeId <> :node")
+    int requestStopOnOtherNodes(@Param("node") String nodeId, @Param("email") String email);
+
+    // Rows this node owns but no longer runs, e.g. left over from before a restart.
+    // Only rows older than the caller's view of its sessions, so a session registered meanwhile survives.
+    @Transactional
+    @Modifying
+    @Query("delete from RecognitionSession s where s.nodeId = :node and s.id not in :ids and s.startedAt < :before")
+    int deleteOrphans(@Param("node") String nodeId, @Param("ids") Collection<String> ids,
+                      @Param("before") LocalDateTime before);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RecognitionSession s where s.nodeId = :node and s.startedAt < :before")
+    int deleteOrphans(@Param("node") String nodeId, @Param("before") LocalDateTime before);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RecognitionSession s where s.leaseExpiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,9 +1,17 @@
 package com.cws.sam.repositories;
 
+import com.cws.sam.dtos.UserIdentity;
+import com.cws.sam.dtos.UserResponseDto;
 import com.cws.sam.models.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +20,91 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
+
+    // Read models are built in the query so the face image column is never selected
+    @Query("select new com.cws.sam.dtos.UserResponseDto(u.id, u.username, u.email, u.role, " +
+            "u.className, u.site, u.shift, case when u.faceImage is null then false else true end) from User u order by u.id")
+    List<UserResponseDto> findAllUserDtos();
+
+    @Query("select new com.cws.sam.dtos.UserResponseDto(u.id, u.username, u.email, u.role, " +
+            "u.className, u.site, u.shift, case when u.faceImage is null then false else true end) from User u where u.email = :email")
+    Optional<UserResponseDto> findUserDtoByEmail(@Param("email") String email);
+
+    @Query("select new com.cws.sam.dtos.UserIdentity(u.id, u.username, u.email, u.password, u.role) " +
+            "from User u where u.email = :email")
+    Optional<UserIdentity> findIdentityByEmail(@Param("email") String email);
+
+    @Query("select new com.cws.sam.dtos.UserIdentity(u.id, u.username, u.email, u.password, u.role) " +
+            "from User u where u.username = :username")
+    Optional<UserIdentity> findIdentityByUsername(@Param("username") String username);
+
+    // Users who marked attendance recently, used to prefill the identity caches at startup
+    @Query("select new com.cws.sam.dtos.UserIdentity(u.id, u.username, u.email, u.password, u.role) " +
+            "from User u where exists (select a.id from Attendance a where a.user = u and a.date >= :since)")
+    List<UserIdentity> findRecentlyActiveIdentities(@Param("since") LocalDate since, Pageable page);
+
+    boolean existsByEmail(String email);
+
+    // Only the columns the recognition worker needs; a null scope field matches every user
+    @Query("select u.username as username, u.faceImage as faceImage from User u where u.faceImage is not null " +
+            "and (:className is null or u.className = :className) " +
+            "and (:site is null or u.site = :site) " +
+            "and (:shift is null or u.shift = :shift)")
+    List<FaceRow> findFacesInScope(@Param("className") String className, @Param("site") String site,
+                                   @Param("shift") String shift);
+
+    // Single-photo users; users with enrollment photos get their match vector from FaceEnrollmentRepository
+    @Query("select u.id as id, u.faceImage as faceImage, u.faceImageVersion as faceImageVersion from User u " +
+            "where u.faceImage is not null and u.faceEncoding is null " +
+            "and not exists (select e.id from FaceEnrollment e where e.user = u) order by u.id")
+    List<FaceImageRow> findFacesToEncode(Pageable page);
+
+    @Query("select u.id as id, u.username as username, u.faceEncoding as faceEncoding, " +
+            "u.faceOutliers as faceOutliers from User u where u.faceEncoding is not null order by u.id")
+    List<EncodingRow> findAllEncodings();
+
+    @Query("select u.id as id, u.username as username, u.faceEncoding as faceEncoding, " +
+            "u.faceOutliers as faceOutliers from User u where u.id in :ids")
+    List<EncodingRow> findEncodingsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select u.username from User u where u.faceEncoding is not null " +
+            "and (:className is null or u.className = :className) " +
+            "and (:site is null or u.site = :site) " +
+            "and (:shift is null or u.shift = :shift)")
+    List<String> findEncodedUsernamesInScope(@Param("className") String className, @Param("site") String site,
+                                             @Param("shift") String shift);
+
+    @Query("select u.id as id, u.username as username from User u")
+    List<UsernameRow> findAllUsernames();
+
+    @Query("select u.id as id, u.role as role from User u")
+    List<RoleRow> findAllRoles();
+
+    interface UsernameRow {
+        Long getId();
+        String getUsername();
+    }
+
+    interface FaceRow {
+        String getUsername();
+        byte[] getFaceImage();
+    }
+
+    interface FaceImageRow {
+        Long getId();
+        byte[] getFaceImage();
+        long getFaceImageVersion();
+    }
+
+    interface EncodingRow {
+        Long getId();
+        String getUsername();
+        byte[] getFaceEncoding();
+        byte[] getFaceOutliers();
+    }
+
+    interface RoleRow {
+        Long getId();
+        String getRole();
+    }
 }
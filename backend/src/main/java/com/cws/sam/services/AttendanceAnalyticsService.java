@@ -0,0 +1,462 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.AttendanceRecordDto;
+import com.cws.sam.models.Attendance;
+import com.cws.sam.repositories.AttendanceRepository;
+import com.cws.sam.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+// Columnar in-memory copy of the attendance table and the attendance archive for reports.
+// One primitive array per column, row i across all arrays is one attendance record.
+// Rebuilt periodically from the archive and the database and appended to on every committed mark in between.
+// Before answering, a report also reads records added since the last load (keyset on id), so marks taken on
+// other nodes count at once; records changed in place on other nodes, or committed out of id order, only
+// show after the next rebuild.
+// Writers serialize on a short append lock; reports read the published columns without locking.
+@Slf4j
+@Service
+public class AttendanceAnalyticsService {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final int NO_TIME = -1;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AttendancePolicyService attendancePolicyService;
+
+    @Autowired
+    private AttendanceArchiveService attendanceArchiveService;
+
+    // Serializes writers: marks and the rebuild swap
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Guards the rebuild; a monitor here would pin virtual threads for the whole load query
+    private final ReentrantLock buildLock = new ReentrantLock();
+    // One catch-up read of new database records at a time
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Columns columns = new Columns(16);
+    // Marks applied while a rebuild scans, replayed into its columns before they are swapped in;
+    // non-null only during a rebuild. Guarded by appendLock.
+    private List<Mark> replay;
+    private volatile boolean built;
+    private volatile LocalDateTime builtAt;
+    // Highest attendance id read from the database, by a rebuild or a refresh
+    private final AtomicLong loadedThroughId = new AtomicLong();
+
+    @Scheduled(fixedDelayString = "${attendance.analytics.rebuild-interval-ms:3600000}",
+            initialDelayString = "${attendance.analytics.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        buildLock.lock();
+        try {
+            long start = System.nanoTime();
+            appendLock.lock();
+            try {
+                replay = new ArrayList<>();
+            } finally {
+                appendLock.unlock();
+            }
+
+            Columns loaded;
+            try {
+                loaded = load();
+            } catch (RuntimeException e) {
+                appendLock.lock();
+                try {
+                    replay = null;
+                } finally {
+                    appendLock.unlock();
+                }
+                throw e;
+            }
+
+            appendLock.lock();
+            try {
+                // Marks committed after the scan started may be missing from it; applying one again is harmless
+                replay.forEach(loaded::apply);
+                replay = null;
+                loaded.publish();
+                columns = loaded;
+                loadedThroughId.accumulateAndGet(loaded.maxDatabaseId, Math::max);
+                built = true;
+                builtAt = LocalDateTime.now();
+            } finally {
+                appendLock.unlock();
+            }
+            log.info("Built attendance analytics snapshot with {} rows in {} ms", loaded.rows.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private Columns load() {
+        Columns loaded = new Columns(Math.max(16, (int) attendanceRepository.count()));
+        for (UserRepository.RoleRow row : userRepository.findAllRoles()) {
+            loaded.userRoleCodes.put(row.getId(), loaded.roleCode(row.getRole()));
+        }
+        try {
+            attendanceArchiveService.forEachArchived(record -> loadRecord(loaded, record));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the attendance archive", e);
+        }
+        // After the archive: rows still in the database for an archived month replace their archived copy
+        long afterId = 0L;
+        List<AttendanceRecordDto> page;
+        while (!(page = attendanceRepository.findRecordsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE))).isEmpty()) {
+            for (AttendanceRecordDto record : page) {
+                loadRecord(loaded, record);
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        loaded.maxDatabaseId = afterId;
+        return loaded;
+    }
+
+    private static void loadRecord(Columns loaded, AttendanceRecordDto record) {
+        Byte role = loaded.userRoleCodes.get(record.getUserId());
+        loaded.put(record.getId(), record.getUserId(), (int) record.getDate().toEpochDay(),
+                secondOf(record.getInTime()), secondOf(record.getOutTime()),
+                role != null ? role : loaded.roleCode(null));
+    }
+
+    // Applies records other nodes added since the last load, so reports are not limited to this node's marks
+    private void refresh() {
+        refreshLock.lock();
+        try {
+            long afterId = loadedThroughId.get();
+            List<AttendanceRepository.MarkRow> page;
+            while (!(page = attendanceRepository.findMarkRowsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE))).isEmpty()) {
+                for (AttendanceRepository.MarkRow row : page) {
+                    apply(new Mark(row.getId(), row.getUserId(), row.getRole(), (int) row.getDate().toEpochDay(),
+                            secondOf(row.getInTime()), secondOf(row.getOutTime())));
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            loadedThroughId.accumulateAndGet(afterId, Math::max);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Incremental update from the mark path. Applied once the mark's transaction has committed, so a
+    // rolled-back mark (e.g. the duplicate-key retry) never shows up in reports.
+    public void record(Attendance attendance, String role) {
+        if (attendance.getId() == null) {
+            return;
+        }
+        Mark mark = new Mark(attendance.getId(), attendance.getUser().getId(), role,
+                (int) attendance.getDate().toEpochDay(), secondOf(attendance.getInTime()),
+                secondOf(attendance.getOutTime()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(mark);
+                }
+            });
+        } else {
+            apply(mark);
+        }
+    }
+
+    private void apply(Mark mark) {
+        appendLock.lock();
+        try {
+            if (built) {
+                columns.apply(mark);
+                columns.publish();
+            }
+            if (replay != null) {
+                replay.add(mark);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public Map<String, Object> snapshotInfo() {
+        ensureBuilt();
+        refresh();
+        Columns current = columns;
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("rows", current.rows.size());
+        info.put("users", current.userRoleCodes.size());
+        info.put("builtAt", builtAt != null ? builtAt.toString() : null);
+        return info;
+    }
+
+    // Histogram of minutes late past each role's grace period, in buckets of bucketMinutes
+    public Map<String, Object> lateArrivalHistogram(LocalDate from, LocalDate to, int bucketMinutes, int maxMinutes) {
+        ensureBuilt();
+        refresh();
+        int buckets = maxMinutes / bucketMinutes + 1; // last bucket collects everything beyond maxMinutes
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+
+        Rows view = columns.rows;
+        int size = view.size();
+        int[] days = view.epochDays();
+        int[] ins = view.inSeconds();
+        byte[] roleOf = view.roleCodes();
+        int[] lateAfter = lateAfterSecondByRole(view.roles());
+        long[] counts = IntStream.range(0, size).parallel()
+                .filter(i -> days[i] >= fromDay && days[i] <= toDay)
+                .filter(i -> ins[i] > lateAfter[roleOf[i]])
+                .collect(() -> new long[buckets],
+                        (acc, i) -> acc[Math.min((ins[i] - lateAfter[roleOf[i]]) / 60 / bucketMinutes, buckets - 1)]++,
+                        AttendanceAnalyticsService::addInto);
+
+        List<Map<String, Object>> histogram = new ArrayList<>();
+        for (int b = 0; b < buckets; b++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("fromMinute", b * bucketMinutes);
+            bucket.put("toMinute", b == buckets - 1 ? null : (b + 1) * bucketMinutes);
+            bucket.put("count", counts[b]);
+            histogram.add(bucket);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("lateArrivals", Arrays.stream(counts).sum());
+        result.put("buckets", histogram);
+        return result;
+    }
+
+    // Per role: attended days / (users in role * days with any attendance in the range)
+    public Map<String, Object> attendanceRateByRole(LocalDate from, LocalDate to) {
+        ensureBuilt();
+        refresh();
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+
+        Columns current = columns;
+        Rows view = current.rows;
+        int size = view.size();
+        int[] days = view.epochDays();
+        byte[] roleOf = view.roleCodes();
+        List<String> roles = view.roles();
+        int roleCount = roles.size();
+        // [0, roleCount) records per role, [roleCount, ...) one flag per day in range
+        long[] totals = IntStream.range(0, size).parallel()
+                .filter(i -> days[i] >= fromDay && days[i] <= toDay)
+                .collect(() -> new long[roleCount + (toDay - fromDay + 1)],
+                        (acc, i) -> {
+                            acc[roleOf[i]]++;
+                            acc[roleCount + days[i] - fromDay] = 1;
+                        },
+                        AttendanceAnalyticsService::addInto);
+        long schoolDays = Arrays.stream(totals, roleCount, totals.length).filter(flag -> flag > 0).count();
+
+        long[] usersPerRole = new long[roleCount];
+        // A user added after roles was read has a code beyond it; counted with the next report
+        current.userRoleCodes.values().stream().filter(code -> code < roleCount).forEach(code -> usersPerRole[code]++);
+
+        Map<String, Object> rates = new LinkedHashMap<>();
+        for (int r = 0; r < roleCount; r++) {
+            long expected = usersPerRole[r] * schoolDays;
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("users", usersPerRole[r]);
+            entry.put("attendedDays", totals[r]);
+            entry.put("rate", expected == 0 ? null : (double) totals[r] / expected);
+            rates.put(roles.get(r), entry);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("schoolDays", schoolDays);
+        result.put("roles", rates);
+        return result;
+    }
+
+    // Attendance and late counts per ISO week with the change against the previous week
+    public Map<String, Object> weeklyTrend(LocalDate from, LocalDate to) {
+        ensureBuilt();
+        refresh();
+        int fromWeek = weekOf((int) from.toEpochDay());
+        int weeks = weekOf((int) to.toEpochDay()) - fromWeek + 1;
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+
+        Rows view = columns.rows;
+        int size = view.size();
+        int[] days = view.epochDays();
+        int[] ins = view.inSeconds();
+        byte[] roleOf = view.roleCodes();
+        int[] lateAfter = lateAfterSecondByRole(view.roles());
+        // [0, weeks) attendance per week, [weeks, 2 * weeks) late arrivals per week
+        long[] counts = IntStream.range(0, size).parallel()
+                .filter(i -> days[i] >= fromDay && days[i] <= toDay)
+                .collect(() -> new long[weeks * 2],
+                        (acc, i) -> {
+                            int week = weekOf(days[i]) - fromWeek;
+                            acc[week]++;
+                            if (ins[i] > lateAfter[roleOf[i]]) {
+                                acc[weeks + week]++;
+                            }
+                        },
+                        AttendanceAnalyticsService::addInto);
+
+        List<Map<String, Object>> trend = new ArrayList<>();
+        for (int w = 0; w < weeks; w++) {
+            Map<String, Object> week = new LinkedHashMap<>();
+            week.put("weekStart", LocalDate.ofEpochDay((long) (fromWeek + w) * 7 - 3).toString());
+            week.put("attendance", counts[w]);
+            week.put("late", counts[weeks + w]);
+            week.put("changePercent", w == 0 || counts[w - 1] == 0
+                    ? null
+                    : 100.0 * (counts[w] - counts[w - 1]) / counts[w - 1]);
+            trend.add(week);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("weeks", trend);
+        return result;
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            buildLock.lock();
+            try {
+                if (!built) {
+                    rebuild();
+                }
+            } finally {
+                buildLock.unlock();
+            }
+        }
+    }
+
+    // In seconds of the day, as the policy compares them: an arrival seconds after the grace period is late
+    private int[] lateAfterSecondByRole(List<String> roles) {
+        int[] lateAfter = new int[roles.size()];
+        for (int r = 0; r < lateAfter.length; r++) {
+            lateAfter[r] = attendancePolicyService.policyFor(roles.get(r)).lateAfterSecond();
+        }
+        return lateAfter;
+    }
+
+    // Monday-based week number; epoch day 0 (1970-01-01) was a Thursday
+    private static int weekOf(int epochDay) {
+        return Math.floorDiv(epochDay + 3, 7);
+    }
+
+    private static int secondOf(LocalDateTime time) {
+        return time != null ? time.toLocalTime().toSecondOfDay() : NO_TIME;
+    }
+
+    private static void addInto(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    // A committed mark, captured in the mark's transaction
+    private record Mark(long id, long userId, String role, int epochDay, int inSecond, int outSecond) {
+    }
+
+    // What readers see of a Columns: the arrays and the row count published together, so a reader never pairs
+    // a size with arrays it does not cover. Rows below size are complete and their role codes are in roles.
+    private record Rows(long[] attendanceIds, long[] userIds, int[] epochDays, int[] inSeconds, int[] outSeconds,
+                        byte[] roleCodes, int size, List<String> roles) {
+    }
+
+    // Growable column set. Writers hold appendLock (or own a Columns not yet swapped in) and call publish
+    // after each change; readers only go through rows.
+    private static final class Columns {
+        private long[] attendanceIds;
+        private long[] userIds;
+        private int[] epochDays;
+        private int[] inSeconds;
+        private int[] outSeconds;
+        private byte[] roleCodes;
+        private int size;
+        private List<String> roles = List.of();
+        volatile Rows rows;
+        final Map<Long, Byte> userRoleCodes = new ConcurrentHashMap<>();
+        // Attendance id -> row, so an out mark updates its row in place; writers only
+        final LongIntMap rowIndex;
+        // Highest attendance id the load read from the database
+        long maxDatabaseId;
+
+        Columns(int capacity) {
+            attendanceIds = new long[capacity];
+            userIds = new long[capacity];
+            epochDays = new int[capacity];
+            inSeconds = new int[capacity];
+            outSeconds = new int[capacity];
+            roleCodes = new byte[capacity];
+            rowIndex = new LongIntMap(capacity);
+            publish();
+        }
+
+        // A new holder each time: its volatile write orders every earlier array write before a reader's use
+        void publish() {
+            rows = new Rows(attendanceIds, userIds, epochDays, inSeconds, outSeconds, roleCodes, size, roles);
+        }
+
+        void apply(Mark mark) {
+            Byte role = userRoleCodes.get(mark.userId());
+            if (role == null) {
+                role = roleCode(mark.role());
+                userRoleCodes.put(mark.userId(), role);
+            }
+            put(mark.id(), mark.userId(), mark.epochDay(), mark.inSecond(), mark.outSecond(), role);
+        }
+
+        // Updates the times of a known record in place, appends any other
+        void put(long id, long userId, int epochDay, int inSecond, int outSecond, byte role) {
+            int row = rowIndex.get(id);
+            if (row >= 0) {
+                inSeconds[row] = inSecond;
+                outSeconds[row] = outSecond;
+                return;
+            }
+            row = size;
+            if (row == attendanceIds.length) {
+                int grown = row + (row >> 1) + 16;
+                attendanceIds = Arrays.copyOf(attendanceIds, grown);
+                userIds = Arrays.copyOf(userIds, grown);
+                epochDays = Arrays.copyOf(epochDays, grown);
+                inSeconds = Arrays.copyOf(inSeconds, grown);
+                outSeconds = Arrays.copyOf(outSeconds, grown);
+                roleCodes = Arrays.copyOf(roleCodes, grown);
+            }
+            attendanceIds[row] = id;
+            userIds[row] = userId;
+            epochDays[row] = epochDay;
+            inSeconds[row] = inSecond;
+            outSeconds[row] = outSecond;
+            roleCodes[row] = role;
+            rowIndex.put(id, row);
+            size = row + 1;
+        }
+
+        byte roleCode(String role) {
+            String name = role != null ? role : "UNKNOWN";
+            int code = roles.indexOf(name);
+            if (code < 0) {
+                List<String> grown = new ArrayList<>(roles);
+                grown.add(name);
+                roles = List.copyOf(grown);
+                code = grown.size() - 1;
+            }
+            return (byte) code;
+        }
+    }
+}
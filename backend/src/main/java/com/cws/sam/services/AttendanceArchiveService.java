@@ -0,0 +1,281 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.AttendanceRecordDto;
+import com.cws.sam.repositories.AttendanceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Moves closed months out of the attendance table into one gzip-compressed columnar file per month.
+// File layout: magic, format version, row count, then each column stored contiguously
+// (ids, user ids, epoch days, in/out epoch seconds, status codes) followed by the status dictionary.
+@Slf4j
+@Service
+public class AttendanceArchiveService {
+
+    private static final int MAGIC = 0x53414D41; // "SAMA"
+    private static final int FORMAT_VERSION = 1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private AttendancePartitionService attendancePartitionService;
+
+    @Value("${attendance.archive.dir:attendance_archive}")
+    private String archiveDir;
+
+    @Value("${attendance.archive.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${attendance.archive.enabled:false}")
+    private boolean enabled;
+
+    // Archiving a month and rewriting statuses both replace whole files
+    private final ReentrantLock fileLock = new ReentrantLock();
+
+    // Archives every month older than the retention window that still has rows in the database
+    @Scheduled(cron = "${attendance.archive.cron:0 30 2 1 * *}")
+    public void archiveClosedMonths() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        attendanceRepository.findOldestDate().ifPresent(oldest -> {
+            for (YearMonth month = YearMonth.from(oldest); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                try {
+                    archiveMonth(month);
+                } catch (IOException e) {
+                    // Leave the rows in place; the next run retries this month
+                    log.error("Failed to archive attendance for {}", month, e);
+                    return;
+                }
+            }
+        });
+    }
+
+    public int archiveMonth(YearMonth month) throws IOException {
+        fileLock.lock();
+        try {
+            return archiveMonthLocked(month);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private int archiveMonthLocked(YearMonth month) throws IOException {
+        List<AttendanceRecordDto> records = attendanceRepository.findRecordsByDateBetween(
+                month.atDay(1), month.atEndOfMonth());
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        Path target = archiveFile(month);
+        if (Files.exists(target)) {
+            // A previous run wrote the file but did not get to remove the rows; keep both sets
+            records = merge(readFile(target), records);
+        }
+        writeFile(target, records);
+
+        if (!attendancePartitionService.dropMonth(month)) {
+            attendanceRepository.deleteByDateBetween(month.atDay(1), month.atEndOfMonth());
+        }
+        log.info("Archived {} attendance records for {} to {}", records.size(), month, target);
+        return records.size();
+    }
+
+    // Rewrites the status of archived records, e.g. after a policy change; returns the number changed
+    public int reevaluate(Function<AttendanceRecordDto, String> statusOf) throws IOException {
+        Path dir = Paths.get(archiveDir);
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        fileLock.lock();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "attendance-*.col.gz")) {
+            int changed = 0;
+            for (Path file : files) {
+                List<AttendanceRecordDto> records = readFile(file);
+                int changedInFile = 0;
+                for (AttendanceRecordDto record : records) {
+                    String status = statusOf.apply(record);
+                    if (!Objects.equals(status, record.getStatus())) {
+                        record.setStatus(status);
+                        changedInFile++;
+                    }
+                }
+                if (changedInFile > 0) {
+                    writeFile(file, records);
+                    changed += changedInFile;
+                }
+            }
+            return changed;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    public boolean isArchived(YearMonth month) {
+        return Files.exists(archiveFile(month));
+    }
+
+    // Streams every archived record, file by file; rows of these months may also still be in the database
+    public void forEachArchived(Consumer<AttendanceRecordDto> consumer) throws IOException {
+        Path dir = Paths.get(archiveDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "attendance-*.col.gz")) {
+            for (Path file : files) {
+                readFile(file).forEach(consumer);
+            }
+        }
+    }
+
+    // Streams every record in [from, to], month by month, from the archive where available and the database otherwise
+    public void forEachInRange(LocalDate from, LocalDate to, Consumer<AttendanceRecordDto> consumer) throws IOException {
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            LocalDate start = max(from, month.atDay(1));
+            LocalDate end = min(to, month.atEndOfMonth());
+
+            List<AttendanceRecordDto> records = attendanceRepository.findRecordsByDateBetween(start, end);
+            if (isArchived(month)) {
+                List<AttendanceRecordDto> archived = new ArrayList<>();
+                for (AttendanceRecordDto record : readFile(archiveFile(month))) {
+                    if (!record.getDate().isBefore(start) && !record.getDate().isAfter(end)) {
+                        archived.add(record);
+                    }
+                }
+                // Rows can still be in the database for an archived month, either from a late import or because
+                // a run wrote the file but stopped before removing them; each record is reported once
+                records = merge(archived, records);
+            }
+            records.forEach(consumer);
+        }
+    }
+
+    private void writeFile(Path target, List<AttendanceRecordDto> records) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        Map<String, Integer> statusCodes = new LinkedHashMap<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(records.size());
+
+            for (AttendanceRecordDto record : records) {
+                out.writeLong(record.getId());
+            }
+            for (AttendanceRecordDto record : records) {
+                out.writeLong(record.getUserId());
+            }
+            for (AttendanceRecordDto record : records) {
+                out.writeInt((int) record.getDate().toEpochDay());
+            }
+            for (AttendanceRecordDto record : records) {
+                out.writeLong(toEpochSecond(record.getInTime()));
+            }
+            for (AttendanceRecordDto record : records) {
+                out.writeLong(toEpochSecond(record.getOutTime()));
+            }
+            for (AttendanceRecordDto record : records) {
+                String status = record.getStatus() != null ? record.getStatus() : "";
+                out.writeByte(statusCodes.computeIfAbsent(status, key -> statusCodes.size()));
+            }
+            out.writeInt(statusCodes.size());
+            for (String status : statusCodes.keySet()) {
+                out.writeUTF(status);
+            }
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<AttendanceRecordDto> readFile(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported attendance archive format: " + file);
+            }
+            int rows = in.readInt();
+
+            long[] ids = new long[rows];
+            long[] userIds = new long[rows];
+            int[] epochDays = new int[rows];
+            long[] inTimes = new long[rows];
+            long[] outTimes = new long[rows];
+            byte[] statusCodes = new byte[rows];
+            for (int i = 0; i < rows; i++) ids[i] = in.readLong();
+            for (int i = 0; i < rows; i++) userIds[i] = in.readLong();
+            for (int i = 0; i < rows; i++) epochDays[i] = in.readInt();
+            for (int i = 0; i < rows; i++) inTimes[i] = in.readLong();
+            for (int i = 0; i < rows; i++) outTimes[i] = in.readLong();
+            in.readFully(statusCodes);
+
+            String[] dictionary = new String[in.readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = in.readUTF();
+            }
+
+            List<AttendanceRecordDto> records = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                String status = dictionary[statusCodes[i]];
+                records.add(new AttendanceRecordDto(ids[i], userIds[i], LocalDate.ofEpochDay(epochDays[i]),
+                        fromEpochSecond(inTimes[i]), fromEpochSecond(outTimes[i]), status.isEmpty() ? null : status));
+            }
+            return records;
+        }
+    }
+
+    private static List<AttendanceRecordDto> merge(List<AttendanceRecordDto> archived, List<AttendanceRecordDto> fresh) {
+        Map<Long, AttendanceRecordDto> byId = new LinkedHashMap<>();
+        archived.forEach(record -> byId.put(record.getId(), record));
+        fresh.forEach(record -> byId.put(record.getId(), record));
+        return new ArrayList<>(byId.values());
+    }
+
+    private Path archiveFile(YearMonth month) {
+        return Paths.get(archiveDir).resolve("attendance-" + month + ".col.gz");
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time != null ? time.toEpochSecond(ZoneOffset.UTC) : NO_TIME;
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return epochSecond != NO_TIME ? LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC) : null;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
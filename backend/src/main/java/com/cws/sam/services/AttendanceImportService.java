@@ -0,0 +1,298 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.ImportResultDto;
+import com.cws.sam.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Streams legacy attendance CSV (username,date,inTime[,outTime]) into the attendance table.
+// Lines are read in chunks, validated in parallel, and written with one JDBC batch per chunk.
+// Existing (user, date) rows are merged: earliest in time and latest out time win, and the status is
+// evaluated again from the merged times.
+// After every committed chunk the line number is checkpointed so a failed import can resume.
+@Slf4j
+@Service
+public class AttendanceImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final String MERGE_SQL =
+            "INSERT INTO attendance (user_id, date, in_time, out_time, status) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "in_time = LEAST(in_time, VALUES(in_time)), " +
+            "out_time = CASE WHEN out_time IS NULL THEN VALUES(out_time) " +
+            "WHEN VALUES(out_time) IS NULL THEN out_time " +
+            "ELSE GREATEST(out_time, VALUES(out_time)) END";
+
+    // Merged rows, read back so their status follows the merged times (see recomputeStatus)
+    private static final String MERGED_SQL =
+            "SELECT id, user_id, in_time, out_time, status FROM attendance WHERE date = ? AND user_id IN (%s)";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AttendancePolicyService attendancePolicyService;
+
+    @Autowired
+    private AttendanceAnalyticsService attendanceAnalyticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${attendance.import.dir:attendance_import}")
+    private String importDir;
+
+    @Value("${attendance.import.batch-size:5000}")
+    private int batchSize;
+
+    // Store an uploaded file in the import directory, replacing any earlier file and checkpoint with the same name
+    public ImportResultDto importUpload(MultipartFile file) throws IOException {
+        String name = Paths.get(Objects.requireNonNullElse(file.getOriginalFilename(), "import.csv"))
+                .getFileName().toString();
+        Path target = resolve(name);
+        Files.createDirectories(target.getParent());
+        try (var in = file.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(checkpointFile(target));
+        return importFile(name);
+    }
+
+    // Import (or continue importing) a file already in the import directory
+    public ImportResultDto importFile(String name) throws IOException {
+        Path file = resolve(name);
+        if (!Files.isRegularFile(file)) {
+            throw new IOException("Import file not found: " + name);
+        }
+
+        long start = System.currentTimeMillis();
+        ImportResultDto result = new ImportResultDto();
+        result.setFile(name);
+
+        // Resolve usernames once instead of one lookup per row
+        Map<String, Long> userIds = userRepository.findAllUsernames().stream()
+                .collect(Collectors.toMap(UserRepository.UsernameRow::getUsername, UserRepository.UsernameRow::getId,
+                        (first, second) -> first));
+        Map<Long, String> roles = new HashMap<>();
+        userRepository.findAllRoles().forEach(row -> roles.put(row.getId(), row.getRole()));
+
+        Path checkpoint = checkpointFile(file);
+        long skip = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0L;
+        result.setResumedFromLine(skip);
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long lineNo = 0;
+            String line;
+            while (lineNo < skip && reader.readLine() != null) {
+                lineNo++;
+            }
+
+            List<String> chunk = new ArrayList<>(batchSize);
+            long chunkStart = lineNo + 1;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                chunk.add(line);
+                if (chunk.size() == batchSize) {
+                    importChunk(chunk, chunkStart, userIds, roles, result);
+                    writeCheckpoint(checkpoint, lineNo);
+                    chunk.clear();
+                    chunkStart = lineNo + 1;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, chunkStart, userIds, roles, result);
+            }
+            result.setLinesRead(lineNo - skip);
+        }
+
+        Files.deleteIfExists(checkpoint);
+        if (result.getImported() > 0) {
+            attendanceAnalyticsService.rebuild();
+        }
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("Imported {} attendance rows from {} ({} rejected) in {} ms",
+                result.getImported(), name, result.getRejected(), result.getElapsedMs());
+        return result;
+    }
+
+    private void importChunk(List<String> lines, long firstLineNo, Map<String, Long> userIds,
+                             Map<Long, String> roles, ImportResultDto result) {
+        List<ParsedRow> parsed = IntStream.range(0, lines.size()).parallel()
+                .mapToObj(i -> parse(lines.get(i), firstLineNo + i, userIds))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        // Collapse duplicates inside the chunk so one batch never carries two rows for the same key
+        Map<String, ParsedRow> merged = new LinkedHashMap<>();
+        for (ParsedRow row : parsed) {
+            if (row.error != null) {
+                result.setRejected(result.getRejected() + 1);
+                if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                    result.getErrors().add("line " + row.lineNo + ": " + row.error);
+                }
+                continue;
+            }
+            merged.merge(row.userId + "|" + row.date, row, ParsedRow::mergeWith);
+        }
+
+        List<Object[]> batch = merged.values().stream()
+                .map(row -> new Object[]{
+                        row.userId,
+                        Date.valueOf(row.date),
+                        Timestamp.valueOf(row.inTime),
+                        row.outTime != null ? Timestamp.valueOf(row.outTime) : null,
+                        attendancePolicyService.policyFor(roles.get(row.userId)).evaluate(row.inTime, row.outTime)})
+                .collect(Collectors.toList());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(MERGE_SQL, batch);
+            recomputeStatus(merged.values(), roles);
+        });
+        result.setImported(result.getImported() + batch.size());
+    }
+
+    // An existing row merged with an imported one keeps the earliest in and latest out time, so its status is
+    // evaluated again from those instead of taking the imported row's status (which may contradict them)
+    private void recomputeStatus(Collection<ParsedRow> rows, Map<Long, String> roles) {
+        Map<LocalDate, List<Long>> usersByDate = rows.stream().collect(Collectors.groupingBy(row -> row.date,
+                Collectors.mapping(row -> row.userId, Collectors.toList())));
+        List<Object[]> updates = new ArrayList<>();
+        usersByDate.forEach((date, users) -> {
+            String sql = String.format(MERGED_SQL, String.join(",", Collections.nCopies(users.size(), "?")));
+            List<Object> args = new ArrayList<>(users.size() + 1);
+            args.add(Date.valueOf(date));
+            args.addAll(users);
+            jdbcTemplate.query(sql, rs -> {
+                Timestamp in = rs.getTimestamp("in_time");
+                Timestamp out = rs.getTimestamp("out_time");
+                if (in == null) {
+                    return;
+                }
+                LocalDateTime inTime = in.toLocalDateTime();
+                String status = attendancePolicyService.policyFor(roles.get(rs.getLong("user_id")))
+                        .evaluate(inTime, out != null ? out.toLocalDateTime() : null);
+                if (!status.equals(rs.getString("status"))) {
+                    updates.add(new Object[]{status, rs.getLong("id")});
+                }
+            }, args.toArray());
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE attendance SET status = ? WHERE id = ?", updates);
+        }
+    }
+
+    // Returns null for blank lines and the header, a row with an error for invalid lines
+    private static ParsedRow parse(String line, long lineNo, Map<String, Long> userIds) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || (lineNo == 1 && trimmed.toLowerCase().startsWith("username"))) {
+            return null;
+        }
+
+        ParsedRow row = new ParsedRow(lineNo);
+        String[] fields = trimmed.split(",", -1);
+        if (fields.length < 3) {
+            return row.fail("expected username,date,inTime[,outTime]");
+        }
+
+        row.userId = userIds.get(fields[0].trim());
+        if (row.userId == null) {
+            return row.fail("unknown username '" + fields[0].trim() + "'");
+        }
+        try {
+            row.date = LocalDate.parse(fields[1].trim());
+            row.inTime = parseTime(row.date, fields[2]);
+            row.outTime = fields.length > 3 ? parseTime(row.date, fields[3]) : null;
+        } catch (DateTimeParseException e) {
+            return row.fail("invalid date or time: " + e.getParsedString());
+        }
+        if (row.inTime == null) {
+            return row.fail("missing in time");
+        }
+        if (row.outTime != null && row.outTime.isBefore(row.inTime)) {
+            return row.fail("out time before in time");
+        }
+        return row;
+    }
+
+    // Accepts a full ISO date-time or just a time of day on the row's date
+    private static LocalDateTime parseTime(LocalDate date, String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        return trimmed.contains("T") ? LocalDateTime.parse(trimmed) : date.atTime(LocalTime.parse(trimmed));
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long lineNo) throws IOException {
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(temp, Long.toString(lineNo));
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path resolve(String name) throws IOException {
+        Path base = Paths.get(importDir).toAbsolutePath().normalize();
+        Path file = base.resolve(name).normalize();
+        if (!file.startsWith(base)) {
+            throw new IOException("Import file must be inside the import directory");
+        }
+        return file;
+    }
+
+    private static Path checkpointFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    private static final class ParsedRow {
+        final long lineNo;
+        Long userId;
+        LocalDate date;
+        LocalDateTime inTime;
+        LocalDateTime outTime;
+        String error;
+
+        ParsedRow(long lineNo) {
+            this.lineNo = lineNo;
+        }
+
+        ParsedRow fail(String message) {
+            this.error = message;
+            return this;
+        }
+
+        ParsedRow mergeWith(ParsedRow other) {
+            if (other.inTime.isBefore(inTime)) {
+                inTime = other.inTime;
+            }
+            if (outTime == null || (other.outTime != null && other.outTime.isAfter(outTime))) {
+                outTime = other.outTime;
+            }
+            return this;
+        }
+    }
+}
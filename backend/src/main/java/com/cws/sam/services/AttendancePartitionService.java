@@ -0,0 +1,130 @@
+package com.cws.sam.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+// Keeps the MySQL attendance table range-partitioned by month on `date`.
+// Hibernate still owns the columns (ddl-auto: update); this service only manages keys and partitions.
+@Slf4j
+@Service
+public class AttendancePartitionService {
+
+    private static final String TABLE = "attendance";
+    private static final String CATCH_ALL = "pmax";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${attendance.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${attendance.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled) {
+            return;
+        }
+        if (!isMySql()) {
+            log.warn("Attendance partitioning is only supported on MySQL, skipping");
+            enabled = false;
+            return;
+        }
+        if (existingPartitions().isEmpty()) {
+            partitionTable();
+        }
+        ensureFuturePartitions();
+    }
+
+    // Runs daily so next months' partitions always exist before the first mark lands in them
+    @Scheduled(cron = "${attendance.partitioning.cron:0 15 0 * * *}")
+    public void ensureFuturePartitions() {
+        if (!enabled) {
+            return;
+        }
+        List<String> partitions = existingPartitions();
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        for (YearMonth month = YearMonth.now(); !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!partitions.contains(partitionName(month))) {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + CATCH_ALL + " INTO ("
+                        + partitionClause(month) + ", PARTITION " + CATCH_ALL + " VALUES LESS THAN (MAXVALUE))");
+                log.info("Added attendance partition {}", partitionName(month));
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Drops a whole month in O(1) instead of deleting row by row; returns false if there is no such partition
+    public boolean dropMonth(YearMonth month) {
+        if (!enabled || !existingPartitions().contains(partitionName(month))) {
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partitionName(month));
+        log.info("Dropped attendance partition {}", partitionName(month));
+        return true;
+    }
+
+    private void partitionTable() {
+        // Partitioned InnoDB tables may not have foreign keys, and every unique key must include `date`.
+        // The entity keeps its user_id foreign key for unpartitioned databases; ddl-auto: update cannot add it
+        // back once the table is partitioned and only logs that it could not.
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'",
+                String.class, TABLE);
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP FOREIGN KEY " + foreignKey);
+        }
+
+        Date oldest = jdbcTemplate.queryForObject("SELECT MIN(date) FROM " + TABLE, Date.class);
+        YearMonth first = oldest != null ? YearMonth.from(oldest.toLocalDate()) : YearMonth.now();
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            partitions.append(partitionClause(month)).append(", ");
+        }
+        partitions.append("PARTITION ").append(CATCH_ALL).append(" VALUES LESS THAN (MAXVALUE)");
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, date)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS(date) (" + partitions + ")");
+        log.info("Partitioned attendance table monthly from {} to {}", first, last);
+    }
+
+    private List<String> existingPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                String.class, TABLE);
+    }
+
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute(
+                (java.sql.Connection connection) -> connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("mysql");
+    }
+
+    private static String partitionClause(YearMonth month) {
+        LocalDate upperBound = month.plusMonths(1).atDay(1);
+        return "PARTITION " + partitionName(month) + " VALUES LESS THAN ('" + upperBound + "')";
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,75 @@
+package com.cws.sam.services;
+
+import com.cws.sam.config.AttendancePolicyProperties;
+
+import java.time.LocalDateTime;
+
+// Immutable, precomputed form of one policy rule; safe to share between threads
+public final class AttendancePolicyEvaluator {
+
+    public static final String PRESENT = "Present";
+    public static final String LATE = "Late";
+    public static final String HALF_DAY = "Half Day";
+
+    private final int shiftStartSecond;
+    private final int shiftEndSecond;
+    private final int lateAfterSecond;
+    private final long halfDaySeconds;
+    private final long minGapSeconds;
+
+    public AttendancePolicyEvaluator(AttendancePolicyProperties.Rule rule) {
+        if (rule.getShiftStart() == null || rule.getShiftEnd() == null) {
+            throw new IllegalArgumentException("Shift start and end are required");
+        }
+        if (!rule.getShiftEnd().isAfter(rule.getShiftStart())) {
+            throw new IllegalArgumentException("Shift end must be after shift start");
+        }
+        if (rule.getGracePeriodMinutes() < 0 || rule.getHalfDayThresholdMinutes() < 0 || rule.getMinGapMinutes() < 0) {
+            throw new IllegalArgumentException("Grace period, half-day threshold and minimum gap cannot be negative");
+        }
+        int shiftMinutes = (rule.getShiftEnd().toSecondOfDay() - rule.getShiftStart().toSecondOfDay()) / 60;
+        if (rule.getGracePeriodMinutes() >= shiftMinutes) {
+            throw new IllegalArgumentException("Grace period must end before the shift does");
+        }
+        if (rule.getHalfDayThresholdMinutes() > shiftMinutes) {
+            throw new IllegalArgumentException("Half-day threshold cannot be longer than the shift");
+        }
+        this.shiftStartSecond = rule.getShiftStart().toSecondOfDay();
+        this.shiftEndSecond = rule.getShiftEnd().toSecondOfDay();
+        this.lateAfterSecond = shiftStartSecond + rule.getGracePeriodMinutes() * 60;
+        this.halfDaySeconds = rule.getHalfDayThresholdMinutes() * 60L;
+        this.minGapSeconds = rule.getMinGapMinutes() * 60L;
+    }
+
+    public int shiftStartMinute() {
+        return shiftStartSecond / 60;
+    }
+
+    public int lateAfterSecond() {
+        return lateAfterSecond;
+    }
+
+    // A later mark only counts as check-out once the minimum gap after check-in has passed
+    public boolean acceptsOutMark(LocalDateTime inTime, LocalDateTime candidate) {
+        return secondsBetween(inTime, candidate) >= minGapSeconds;
+    }
+
+    public String evaluate(LocalDateTime inTime, LocalDateTime outTime) {
+        int inSecond = inTime.toLocalTime().toSecondOfDay();
+
+        if (outTime != null) {
+            // Only time inside the shift window counts towards the day
+            long from = Math.max(inSecond, shiftStartSecond);
+            long to = Math.min(inSecond + secondsBetween(inTime, outTime), shiftEndSecond);
+            if (to - from < halfDaySeconds) {
+                return HALF_DAY;
+            }
+        }
+
+        return inSecond > lateAfterSecond ? LATE : PRESENT;
+    }
+
+    private static long secondsBetween(LocalDateTime from, LocalDateTime to) {
+        return java.time.Duration.between(from, to).getSeconds();
+    }
+}
@@ -0,0 +1,166 @@
+package com.cws.sam.services;
+
+import com.cws.sam.config.AttendancePolicyProperties;
+import com.cws.sam.models.AttendancePolicy;
+import com.cws.sam.repositories.AttendancePolicyRepository;
+import com.cws.sam.repositories.AttendanceRepository;
+import com.cws.sam.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Rules come from attendance.policy, overridden per role by the attendance_policies table that
+// PUT /policy/{role} writes. Every node polls the table and recompiles when it changed, so all nodes mark
+// with the same rules and a restart keeps them.
+@Slf4j
+@Service
+public class AttendancePolicyService {
+
+    public static final String DEFAULT = "DEFAULT";
+
+    private static final int REEVALUATION_PAGE_SIZE = 5000;
+
+    @Autowired
+    private AttendancePolicyProperties properties;
+
+    @Autowired
+    private AttendancePolicyRepository attendancePolicyRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AttendanceArchiveService attendanceArchiveService;
+
+    // Compiled once per rule change and swapped atomically; readers never lock
+    private volatile Map<String, AttendancePolicyEvaluator> evaluators = Map.of();
+    private volatile AttendancePolicyEvaluator defaultEvaluator;
+    private volatile Map<String, AttendancePolicyProperties.Rule> rules = Map.of();
+
+    // Newest change in attendance_policies this node has compiled
+    private volatile LocalDateTime loadedChange;
+
+    // Not synchronized: updates hold the lock across re-evaluation JDBC calls, which would pin a virtual thread
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    @PostConstruct
+    void init() {
+        load();
+    }
+
+    // Picks up rules another node changed
+    @Scheduled(fixedDelayString = "${attendance.policy.refresh-interval:10s}",
+            initialDelayString = "${attendance.policy.refresh-interval:10s}")
+    public void refresh() {
+        if (Objects.equals(attendancePolicyRepository.findLastChange(), loadedChange)) {
+            return;
+        }
+        updateLock.lock();
+        try {
+            load();
+            log.info("Attendance policy changed on another node; recompiled");
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void load() {
+        // Read first: a change landing after it is simply loaded again on the next refresh
+        LocalDateTime change = attendancePolicyRepository.findLastChange();
+        Map<String, AttendancePolicyProperties.Rule> loaded = new HashMap<>();
+        properties.getRoles().forEach((role, rule) -> loaded.put(normalize(role), rule.copy()));
+        loaded.put(DEFAULT, properties.getDefaults().copy());
+        for (AttendancePolicy policy : attendancePolicyRepository.findAllPolicies()) {
+            loaded.put(policy.getRole(), policy.toRule());
+        }
+
+        Map<String, AttendancePolicyEvaluator> compiled = new HashMap<>();
+        loaded.forEach((role, rule) -> compiled.put(role, new AttendancePolicyEvaluator(rule)));
+        defaultEvaluator = compiled.remove(DEFAULT);
+        evaluators = Map.copyOf(compiled);
+        rules = Map.copyOf(loaded);
+        loadedChange = change;
+    }
+
+    public AttendancePolicyEvaluator policyFor(String role) {
+        AttendancePolicyEvaluator evaluator = role != null ? evaluators.get(normalize(role)) : null;
+        return evaluator != null ? evaluator : defaultEvaluator;
+    }
+
+    // Copies, so callers cannot change the live rules behind the compiled evaluators
+    public Map<String, AttendancePolicyProperties.Rule> getRules() {
+        Map<String, AttendancePolicyProperties.Rule> copies = new HashMap<>();
+        rules.forEach((role, rule) -> copies.put(role, rule.copy()));
+        return copies;
+    }
+
+    // Stores the rule for one role ("DEFAULT" for the fallback) for every node and re-evaluates stored records,
+    // archived months included
+    public int updatePolicy(String role, AttendancePolicyProperties.Rule update) {
+        AttendancePolicyProperties.Rule rule = update.copy();
+        new AttendancePolicyEvaluator(rule); // validate before publishing
+
+        updateLock.lock();
+        try {
+            attendancePolicyRepository.save(new AttendancePolicy(DEFAULT.equalsIgnoreCase(role) ? DEFAULT : normalize(role), rule));
+            load();
+            return reevaluateAll();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Recompute the status of every stored record under the current rules; returns the number changed
+    public int reevaluateAll() {
+        int changed = 0;
+        long afterId = 0L;
+        PageRequest page = PageRequest.of(0, REEVALUATION_PAGE_SIZE);
+
+        List<AttendanceRepository.StatusRow> rows;
+        while (!(rows = attendanceRepository.findStatusRowsAfter(afterId, page)).isEmpty()) {
+            Map<String, List<Long>> idsByNewStatus = rows.parallelStream()
+                    .filter(row -> row.getInTime() != null)
+                    .map(row -> Map.entry(row,
+                            policyFor(row.getRole()).evaluate(row.getInTime(), row.getOutTime())))
+                    .filter(entry -> !Objects.equals(entry.getValue(), entry.getKey().getStatus()))
+                    .collect(Collectors.groupingByConcurrent(Map.Entry::getValue,
+                            Collectors.mapping(entry -> entry.getKey().getId(), Collectors.toList())));
+
+            for (Map.Entry<String, List<Long>> entry : idsByNewStatus.entrySet()) {
+                changed += attendanceRepository.updateStatus(entry.getKey(), entry.getValue());
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+
+        Map<Long, String> roles = new HashMap<>();
+        userRepository.findAllRoles().forEach(row -> roles.put(row.getId(), row.getRole()));
+        try {
+            changed += attendanceArchiveService.reevaluate(record -> record.getInTime() == null ? record.getStatus()
+                    : policyFor(roles.get(record.getUserId())).evaluate(record.getInTime(), record.getOutTime()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to re-evaluate archived attendance", e);
+        }
+        return changed;
+    }
+
+    private static String normalize(String role) {
+        String upper = role.trim().toUpperCase();
+        return upper.startsWith("ROLE_") ? upper.substring(5) : upper;
+    }
+}
@@ -1,11 +1,15 @@
 package com.cws.sam.services;
 
+import com.cws.sam.dtos.UserIdentity;
+import com.cws.sam.exceptions.UserNotFoundException;
 import com.cws.sam.models.Attendance;
 import com.cws.sam.models.User;
 import com.cws.sam.repositories.AttendanceRepository;
 import com.cws.sam.repositories.UserRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -19,19 +23,53 @@ public class AttendanceService {
     @Autowired
     private AttendanceRepository attendanceRepository;
 
-    public void markAttendance(String username, LocalDateTime timestamp) {
-        User user = userRepository.findByUsername(username).orElseThrow();
+    @Autowired
+    private UserIdentityService userIdentityService;
+
+    @Autowired
+    private AttendancePolicyService attendancePolicyService;
+
+    @Autowired
+    private AttendanceAnalyticsService attendanceAnalyticsService;
+
+    @Autowired
+    private RecognitionMetrics recognitionMetrics;
+
+    @Autowired
+    private ReadYourWritesGuard readYourWritesGuard;
+
+    // Single entry point for recording a mark; status always comes from the user's role policy
+    @Transactional
+    public Attendance markAttendance(String username, LocalDateTime timestamp) {
+        Timer.Sample lookup = Timer.start();
+        UserIdentity identity = userIdentityService.findByUsername(username).orElse(null);
+        if (identity == null) {
+            recognitionMetrics.markRejected();
+            throw new UserNotFoundException("User not found with username: " + username);
+        }
+        // Identity comes from the cache; the entity is only a reference for the attendance foreign key
+        User user = userRepository.getReferenceById(identity.getId());
+        AttendancePolicyEvaluator policy = attendancePolicyService.policyFor(identity.getRole());
         LocalDate date = timestamp.toLocalDate();
 
         Attendance attendance = attendanceRepository.findByUserAndDate(user, date).orElse(null);
+        lookup.stop(recognitionMetrics.markLookup());
+
         if (attendance == null) {
-            attendance = new Attendance(null, user, date, timestamp, null, "Present");
-        } else {
+            attendance = new Attendance(null, user, date, timestamp, null, null);
+        } else if (policy.acceptsOutMark(attendance.getInTime(), timestamp)) {
             attendance.setOutTime(timestamp);
-            long minutesPresent = java.time.Duration.between(attendance.getInTime(), attendance.getOutTime()).toMinutes();
-            attendance.setStatus(minutesPresent >= 240 ? "Present" : "Half Day");
+        } else {
+            // Repeat mark inside the minimum gap: nothing to record
+            return attendance;
         }
-        attendanceRepository.save(attendance);
+        attendance.setStatus(policy.evaluate(attendance.getInTime(), attendance.getOutTime()));
+        Attendance toSave = attendance;
+        Attendance saved = recognitionMetrics.markSave().record(() -> attendanceRepository.save(toSave));
+        recognitionMetrics.markRecorded();
+        readYourWritesGuard.recordWrite(identity.getEmail());
+        attendanceAnalyticsService.record(saved, identity.getRole());
+        return saved;
     }
 
     public Attendance getTodayAttendance(String username) {
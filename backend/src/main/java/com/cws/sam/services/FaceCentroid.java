@@ -0,0 +1,119 @@
+package com.cws.sam.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Summarizes the embeddings of several enrollment photos of one person as one match vector, plus a few
+// extra vectors for photos that do not fit it (glasses, very different lighting). Starts from the
+// coordinate-wise median so one bad photo cannot drag the centre, averages the photos within
+// outlierDistance of it, and re-checks against that mean. The photos left over are grouped greedily
+// (largest group first) into at most maxOutlierVectors extra vectors; any beyond that are ignored.
+public final class FaceCentroid {
+
+    public record Result(float[] centroid, List<float[]> outlierVectors, boolean[] outlier) {
+    }
+
+    private FaceCentroid() {
+    }
+
+    public static Result compute(List<float[]> embeddings, double outlierDistance, int maxOutlierVectors) {
+        if (embeddings.isEmpty()) {
+            throw new IllegalArgumentException("No embeddings to summarize");
+        }
+        boolean[] inlier = within(embeddings, median(embeddings), outlierDistance);
+        if (count(inlier) == 0) {
+            // No two photos agree; fall back to the plain mean without outliers
+            Arrays.fill(inlier, true);
+        }
+        float[] centroid = mean(embeddings, inlier);
+        boolean[] refined = within(embeddings, centroid, outlierDistance);
+        if (count(refined) > 0 && !Arrays.equals(refined, inlier)) {
+            inlier = refined;
+            centroid = mean(embeddings, inlier);
+        }
+
+        boolean[] outlier = new boolean[embeddings.size()];
+        boolean[] remaining = new boolean[embeddings.size()];
+        for (int i = 0; i < outlier.length; i++) {
+            outlier[i] = !inlier[i];
+            remaining[i] = !inlier[i];
+        }
+        List<float[]> outlierVectors = new ArrayList<>();
+        while (outlierVectors.size() < maxOutlierVectors && count(remaining) > 0) {
+            boolean[] largest = null;
+            for (int i = 0; i < remaining.length; i++) {
+                if (remaining[i]) {
+                    boolean[] group = within(embeddings, embeddings.get(i), outlierDistance);
+                    for (int j = 0; j < group.length; j++) {
+                        group[j] &= remaining[j];
+                    }
+                    if (largest == null || count(group) > count(largest)) {
+                        largest = group;
+                    }
+                }
+            }
+            outlierVectors.add(mean(embeddings, largest));
+            for (int j = 0; j < remaining.length; j++) {
+                remaining[j] &= !largest[j];
+            }
+        }
+        return new Result(centroid, outlierVectors, outlier);
+    }
+
+    public static double distance(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double d = a[i] - b[i];
+            sum += d * d;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static float[] median(List<float[]> embeddings) {
+        int dims = embeddings.get(0).length;
+        float[] median = new float[dims];
+        float[] column = new float[embeddings.size()];
+        for (int d = 0; d < dims; d++) {
+            for (int i = 0; i < column.length; i++) {
+                column[i] = embeddings.get(i)[d];
+            }
+            Arrays.sort(column);
+            int mid = column.length / 2;
+            median[d] = column.length % 2 == 1 ? column[mid] : (column[mid - 1] + column[mid]) / 2;
+        }
+        return median;
+    }
+
+    private static float[] mean(List<float[]> embeddings, boolean[] selected) {
+        float[] mean = new float[embeddings.get(0).length];
+        int n = count(selected);
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                float[] embedding = embeddings.get(i);
+                for (int d = 0; d < mean.length; d++) {
+                    mean[d] += embedding[d] / n;
+                }
+            }
+        }
+        return mean;
+    }
+
+    private static boolean[] within(List<float[]> embeddings, float[] center, double maxDistance) {
+        boolean[] within = new boolean[embeddings.size()];
+        for (int i = 0; i < within.length; i++) {
+            within[i] = distance(embeddings.get(i), center) <= maxDistance;
+        }
+        return within;
+    }
+
+    private static int count(boolean[] flags) {
+        int count = 0;
+        for (boolean flag : flags) {
+            if (flag) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,126 @@
+package com.cws.sam.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Turns enrollment images into face embeddings by running python-client/encode_faces.py once per batch.
+// Images go in as <userId>.jpg files, embeddings come back as JSON lines {"id": "...", "encoding": [...]};
+// an empty array means no face was found in that image.
+@Slf4j
+@Service
+public class FaceEncoderService {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${face.recognition.encoder-script:python-client/encode_faces.py}")
+    private String encoderScript;
+
+    // Replaces "python <encoder-script>" when set, e.g. to run a simulated encoder under load tests
+    @Value("${face.recognition.encoder-command:}")
+    private String[] encoderCommand;
+
+    @Value("${face.recognition.encoder-timeout:10m}")
+    private Duration timeout;
+
+    public Map<Long, float[]> encode(Map<Long, byte[]> images) throws IOException {
+        if (images.isEmpty()) {
+            return Map.of();
+        }
+        Path workDir = Files.createTempDirectory("face-encoder");
+        try {
+            Path inputDir = Files.createDirectory(workDir.resolve("input"));
+            for (Map.Entry<Long, byte[]> image : images.entrySet()) {
+                Files.write(inputDir.resolve(image.getKey() + ".jpg"), image.getValue());
+            }
+            Path output = workDir.resolve("encodings.jsonl");
+            Path processLog = workDir.resolve("encoder.log");
+
+            List<String> command = new ArrayList<>();
+            if (encoderCommand.length > 0) {
+                command.addAll(List.of(encoderCommand));
+            } else {
+                command.add("python");
+                command.add(encoderScript);
+            }
+            command.add("--input_dir=" + inputDir);
+            command.add("--output=" + output);
+
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command)
+                    .directory(new File(System.getProperty("user.dir")))
+                    .redirectErrorStream(true)
+                    .redirectOutput(processLog.toFile())
+                    .start();
+            try {
+                if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                    throw new IOException("Face encoder timed out after " + timeout);
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the face encoder", e);
+            }
+            if (process.exitValue() != 0 || !Files.exists(output)) {
+                throw new IOException("Face encoder exited with " + process.exitValue() + ": " + tail(processLog));
+            }
+
+            Map<Long, float[]> encodings = new HashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(output)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode row = objectMapper.readTree(line);
+                    JsonNode values = row.path("encoding");
+                    float[] encoding = new float[values.size()];
+                    for (int i = 0; i < encoding.length; i++) {
+                        encoding[i] = (float) values.get(i).asDouble();
+                    }
+                    encodings.put(Long.parseLong(row.path("id").asText()), encoding);
+                }
+            }
+            log.info("Encoded {} face images in {} ms", images.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return encodings;
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    private static String tail(Path processLog) throws IOException {
+        if (!Files.exists(processLog)) {
+            return "(no output)";
+        }
+        List<String> lines = Files.readAllLines(processLog);
+        return String.join("\n", lines.subList(Math.max(0, lines.size() - 10), lines.size()));
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not clean up {}", dir, e);
+        }
+    }
+}
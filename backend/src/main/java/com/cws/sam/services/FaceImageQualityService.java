@@ -0,0 +1,135 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.FaceImageQualityDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+// Cheap checks on an enrollment photo before it is stored: size, blur (variance of the Laplacian)
+// and exposure (grey-level histogram). Sharpness and exposure are measured on a copy scaled down to
+// at most analysis-size pixels on its long side, so the cost does not grow with the camera resolution.
+@Service
+public class FaceImageQualityService {
+
+    private final int minSide;
+    private final double minSharpness;
+    private final double minBrightness;
+    private final double maxBrightness;
+    private final double maxClipped;
+    private final int analysisSize;
+
+    public FaceImageQualityService(@Value("${face.quality.min-side:160}") int minSide,
+                                   @Value("${face.quality.min-sharpness:40}") double minSharpness,
+                                   @Value("${face.quality.min-brightness:50}") double minBrightness,
+                                   @Value("${face.quality.max-brightness:210}") double maxBrightness,
+                                   @Value("${face.quality.max-clipped:0.25}") double maxClipped,
+                                   @Value("${face.quality.analysis-size:512}") int analysisSize) {
+        this.minSide = minSide;
+        this.minSharpness = minSharpness;
+        this.minBrightness = minBrightness;
+        this.maxBrightness = maxBrightness;
+        this.maxClipped = maxClipped;
+        this.analysisSize = analysisSize;
+    }
+
+    public FaceImageQualityDto assess(BufferedImage image) {
+        FaceImageQualityDto quality = new FaceImageQualityDto();
+        if (image == null) {
+            quality.getReasons().add("not a readable image (use JPEG or PNG)");
+            return quality;
+        }
+        quality.setWidth(image.getWidth());
+        quality.setHeight(image.getHeight());
+        if (Math.min(image.getWidth(), image.getHeight()) < minSide) {
+            quality.getReasons().add(String.format("too small: %dx%d, need at least %d px on each side",
+                    image.getWidth(), image.getHeight(), minSide));
+        }
+
+        int[] grey = greyPixels(image);
+        int width = Math.max(1, scaledWidth(image));
+        int height = grey.length / width;
+
+        quality.setSharpness(laplacianVariance(grey, width, height));
+        if (quality.getSharpness() < minSharpness) {
+            quality.getReasons().add(String.format("too blurry: sharpness %.1f, need at least %.1f",
+                    quality.getSharpness(), minSharpness));
+        }
+
+        long sum = 0;
+        int clipped = 0;
+        for (int value : grey) {
+            sum += value;
+            if (value <= 10 || value >= 245) {
+                clipped++;
+            }
+        }
+        quality.setBrightness((double) sum / grey.length);
+        quality.setClipped((double) clipped / grey.length);
+        if (quality.getBrightness() < minBrightness) {
+            quality.getReasons().add(String.format("too dark: mean brightness %.0f, need at least %.0f",
+                    quality.getBrightness(), minBrightness));
+        } else if (quality.getBrightness() > maxBrightness) {
+            quality.getReasons().add(String.format("overexposed: mean brightness %.0f, need at most %.0f",
+                    quality.getBrightness(), maxBrightness));
+        }
+        if (quality.getClipped() > maxClipped) {
+            quality.getReasons().add(String.format("%.0f%% of the image is pure black or white, at most %.0f%% allowed",
+                    quality.getClipped() * 100, maxClipped * 100));
+        }
+        return quality;
+    }
+
+    // Rec. 601 luma of the image, scaled down to the analysis size
+    private int[] greyPixels(BufferedImage image) {
+        int width = scaledWidth(image);
+        int height = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        BufferedImage scaled = image;
+        if (width != image.getWidth()) {
+            scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+            graphics.dispose();
+        }
+        int[] rgb = scaled.getRGB(0, 0, width, height, null, 0, width);
+        int[] grey = new int[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            int pixel = rgb[i];
+            grey[i] = (299 * ((pixel >> 16) & 0xFF) + 587 * ((pixel >> 8) & 0xFF) + 114 * (pixel & 0xFF)) / 1000;
+        }
+        return grey;
+    }
+
+    private int scaledWidth(BufferedImage image) {
+        int longSide = Math.max(image.getWidth(), image.getHeight());
+        if (longSide <= analysisSize) {
+            return image.getWidth();
+        }
+        return Math.max(1, (int) Math.round((double) image.getWidth() * analysisSize / longSide));
+    }
+
+    // Variance of the 4-neighbour Laplacian over the interior pixels
+    static double laplacianVariance(int[] grey, int width, int height) {
+        if (width < 3 || height < 3) {
+            return 0;
+        }
+        double sum = 0;
+        double sumSquares = 0;
+        long count = 0;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                int laplacian = grey[i - 1] + grey[i + 1] + grey[i - width] + grey[i + width] - 4 * grey[i];
+                sum += laplacian;
+                sumSquares += (double) laplacian * laplacian;
+                count++;
+            }
+        }
+        double mean = sum / count;
+        return sumSquares / count - mean * mean;
+    }
+}
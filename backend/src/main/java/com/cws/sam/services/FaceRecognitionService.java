@@ -1,206 +1,515 @@
 package com.cws.sam.services;
 
+import com.cws.sam.config.RecognitionProfileProperties;
+import com.cws.sam.dtos.GalleryScope;
+import com.cws.sam.dtos.RecognitionParams;
+import com.cws.sam.dtos.RecognitionSessionDto;
+import com.cws.sam.dtos.UserIdentity;
+import com.cws.sam.exceptions.UserNotFoundException;
 import com.cws.sam.models.Attendance;
-import com.cws.sam.models.User;
+import com.cws.sam.models.RecognitionSession;
 import com.cws.sam.repositories.AttendanceRepository;
 import com.cws.sam.repositories.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class FaceRecognitionService {
 
+    // Worker stdout gets its own logger so its level can be tuned apart from the service's
+    private static final Logger workerLog = LoggerFactory.getLogger("com.cws.sam.worker");
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private AttendanceRepository attendanceRepository;
 
-    private boolean isRunning = false;
-    private final Map<String, Process> activeProcesses = new ConcurrentHashMap<>();
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private UserIdentityService userIdentityService;
+
+    @Autowired
+    private MarkDebouncer markDebouncer;
+
+    // How long a repeat report waits for the first report's mark before it is answered as pending
+    @Value("${attendance.debounce.pending-wait:2s}")
+    private Duration pendingWait;
+
+    @Autowired
+    private RecognitionMetrics recognitionMetrics;
+
+    @Autowired
+    private GallerySnapshotService gallerySnapshotService;
+
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    @Autowired
+    private RecognitionProfileProperties recognitionProfiles;
+
+    @Autowired
+    private FrameIngestService frameIngestService;
+
+    @Autowired
+    private WorkerTelemetryService workerTelemetryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Workers running on this node by session id; the cluster-wide view is in SessionRegistry.
+    // Keyed by session, not email, so stopping an old session never touches a newer one for the same user.
+    private final Map<String, Worker> activeProcesses = new ConcurrentHashMap<>();
+    // Email per session, from before the worker is spawned until it is stopped
+    private final Map<String, String> activeSessions = new ConcurrentHashMap<>();
+
+    // One thread per session blocked on worker stdout; virtual when spring.threads.virtual.enabled is on
+    @Autowired
+    private SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    private SimpleAsyncTaskExecutor workerOutputExecutor;
+
+    @PostConstruct
+    void init() {
+        recognitionMetrics.trackActiveSessions(activeProcesses);
+        workerOutputExecutor = taskExecutorBuilder.threadNamePrefix("worker-output-").build();
+    }
 
     @Value("${face.recognition.temp-dir:temp_faces}")
     private String tempFacesDir;
 
+    // snapshot: workers map the shared gallery snapshot; files: each session gets its own exported images
+    @Value("${face.recognition.gallery.mode:snapshot}")
+    private String galleryMode;
+
     @Value("${face.recognition.python-script:python-client/attendance_camera.py}")
     private String pythonScript;
 
-    private void setupTempFacesDirectory() throws IOException {
-        Path tempDir = Paths.get(tempFacesDir);
-        if (!Files.exists(tempDir)) {
-            Files.createDirectories(tempDir);
-        } else {
-            // Clean up existing files
-            Files.list(tempDir)
-                    .filter(path -> path.toString().endsWith(".jpg") || path.toString().endsWith(".png"))
-                    .forEach(path -> {
-                        try {
-                            Files.delete(path);
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    });
+    // Replaces "python <python-script>" when set, e.g. to run a simulated worker under load tests
+    @Value("${face.recognition.worker-command:}")
+    private String[] workerCommand;
+
+    @Value("${face.recognition.api-endpoint:http://localhost:8081/mark}")
+    private String apiEndpoint;
+
+    // Repetitive worker lines: log the first N of each kind, then one in every M
+    @Value("${face.recognition.worker-log.always:5}")
+    private int workerLogAlways;
+
+    @Value("${face.recognition.worker-log.sample-every:100}")
+    private int workerLogSampleEvery;
+
+    // Exports the faces in scope into a directory of their own, so concurrent sessions never share files
+    public int setupGallery(String session, GalleryScope scope) throws IOException {
+        Path galleryDir = galleryDir(session);
+        deleteGallery(galleryDir);
+        Files.createDirectories(galleryDir);
+
+        // Only username and image are selected, and only for users in scope
+        long start = System.nanoTime();
+        int faces = 0;
+        for (UserRepository.FaceRow face : userRepository.findFacesInScope(
+                scope.getClassName(), scope.getSite(), scope.getShift())) {
+            if (face.getFaceImage().length > 0) {
+                Files.write(galleryDir.resolve(face.getUsername() + ".jpg"), face.getFaceImage());
+                faces++;
+            }
         }
+        recognitionMetrics.galleryBuilt(System.nanoTime() - start, faces);
 
-        // Fetch all users and save their face images as files
-        List<User> users = userRepository.findAll();
-        for (User user : users) {
-            if (user.getFaceImage() != null && user.getFaceImage().length > 0) {
-                String filename = user.getUsername() + ".jpg";
-                Path filePath = tempDir.resolve(filename);
+        log.info("Gallery for session {} ({}) set up with {} faces", session, scope.label(), faces);
+        return faces;
+    }
 
-                try (FileOutputStream fos = new FileOutputStream(filePath.toFile())) {
-                    fos.write(user.getFaceImage());
-                }
-            }
+    // Points the session at the shared snapshot; a scoped session also gets the list of usernames it may match
+    private int setupSnapshotGallery(String session, GalleryScope scope, List<String> command) throws IOException {
+        GallerySnapshot snapshot = gallerySnapshotService.current();
+        command.add("--gallery=" + gallerySnapshotService.pointerFile());
+        if (scope.isAll()) {
+            return snapshot.getCount();
         }
 
-        System.out.println("Temporary face directory setup complete with " + users.size() + " faces");
+        List<String> usernames = userRepository.findEncodedUsernamesInScope(
+                scope.getClassName(), scope.getSite(), scope.getShift());
+        Path allowList = galleryDir(session).resolve("allow.txt");
+        Files.createDirectories(allowList.getParent());
+        Files.write(allowList, usernames);
+        command.add("--allow_list=" + allowList);
+        log.info("Gallery for session {} ({}) uses snapshot version {}, {} users in scope",
+                session, scope.label(), snapshot.getVersion(), usernames.size());
+        return (int) usernames.stream().filter(snapshot::contains).count();
     }
 
-    // Start face recognition using email
+    public boolean startRecognition(String email) {
+        return startRecognition(email, GalleryScope.ALL).isPresent();
+    }
 
+    public Optional<RecognitionSessionDto> startRecognition(String email, GalleryScope scope) {
+        return startRecognition(email, scope, resolveParams(null, null), false);
+    }
 
+    // The named profile (the default one when null) with overrides applied; IllegalArgumentException if invalid
+    public RecognitionParams resolveParams(String profile, RecognitionParams overrides) {
+        String name = profile != null && !profile.isBlank() ? profile : recognitionProfiles.getDefaultProfile();
+        RecognitionParams base = recognitionProfiles.getProfiles().get(name);
+        if (base == null) {
+            throw new IllegalArgumentException("Unknown recognition profile '" + name + "', available: "
+                    + String.join(", ", recognitionProfiles.getProfiles().keySet()));
+        }
+        return checked(base.overlay(overrides));
+    }
 
-    public boolean startRecognition(String email) {
+    // Start face recognition using email, matching only against users in the given scope.
+    // With browserFrames the worker reads frames streamed to /frames instead of opening a local camera.
+    public Optional<RecognitionSessionDto> startRecognition(String email, GalleryScope scope, RecognitionParams params,
+                                                            boolean browserFrames) {
+        MDC.put("email", email);
+        long requestedAt = System.nanoTime();
         try {
             stopUserRecognition(email);
-            setupTempFacesDirectory();
 
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                    "python",
-                    pythonScript,
-                    "--known_faces_dir=" + tempFacesDir,
-                    "--api_endpoint=http://localhost:8081/mark"
-            );
+            // Tells apart successive sessions for the same email; the worker sends it back with every mark
+            String session = UUID.randomUUID().toString().substring(0, 8);
+            List<String> command = new ArrayList<>();
+            if (workerCommand.length > 0) {
+                command.addAll(List.of(workerCommand));
+            } else {
+                command.add("python");
+                command.add(pythonScript);
+            }
+
+            long galleryStart = System.nanoTime();
+            int galleryFaces;
+            if (galleryMode.equals("files")) {
+                galleryFaces = setupGallery(session, scope);
+                command.add("--known_faces_dir=" + galleryDir(session));
+            } else {
+                galleryFaces = setupSnapshotGallery(session, scope, command);
+                recognitionMetrics.galleryBuilt(System.nanoTime() - galleryStart, galleryFaces);
+            }
+            long galleryNanos = System.nanoTime() - galleryStart;
+            command.add("--api_endpoint=" + apiEndpoint);
+            command.add("--session_id=" + session);
+            command.addAll(params.toArgs());
+            if (browserFrames) {
+                command.add("--frames=" + frameIngestService.open(session));
+            }
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
 
             processBuilder.directory(new File(System.getProperty("user.dir")));
             processBuilder.redirectErrorStream(true);
 
-            Process process = processBuilder.start();
-            activeProcesses.put(email, process);
+            // Known locally before it is registered, so a concurrent heartbeat never treats the row as an orphan
+            activeSessions.put(session, email);
+            sessionRegistry.register(session, email, toJson(params));
+            workerTelemetryService.start(session);
 
-            new Thread(() -> {
+            long spawnedAt = System.nanoTime();
+            Process process;
+            try {
+                process = processBuilder.start();
+            } catch (IOException e) {
+                activeSessions.remove(session);
+                sessionRegistry.release(session);
+                frameIngestService.close(session);
+                workerTelemetryService.stop(session);
+                throw e;
+            }
+            activeProcesses.put(session, new Worker(process, new ReentrantLock()));
+            String pid = Long.toString(process.pid());
+            log.info("Started recognition worker pid {} for session {}", pid, session);
+            workerOutputExecutor.execute(() -> {
+                MDC.put("session", session);
+                MDC.put("email", email);
+                MDC.put("worker.pid", pid);
+                WorkerOutputSampler sampler = new WorkerOutputSampler(workerLogAlways, workerLogSampleEvery);
+                boolean ready = false;
                 try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                     String line;
                     while ((line = reader.readLine()) != null) {
-                        System.out.println("Python output: " + line);
+                        if (workerTelemetryService.accept(session, line)) {
+                            continue;
+                        }
+                        logWorkerLine(line, sampler);
+                        // Camera, browser frame stream or recorded frames
+                        if (!ready && line.contains("opened successfully")) {
+                            recognitionMetrics.workerReady(System.nanoTime() - spawnedAt);
+                            ready = true;
+                        }
                         // Only stop if recognition is explicitly complete
                         if (line.contains("Recognition complete")) {
-                            stopUserRecognition(email);
+                            stopSession(session);
                             break;
                         }
                     }
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    log.warn("Lost output stream of recognition worker", e);
+                } finally {
+                    MDC.clear();
                 }
-            }).start();
+                process.onExit().thenAccept(exited -> recognitionMetrics.workerExited(exited.exitValue()));
+            });
+
+            long startNanos = System.nanoTime() - requestedAt;
+            recognitionMetrics.sessionStarted(startNanos);
+            return Optional.of(new RecognitionSessionDto(session, scope.label(), galleryFaces,
+                    TimeUnit.NANOSECONDS.toMillis(galleryNanos), TimeUnit.NANOSECONDS.toMillis(startNanos), params,
+                    browserFrames ? "/frames?session=" + session : null));
+        } catch (IOException e) {
+            log.error("Failed to start recognition worker", e);
+            return Optional.empty();
+        } finally {
+            MDC.remove("email");
+        }
+    }
 
-            isRunning = true;
-            return true;
+    // Changes the parameters of a running session on any node; empty if there is no such session.
+    // A local worker gets them at once on its stdin, another node's worker on that node's next heartbeat.
+    public Optional<RecognitionParams> updateParams(String session, RecognitionParams changes) {
+        Optional<RecognitionSession> row = sessionRegistry.find(session);
+        if (row.isEmpty()) {
+            return Optional.empty();
+        }
+        RecognitionParams params = checked(paramsOf(row.get()).overlay(changes));
+        String json = toJson(params);
+        if (activeSessions.containsKey(session)) {
+            sendParams(session, params);
+            sessionRegistry.updateParams(session, json, false);
+            log.info("Session {} now runs with {}", session, params);
+        } else {
+            sessionRegistry.updateParams(session, json, true);
+            log.info("Session {} runs on {}, new parameters handed over", session, row.get().getNodeId());
+        }
+        return Optional.of(params);
+    }
+
+    // Worker telemetry of a session running on this node
+    public Optional<Map<String, Object>> sessionStats(String session) {
+        return workerTelemetryService.stats(session);
+    }
+
+    // The session's row wherever it runs, empty once it has ended
+    public Optional<RecognitionSession> findSession(String session) {
+        return sessionRegistry.find(session);
+    }
+
+    // Stored parameters of a session; sessions without any run with the default profile
+    public RecognitionParams paramsOf(RecognitionSession session) {
+        if (session.getParams() == null) {
+            return resolveParams(null, null);
+        }
+        try {
+            return objectMapper.readValue(session.getParams(), RecognitionParams.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable parameters of session {}, assuming the default profile", session.getId(), e);
+            return resolveParams(null, null);
+        }
+    }
+
+    // One JSON line on the worker's stdin; attendance_camera.py applies it before the next frame
+    private void sendParams(String session, RecognitionParams params) {
+        Worker worker = activeProcesses.get(session);
+        if (worker == null || !worker.process().isAlive()) {
+            return;
+        }
+        try {
+            byte[] line = (objectMapper.writeValueAsString(params.toWorkerFields()) + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            worker.stdinLock().lock();
+            try {
+                OutputStream stdin = worker.process().getOutputStream();
+                stdin.write(line);
+                stdin.flush();
+            } finally {
+                worker.stdinLock().unlock();
+            }
         } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+            log.warn("Could not pass new parameters to the worker of session {}", session, e);
+        }
+    }
+
+    private static RecognitionParams checked(RecognitionParams params) {
+        List<String> errors = params.validate();
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
         }
+        return params;
     }
 
-    public boolean markAttendance(String username, String timestamp) {
+    private String toJson(RecognitionParams params) {
         try {
-            Optional<User> userOpt = userRepository.findByUsername(username);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
+            return objectMapper.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-                LocalDateTime attendanceTime = timestamp != null && !timestamp.isEmpty()
-                        ? LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_DATE_TIME)
-                        : LocalDateTime.now();
+    private static void logWorkerLine(String line, WorkerOutputSampler sampler) {
+        long dropped = sampler.admit(line);
+        if (dropped < 0) {
+            return;
+        }
+        String message = dropped > 0 ? line + " (" + dropped + " similar lines not logged)" : line;
+        if (line.contains("ERROR") || line.startsWith("Traceback")) {
+            workerLog.warn(message);
+        } else {
+            workerLog.info(message);
+        }
+    }
 
-                LocalDate currentDate = attendanceTime.toLocalDate();
+    // PENDING: a repeat of a report whose mark has not finished within attendance.debounce.pending-wait
+    public enum MarkResult { MARKED, PENDING, FAILED }
 
-                Optional<Attendance> existingRecord = attendanceRepository.findByUserAndDate(user, currentDate);
+    public MarkResult markAttendance(String username, String timestamp) {
+        return markAttendance(username, timestamp, null);
+    }
 
-                Attendance attendance;
-                if (existingRecord.isPresent()) {
-                    attendance = existingRecord.get();
-                    attendance.setOutTime(attendanceTime);
-                } else {
-                    attendance = new Attendance();
-                    attendance.setUser(user);
-                    attendance.setDate(currentDate);
-                    attendance.setInTime(attendanceTime);
-                    attendance.setStatus("Present");
-                }
+    // Repeat reports of the same user from the same session get the first report's outcome without
+    // touching the database
+    public MarkResult markAttendance(String username, String timestamp, String session) {
+        MarkDebouncer.Admission admission = markDebouncer.admit(username, session);
+        if (!admission.first()) {
+            try {
+                return admission.outcome().get(pendingWait.toMillis(), TimeUnit.MILLISECONDS)
+                        ? MarkResult.MARKED : MarkResult.FAILED;
+            } catch (TimeoutException e) {
+                return MarkResult.PENDING;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return MarkResult.PENDING;
+            } catch (ExecutionException e) {
+                return MarkResult.FAILED;
+            }
+        }
+        boolean marked = false;
+        try {
+            marked = recordMark(username, timestamp);
+        } finally {
+            markDebouncer.done(username, session, admission, marked);
+        }
+        return marked ? MarkResult.MARKED : MarkResult.FAILED;
+    }
 
-                attendanceRepository.save(attendance);
+    private boolean recordMark(String username, String timestamp) {
+        try {
+            LocalDateTime attendanceTime = timestamp != null && !timestamp.isEmpty()
+                    ? LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_DATE_TIME)
+                    : LocalDateTime.now();
 
-                // Removed code that stopped all processes here
-                return true;
+            try {
+                attendanceService.markAttendance(username, attendanceTime);
+            } catch (DataIntegrityViolationException e) {
+                // Another node inserted today's row for this user first; apply this mark on top of it
+                attendanceService.markAttendance(username, attendanceTime);
             }
+            return true;
+        } catch (UserNotFoundException e) {
             return false;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Failed to mark attendance for {}", username, e);
             return false;
         }
     }
 
-    // Stop all face recognition processes
+    // Stop all face recognition processes: the ones on this node now, the others on their owners' next heartbeat
     public boolean stopRecognition() {
-        for (Map.Entry<String, Process> entry : activeProcesses.entrySet()) {
-            Process process = entry.getValue();
-            if (process.isAlive()) {
-                process.destroy();
-                try {
-                    boolean terminated = process.waitFor(5, java.util.concurrent.TimeUnit.SECONDS);
-                    if (!terminated) {
-                        process.destroyForcibly();
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    e.printStackTrace();
-                }
-            }
+        for (String session : List.copyOf(activeSessions.keySet())) {
+            stopSession(session);
         }
+        int remote = sessionRegistry.requestStopOnOtherNodes();
+        if (remote > 0) {
+            log.info("Asked other nodes to stop {} recognition session(s)", remote);
+        }
+        return true;
+    }
 
-        activeProcesses.clear();
-        isRunning = false;
-
-        // Clean up temporary directory
+    // Renews this node's leases and applies stop requests made on other nodes
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval:2s}", initialDelayString = "${cluster.heartbeat-interval:2s}")
+    public void heartbeat() {
         try {
-            Path tempDir = Paths.get(tempFacesDir);
-            if (Files.exists(tempDir)) {
-                Files.list(tempDir)
-                        .filter(path -> path.toString().endsWith(".jpg") || path.toString().endsWith(".png"))
-                        .forEach(path -> {
-                            try {
-                                Files.delete(path);
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        });
+            // Workers that exited on their own
+            activeProcesses.forEach((session, worker) -> {
+                if (!worker.process().isAlive()) {
+                    stopSession(session);
+                }
+            });
+
+            LocalDateTime asOf = LocalDateTime.now();
+            sessionRegistry.renew(List.copyOf(activeSessions.keySet()), asOf);
+            for (String session : sessionRegistry.pendingStops()) {
+                if (activeSessions.containsKey(session)) {
+                    log.info("Stopping session {} on request of another node", session);
+                    stopSession(session);
+                } else {
+                    sessionRegistry.release(session);
+                }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            for (RecognitionSession changed : sessionRegistry.pendingParamChanges()) {
+                if (activeSessions.containsKey(changed.getId())) {
+                    RecognitionParams params = paramsOf(changed);
+                    log.info("Session {} now runs with {} (changed on another node)", changed.getId(), params);
+                    sendParams(changed.getId(), params);
+                }
+                sessionRegistry.paramsApplied(changed.getId(), changed.getParams());
+            }
+            sessionRegistry.reapExpired();
+        } catch (RuntimeException e) {
+            // Leases outlive a few missed heartbeats, so a short database outage does not drop sessions
+            log.warn("Session heartbeat failed", e);
         }
-
-        return true;
     }
 
-    // Stop recognition for specific email
+    // Stop every local session of a specific email
     private void stopUserRecognition(String email) {
-        Process process = activeProcesses.get(email);
+        activeSessions.forEach((session, owner) -> {
+            if (owner.equals(email)) {
+                stopSession(session);
+            }
+        });
+    }
+
+    // Removing by session first means two concurrent stops of one session clean it up once
+    private void stopSession(String session) {
+        Worker worker = activeProcesses.remove(session);
+        Process process = worker != null ? worker.process() : null;
         if (process != null && process.isAlive()) {
             process.destroy();
             try {
@@ -210,32 +519,67 @@ public class FaceRecognitionService {
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                e.printStackTrace();
+                log.warn("Interrupted while stopping worker of session {}", session);
+            }
+        }
+        if (activeSessions.remove(session) != null) {
+            sessionRegistry.release(session);
+            frameIngestService.close(session);
+            workerTelemetryService.stop(session);
+            try {
+                deleteGallery(galleryDir(session));
+            } catch (IOException e) {
+                log.warn("Could not clean up gallery of session {}", session, e);
             }
-            activeProcesses.remove(email);
         }
     }
 
+    // A local worker process. Parameter updates from a request and from the heartbeat may write its stdin at
+    // the same time; a lock rather than synchronized, as the write blocks on the pipe and would pin a virtual thread
+    private record Worker(Process process, ReentrantLock stdinLock) {
+    }
+
+    private Path galleryDir(String session) {
+        return Paths.get(tempFacesDir).resolve(session);
+    }
+
+    private static void deleteGallery(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    log.warn("Could not delete face file {}", path, e);
+                }
+            });
+        }
+    }
+
+    // True while any node in the cluster runs a session
     public boolean isRunning() {
-        return isRunning;
+        return !sessionRegistry.liveSessions().isEmpty();
+    }
+
+    public List<RecognitionSession> sessions() {
+        return sessionRegistry.liveSessions();
     }
 
     public Map<String, Object> checkAttendance(String email) {
         Map<String, Object> response = new HashMap<>();
 
-        // Retrieve the user by username
-        Optional<User> userOpt = userRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
+        // Cached identity lookup; the user row (and its face image) is never loaded
+        Optional<UserIdentity> user = userIdentityService.findByEmail(email);
+        if (user.isEmpty()) {
             response.put("marked", false);
             response.put("message", "User not found");
             return response;
         }
 
-        User user = userOpt.get();
-        LocalDate today = LocalDate.now();
-
         // Check if attendance for today exists
-        Optional<Attendance> todayAttendance = attendanceRepository.findByUserAndDate(user, today);
+        Optional<Attendance> todayAttendance = attendanceRepository.findByUserIdAndDate(user.get().getId(), LocalDate.now());
 
         response.put("marked", todayAttendance.isPresent());
         if (todayAttendance.isPresent()) {
@@ -0,0 +1,159 @@
+package com.cws.sam.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Takes browser frames from /frames and writes them into the session's FrameRing for its worker.
+// Each message is a 12-byte little-endian header (float64 capture time in epoch ms, uint32 frames the
+// browser skipped so far) followed by the JPEG. Frames that waited longer than max-age are dropped;
+// clocks are not assumed to agree, so the wait is measured against the session's fastest frame so far.
+@Slf4j
+@Service
+public class FrameIngestService {
+
+    public static final int HEADER_BYTES = 12;
+
+    @Autowired
+    private RecognitionMetrics recognitionMetrics;
+
+    @Value("${face.recognition.frames.dir:frames}")
+    private String framesDir;
+
+    @Value("${face.recognition.frames.slots:4}")
+    private int slots;
+
+    @Value("${face.recognition.frames.max-frame-bytes:524288}")
+    private int maxFrameBytes;
+
+    @Value("${face.recognition.frames.max-age:500ms}")
+    private Duration maxAge;
+
+    private final Map<String, SessionRing> rings = new ConcurrentHashMap<>();
+
+    // Creates the ring a browser-fed session's worker reads from
+    public Path open(String session) throws IOException {
+        Path dir = Paths.get(framesDir).toAbsolutePath();
+        Files.createDirectories(dir);
+        FrameRing ring = FrameRing.create(dir.resolve(session + ".ring"), slots, maxFrameBytes);
+        rings.put(session, new SessionRing(ring));
+        return ring.getFile();
+    }
+
+    public boolean isOpen(String session) {
+        return rings.containsKey(session);
+    }
+
+    public int maxMessageBytes() {
+        return HEADER_BYTES + maxFrameBytes;
+    }
+
+    // Tells the worker no more frames come, counts frames it never took and removes the ring
+    public void close(String session) {
+        SessionRing ring = rings.remove(session);
+        if (ring == null) {
+            return;
+        }
+        synchronized (ring) {
+            ring.ring.close();
+            ring.collect();
+            recognitionMetrics.framesDropped("closed", ring.ring.writeSeq() - ring.ring.readSeq());
+        }
+        try {
+            Files.deleteIfExists(ring.ring.getFile());
+        } catch (IOException e) {
+            // Still mapped by the worker on Windows; overwritten by the next session with this id at the latest
+            log.debug("Could not delete frame ring {}", ring.ring.getFile(), e);
+        }
+    }
+
+    // False when the session has no ring (any more), so the caller can close the connection
+    public boolean accept(String session, ByteBuffer message) {
+        SessionRing ring = rings.get(session);
+        if (ring == null) {
+            return false;
+        }
+        long receivedMicros = FrameRing.nowMicros();
+        recognitionMetrics.frameReceived();
+        if (message.remaining() < HEADER_BYTES) {
+            recognitionMetrics.framesDropped("malformed", 1);
+            return true;
+        }
+        ByteBuffer header = message.slice(message.position(), HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        double captureMillis = header.getDouble(0);
+        if (!Double.isFinite(captureMillis) || captureMillis <= 0) {
+            // A bad capture time would skew the session's clock offset for good
+            recognitionMetrics.framesDropped("malformed", 1);
+            return true;
+        }
+        long captureMicros = (long) (captureMillis * 1000);
+        long clientSkipped = Integer.toUnsignedLong(header.getInt(8));
+        ByteBuffer jpeg = message.slice(message.position() + HEADER_BYTES, message.remaining() - HEADER_BYTES);
+
+        synchronized (ring) {
+            recognitionMetrics.framesDropped("client", clientSkipped - ring.clientSkipped);
+            ring.clientSkipped = Math.max(ring.clientSkipped, clientSkipped);
+
+            long delta = receivedMicros - captureMicros;
+            ring.fastest = Math.min(ring.fastest, delta);
+            long queued = delta - ring.fastest;
+            recognitionMetrics.frameLatency("queue", queued);
+            if (queued > maxAge.toNanos() / 1000) {
+                recognitionMetrics.framesDropped("stale", 1);
+                return true;
+            }
+            if (jpeg.remaining() > ring.ring.maxFrameBytes()) {
+                recognitionMetrics.framesDropped("oversized", 1);
+                return true;
+            }
+            ring.ring.write(captureMicros, receivedMicros, jpeg);
+            ring.collect();
+        }
+        return true;
+    }
+
+    private final class SessionRing {
+        final FrameRing ring;
+        long fastest = Long.MAX_VALUE;
+        long clientSkipped;
+        long lastReadSeq;
+        long reportedSkipped;
+
+        SessionRing(FrameRing ring) {
+            this.ring = ring;
+        }
+
+        // Picks up what the worker took since the last call: frames it skipped and the latest one's latency
+        void collect() {
+            long readSeq = ring.readSeq();
+            if (readSeq <= lastReadSeq) {
+                return;
+            }
+            // Every frame up to readSeq was either taken or skipped; the count may already include a newer read
+            long skipped = readSeq - ring.readCount();
+            if (skipped > reportedSkipped) {
+                recognitionMetrics.framesDropped("overwritten", skipped - reportedSkipped);
+                reportedSkipped = skipped;
+            }
+            long readAt = ring.readAtMicros();
+            long received = ring.receivedMicros(readSeq);
+            long capture = ring.captureMicros(readSeq);
+            if (received > 0 && capture > 0) {
+                recognitionMetrics.frameLatency("delivery", readAt - received);
+                recognitionMetrics.frameLatency("end-to-end", readAt - capture);
+            }
+            lastReadSeq = readSeq;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.cws.sam.services;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+// Memory-mapped ring of the latest camera frames of one session: the backend writes, the worker reads
+// (python-client/frame_ring.py). Readers always take the newest frame, so a slow worker skips stale
+// frames instead of falling behind. Little-endian layout, 64-byte header:
+//   0 magic "SAMR" | 4 format | 8 slots | 12 slot size | 16 write seq | 24 read seq | 32 read at (epoch us)
+//   40 closed | 48 read count
+// then slots; slot seq % slots holds frame seq: 0 seq | 8 capture (epoch us) | 16 received (epoch us)
+//   | 24 length | 32 JPEG bytes. A slot's seq is 0 while it is being written, so readers can detect torn reads.
+public final class FrameRing {
+
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_HEADER_BYTES = 32;
+    private static final byte[] MAGIC = {'S', 'A', 'M', 'R'};
+    private static final int FORMAT_VERSION = 1;
+    private static final int WRITE_SEQ = 16;
+    private static final int READ_SEQ = 24;
+    private static final int READ_AT = 32;
+    private static final int CLOSED = 40;
+    private static final int READ_COUNT = 48;
+
+    // Ordered access to the sequence fields; the mapped pages are shared with another process
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+    private final int slotSize;
+
+    public record Frame(long seq, long captureMicros, long receivedMicros, byte[] data) {
+    }
+
+    private FrameRing(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[4];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC) || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported frame ring format: " + file);
+        }
+        this.slots = buffer.getInt(8);
+        this.slotSize = buffer.getInt(12);
+    }
+
+    // Creates (or truncates) the file with room for slots frames of up to maxFrameBytes each
+    public static FrameRing create(Path file, int slots, int maxFrameBytes) throws IOException {
+        int slotSize = SLOT_HEADER_BYTES + align64(maxFrameBytes);
+        long size = HEADER_BYTES + (long) slots * slotSize;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(8, slots).putInt(12, slotSize);
+            return new FrameRing(file, buffer);
+        }
+    }
+
+    public static FrameRing open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new FrameRing(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int maxFrameBytes() {
+        return slotSize - SLOT_HEADER_BYTES;
+    }
+
+    // Single writer only. Returns the new frame's sequence number, starting at 1.
+    public long write(long captureMicros, long receivedMicros, ByteBuffer jpeg) {
+        int length = jpeg.remaining();
+        if (length > maxFrameBytes()) {
+            throw new IllegalArgumentException("Frame of " + length + " bytes exceeds " + maxFrameBytes());
+        }
+        long seq = writeSeq() + 1;
+        int slot = slotOffset(seq);
+        LONGS.setRelease(buffer, slot, 0L);
+        // A release store only orders what comes before it; keep the frame's bytes from becoming visible
+        // ahead of the 0 a reader checks for
+        VarHandle.storeStoreFence();
+        buffer.putLong(slot + 8, captureMicros).putLong(slot + 16, receivedMicros).putInt(slot + 24, length);
+        buffer.put(slot + SLOT_HEADER_BYTES, jpeg, jpeg.position(), length);
+        LONGS.setRelease(buffer, slot, seq);
+        LONGS.setRelease(buffer, WRITE_SEQ, seq);
+        return seq;
+    }
+
+    // Newest frame not read yet, or null. Marks it read (read seq, read time and read count) for the writer.
+    public Frame readLatest() {
+        while (true) {
+            long seq = writeSeq();
+            if (seq == 0 || seq <= readSeq()) {
+                return null;
+            }
+            int slot = slotOffset(seq);
+            if ((long) LONGS.getAcquire(buffer, slot) != seq) {
+                continue;
+            }
+            byte[] data = new byte[buffer.getInt(slot + 24)];
+            long capture = buffer.getLong(slot + 8);
+            long received = buffer.getLong(slot + 16);
+            buffer.get(slot + SLOT_HEADER_BYTES, data);
+            // Likewise an acquire load only orders what comes after it; the copy must be done before the re-check
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getAcquire(buffer, slot) != seq) {
+                // Overwritten while copying; the writer has a newer frame anyway
+                continue;
+            }
+            buffer.putLong(READ_AT, nowMicros());
+            buffer.putLong(READ_COUNT, buffer.getLong(READ_COUNT) + 1);
+            LONGS.setRelease(buffer, READ_SEQ, seq);
+            return new Frame(seq, capture, received, data);
+        }
+    }
+
+    public long writeSeq() {
+        return (long) LONGS.getAcquire(buffer, WRITE_SEQ);
+    }
+
+    // Last frame the reader took, and when; read count is how many frames it has taken in total
+    public long readSeq() {
+        return (long) LONGS.getAcquire(buffer, READ_SEQ);
+    }
+
+    public long readAtMicros() {
+        return buffer.getLong(READ_AT);
+    }
+
+    public long readCount() {
+        return buffer.getLong(READ_COUNT);
+    }
+
+    // Capture and receive time of frame seq, or -1 once its slot holds a newer frame
+    public long captureMicros(long seq) {
+        int slot = slotOffset(seq);
+        long capture = buffer.getLong(slot + 8);
+        return (long) LONGS.getAcquire(buffer, slot) == seq ? capture : -1;
+    }
+
+    public long receivedMicros(long seq) {
+        int slot = slotOffset(seq);
+        long received = buffer.getLong(slot + 16);
+        return (long) LONGS.getAcquire(buffer, slot) == seq ? received : -1;
+    }
+
+    // Tells the reader no more frames will come
+    public void close() {
+        INTS.setRelease(buffer, CLOSED, 1);
+    }
+
+    public boolean isClosed() {
+        return (int) INTS.getAcquire(buffer, CLOSED) != 0;
+    }
+
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    private int slotOffset(long seq) {
+        return HEADER_BYTES + (int) (seq % slots) * slotSize;
+    }
+
+    private static int align64(int bytes) {
+        return (bytes + 63) & ~63;
+    }
+}
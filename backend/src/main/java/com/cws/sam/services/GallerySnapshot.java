@@ -0,0 +1,134 @@
+package com.cws.sam.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Immutable, memory-mapped gallery file read by the JVM and by every worker (numpy.memmap).
+// Little-endian layout, 64-byte header:
+//   0 magic "SAMG" | 4 format | 8 version | 16 count | 20 dims
+//   24 ids offset | 32 matrix offset | 40 names offset | 48 names length
+// then int64 user ids, a 64-byte aligned row-major float32 matrix (count x dims),
+// and the usernames as UTF-8 joined by '\n'. Row i of every section is the same user.
+public final class GallerySnapshot {
+
+    static final int HEADER_BYTES = 64;
+    private static final byte[] MAGIC = {'S', 'A', 'M', 'G'};
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final long version;
+    private final int count;
+    private final int dims;
+    private final int matrixOffset;
+    private final List<String> usernames;
+    private final Set<String> usernameSet;
+
+    private GallerySnapshot(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[4];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC) || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported gallery snapshot format: " + file);
+        }
+        this.version = buffer.getLong(8);
+        this.count = buffer.getInt(16);
+        this.dims = buffer.getInt(20);
+        this.matrixOffset = (int) buffer.getLong(32);
+
+        byte[] names = new byte[(int) buffer.getLong(48)];
+        buffer.get((int) buffer.getLong(40), names);
+        this.usernames = count == 0 ? List.of() : List.of(new String(names, StandardCharsets.UTF_8).split("\n", -1));
+        this.usernameSet = new HashSet<>(usernames);
+    }
+
+    // Maps the file read-only; the mapping lives as long as this object is reachable
+    public static GallerySnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new GallerySnapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Writes a complete snapshot to file; callers publish it by renaming
+    public static void write(Path file, long version, long[] ids, List<String> usernames, float[] matrix, int dims)
+            throws IOException {
+        int count = ids.length;
+        byte[] names = String.join("\n", usernames).getBytes(StandardCharsets.UTF_8);
+        long idsOffset = HEADER_BYTES;
+        long matrixOffset = align64(idsOffset + 8L * count);
+        long namesOffset = matrixOffset + 4L * matrix.length;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(FORMAT_VERSION).putLong(version).putInt(count).putInt(dims)
+                .putLong(idsOffset).putLong(matrixOffset).putLong(namesOffset).putLong(names.length);
+        header.clear();
+
+        ByteBuffer body = ByteBuffer.allocate((int) (namesOffset + names.length - HEADER_BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (long id : ids) {
+            body.putLong(id);
+        }
+        body.position((int) (matrixOffset - HEADER_BYTES));
+        body.asFloatBuffer().put(matrix);
+        body.position((int) (namesOffset - HEADER_BYTES));
+        body.put(names);
+        body.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] buffers = {header, body};
+            do {
+                channel.write(buffers);
+            } while (header.hasRemaining() || body.hasRemaining());
+            channel.force(true);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getDims() {
+        return dims;
+    }
+
+    public long userId(int row) {
+        return buffer.getLong(HEADER_BYTES + 8 * row);
+    }
+
+    public String username(int row) {
+        return usernames.get(row);
+    }
+
+    public boolean contains(String username) {
+        return usernameSet.contains(username);
+    }
+
+    public float value(int row, int dim) {
+        return buffer.getFloat(matrixOffset + 4 * (row * dims + dim));
+    }
+
+    private static long align64(long offset) {
+        return (offset + 63) & ~63L;
+    }
+}
@@ -0,0 +1,314 @@
+package com.cws.sam.services;
+
+import com.cws.sam.repositories.FaceEnrollmentRepository;
+import com.cws.sam.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Publishes the gallery of every encoded face as one GallerySnapshot file shared by all workers.
+// Each build goes to gallery-<version>.bin and is published by atomically replacing the
+// gallery.current pointer; running workers poll the pointer and remap without restarting.
+// Missing embeddings are computed first through FaceEncoderService and stored on the user row; users with
+// several enrollment photos get one row for their centroid plus one per outlier vector (FaceCentroid).
+@Slf4j
+@Service
+public class GallerySnapshotService {
+
+    static final String POINTER_FILE = "gallery.current";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FaceEnrollmentRepository faceEnrollmentRepository;
+
+    @Autowired
+    private FaceEncoderService faceEncoderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${face.recognition.gallery.snapshot-dir:gallery_snapshot}")
+    private String snapshotDir;
+
+    @Value("${face.recognition.encoder-batch-size:500}")
+    private int encoderBatchSize;
+
+    // Enrollment photos further than this from the others (face distance) are outliers
+    @Value("${face.enrollment.outlier-distance:0.45}")
+    private double outlierDistance;
+
+    @Value("${face.enrollment.max-outlier-vectors:2}")
+    private int maxOutlierVectors;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private volatile GallerySnapshot current;
+
+    // Called whenever a face image, a username or the set of users changes
+    public void invalidate() {
+        dirty.set(true);
+    }
+
+    // The latest snapshot, rebuilt first if anything changed since it was published
+    public GallerySnapshot current() throws IOException {
+        if (current != null && !dirty.get()) {
+            return current;
+        }
+        buildLock.lock();
+        try {
+            if (current == null || dirty.get()) {
+                // Cleared before reading so changes made during the build mark it dirty again
+                dirty.set(false);
+                try {
+                    current = build();
+                } catch (IOException | RuntimeException e) {
+                    dirty.set(true);
+                    throw e;
+                }
+            }
+            return current;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // Keeps running sessions up to date once a snapshot is in use; nothing to do before the first one
+    @Scheduled(fixedDelayString = "${face.recognition.gallery.refresh-interval:30s}")
+    public void refresh() {
+        if (current == null || !dirty.get()) {
+            return;
+        }
+        try {
+            current();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not refresh the gallery snapshot, keeping version {}", current.getVersion(), e);
+        }
+    }
+
+    // True if a face image or enrollment photo changed, possibly on another node, without being encoded yet
+    public boolean hasPendingEncodings() {
+        return !userRepository.findFacesToEncode(PageRequest.of(0, 1)).isEmpty()
+                || !faceEnrollmentRepository.findImagesToEncode(PageRequest.of(0, 1)).isEmpty()
+                || !faceEnrollmentRepository.findUsersToSummarize(PageRequest.of(0, 1)).isEmpty();
+    }
+
+    public Path pointerFile() {
+        return Paths.get(snapshotDir).toAbsolutePath().resolve(POINTER_FILE);
+    }
+
+    private GallerySnapshot build() throws IOException {
+        long start = System.nanoTime();
+        encodeMissing();
+
+        List<UserRepository.EncodingRow> rows = userRepository.findAllEncodings().stream()
+                .filter(row -> row.getFaceEncoding().length > 0)
+                .collect(Collectors.toList());
+        int dims = rows.isEmpty() ? 0 : rows.get(0).getFaceEncoding().length / Float.BYTES;
+        int capacity = rows.size() + rows.stream()
+                .mapToInt(row -> row.getFaceOutliers() == null || dims == 0 ? 0
+                        : row.getFaceOutliers().length / (dims * Float.BYTES))
+                .sum();
+
+        long[] ids = new long[capacity];
+        List<String> usernames = new ArrayList<>(capacity);
+        float[] matrix = new float[capacity * dims];
+        int count = 0;
+        for (UserRepository.EncodingRow row : rows) {
+            if (row.getFaceEncoding().length != dims * Float.BYTES) {
+                log.warn("Skipping embedding of user {} with {} bytes, expected {}",
+                        row.getId(), row.getFaceEncoding().length, dims * Float.BYTES);
+                continue;
+            }
+            // The centroid, then any outlier vectors of the same user
+            ByteBuffer vectors = ByteBuffer.wrap(row.getFaceEncoding()).order(ByteOrder.LITTLE_ENDIAN);
+            if (row.getFaceOutliers() != null && row.getFaceOutliers().length % (dims * Float.BYTES) == 0) {
+                vectors = ByteBuffer.allocate(row.getFaceEncoding().length + row.getFaceOutliers().length)
+                        .order(ByteOrder.LITTLE_ENDIAN).put(row.getFaceEncoding()).put(row.getFaceOutliers()).flip();
+            }
+            while (vectors.remaining() >= dims * Float.BYTES) {
+                ids[count] = row.getId();
+                usernames.add(row.getUsername());
+                vectors.asFloatBuffer().get(matrix, count * dims, dims);
+                vectors.position(vectors.position() + dims * Float.BYTES);
+                count++;
+            }
+        }
+        if (count < capacity) {
+            ids = Arrays.copyOf(ids, count);
+            matrix = Arrays.copyOf(matrix, count * dims);
+        }
+
+        Path dir = Paths.get(snapshotDir).toAbsolutePath();
+        Files.createDirectories(dir);
+        long version = Math.max(System.currentTimeMillis(), current != null ? current.getVersion() + 1 : 0);
+        Path target = dir.resolve("gallery-" + version + ".bin");
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        GallerySnapshot.write(temp, version, ids, usernames, matrix, dims);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        Path pointerTemp = dir.resolve(POINTER_FILE + ".tmp");
+        Files.writeString(pointerTemp, target.getFileName().toString());
+        Files.move(pointerTemp, dir.resolve(POINTER_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        GallerySnapshot snapshot = GallerySnapshot.open(target);
+        deleteOldSnapshots(dir, snapshot.getVersion(), current);
+        log.info("Published gallery snapshot version {} with {} vectors for {} faces ({} bytes) in {} ms", version,
+                count, rows.size(), Files.size(target), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return snapshot;
+    }
+
+    // Encodes, in batches, every face image that has no stored embedding yet, then recomputes the match
+    // vectors of users whose enrollment photos changed
+    private void encodeMissing() throws IOException {
+        encodeSinglePhotos();
+        encodeEnrollments();
+        summarizeEnrollments();
+    }
+
+    private void encodeSinglePhotos() throws IOException {
+        while (true) {
+            List<UserRepository.FaceImageRow> batch = userRepository.findFacesToEncode(
+                    PageRequest.of(0, encoderBatchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<Long, byte[]> images = batch.stream().collect(Collectors.toMap(
+                    UserRepository.FaceImageRow::getId, UserRepository.FaceImageRow::getFaceImage));
+            Map<Long, Long> versions = batch.stream().collect(Collectors.toMap(
+                    UserRepository.FaceImageRow::getId, UserRepository.FaceImageRow::getFaceImageVersion));
+            Map<Long, float[]> encodings = faceEncoderService.encode(images);
+
+            // Images without a face (or that the encoder skipped) get an empty marker so they are not retried
+            List<Object[]> updates = new ArrayList<>(images.size());
+            for (Long id : images.keySet()) {
+                float[] encoding = encodings.getOrDefault(id, new float[0]);
+                ByteBuffer bytes = ByteBuffer.allocate(encoding.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                bytes.asFloatBuffer().put(encoding);
+                updates.add(new Object[]{bytes.array(), id, versions.get(id)});
+                if (encoding.length == 0) {
+                    log.warn("No face found in the enrollment image of user {}", id);
+                }
+            }
+            // Skipped if the image was replaced while the encoder ran; the new one is encoded next time
+            jdbcTemplate.batchUpdate("UPDATE users SET face_encoding = ? WHERE id = ? " +
+                    "AND face_encoding IS NULL AND face_image_version = ?", updates);
+        }
+    }
+
+    private void encodeEnrollments() throws IOException {
+        while (true) {
+            List<FaceEnrollmentRepository.ImageRow> batch = faceEnrollmentRepository.findImagesToEncode(
+                    PageRequest.of(0, encoderBatchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<Long, byte[]> images = batch.stream().collect(Collectors.toMap(
+                    FaceEnrollmentRepository.ImageRow::getId, FaceEnrollmentRepository.ImageRow::getImage));
+            Map<Long, Long> versions = batch.stream().collect(Collectors.toMap(
+                    FaceEnrollmentRepository.ImageRow::getId, FaceEnrollmentRepository.ImageRow::getImageVersion));
+            Map<Long, float[]> encodings = faceEncoderService.encode(images);
+
+            List<Object[]> updates = new ArrayList<>(images.size());
+            for (Long id : images.keySet()) {
+                updates.add(new Object[]{toBytes(List.of(encodings.getOrDefault(id, new float[0]))), id, versions.get(id)});
+            }
+            jdbcTemplate.batchUpdate("UPDATE face_enrollments SET encoding = ? WHERE id = ? " +
+                    "AND encoding IS NULL AND image_version = ?", updates);
+        }
+    }
+
+    // One centroid (and up to maxOutlierVectors extra vectors) per user from the embedded enrollment photos
+    private void summarizeEnrollments() {
+        while (true) {
+            List<Long> userIds = faceEnrollmentRepository.findUsersToSummarize(PageRequest.of(0, encoderBatchSize));
+            if (userIds.isEmpty()) {
+                return;
+            }
+            List<Object[]> users = new ArrayList<>(userIds.size());
+            List<Object[]> flags = new ArrayList<>();
+            for (Long userId : userIds) {
+                List<FaceEnrollmentRepository.EncodingRow> rows = faceEnrollmentRepository.findEncodingsByUserId(userId)
+                        .stream().filter(row -> row.getEncoding().length > 0).collect(Collectors.toList());
+                int dims = rows.isEmpty() ? 0 : rows.get(0).getEncoding().length;
+                rows.removeIf(row -> row.getEncoding().length != dims);
+                if (rows.isEmpty()) {
+                    // Empty marker, as for a single photo without a face
+                    log.warn("No face found in any enrollment photo of user {}", userId);
+                    users.add(new Object[]{new byte[0], null, userId});
+                    continue;
+                }
+                List<float[]> embeddings = rows.stream().map(row -> fromBytes(row.getEncoding()))
+                        .collect(Collectors.toList());
+                FaceCentroid.Result result = FaceCentroid.compute(embeddings, outlierDistance, maxOutlierVectors);
+                users.add(new Object[]{toBytes(List.of(result.centroid())),
+                        result.outlierVectors().isEmpty() ? null : toBytes(result.outlierVectors()), userId});
+                for (int i = 0; i < rows.size(); i++) {
+                    flags.add(new Object[]{result.outlier()[i], rows.get(i).getId()});
+                }
+            }
+            jdbcTemplate.batchUpdate("UPDATE face_enrollments SET outlier = ? WHERE id = ?", flags);
+            // Only while still unset and with no photo pending: an upload since the read above nulls the encoding
+            // again and adds a pending photo, and is summarized with the next build
+            jdbcTemplate.batchUpdate("UPDATE users SET face_encoding = ?, face_outliers = ? WHERE id = ? " +
+                    "AND face_encoding IS NULL AND NOT EXISTS " +
+                    "(SELECT 1 FROM face_enrollments p WHERE p.user_id = users.id AND p.encoding IS NULL)", users);
+        }
+    }
+
+    static byte[] toBytes(List<float[]> vectors) {
+        ByteBuffer bytes = ByteBuffer.allocate(vectors.stream().mapToInt(v -> v.length).sum() * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] vector : vectors) {
+            bytes.asFloatBuffer().put(vector);
+            bytes.position(bytes.position() + vector.length * Float.BYTES);
+        }
+        return bytes.array();
+    }
+
+    static float[] fromBytes(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    // Keeps the new and the previous version, which workers may still have mapped while they switch
+    private static void deleteOldSnapshots(Path dir, long version, GallerySnapshot previous) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> file.getFileName().toString().matches("gallery-\\d+\\.bin"))
+                    .filter(file -> !file.getFileName().toString().equals("gallery-" + version + ".bin"))
+                    .filter(file -> previous == null || !file.equals(previous.getFile()))
+                    .forEach(file -> {
+                        try {
+                            Files.delete(file);
+                        } catch (IOException e) {
+                            // Still mapped somewhere (Windows refuses to delete mapped files); retried next time
+                            log.debug("Could not delete old gallery snapshot {}", file, e);
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.cws.sam.services;
+
+import com.cws.sam.models.GalleryChange;
+import com.cws.sam.repositories.GalleryChangeRepository;
+import com.cws.sam.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+// Gallery sync for recognition devices that match locally. Every face, enrollment or username change and
+// every user deletion appends to the gallery_changes log; its id is the gallery version. A device sends the
+// version it has and gets the users changed since then (current vectors, or a delete) as gzipped JSON,
+// or the whole gallery when it has none yet or is too far behind. Payloads only depend on the two versions,
+// so they are cached and shared by every device polling at the same version.
+@Slf4j
+@Service
+public class GallerySyncService {
+
+    private static final int MAX_CACHED_PAYLOADS = 64;
+
+    @Autowired
+    private GalleryChangeRepository galleryChangeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GallerySnapshotService gallerySnapshotService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Deltas touching more users than this are sent as a full gallery instead
+    @Value("${face.gallery.sync.max-delta-users:500}")
+    private int maxDeltaUsers;
+
+    // A gap in the change ids younger than this may be a change not committed yet; deltas stop before it
+    @Value("${face.gallery.sync.settle:5s}")
+    private Duration settle;
+
+    @Value("${face.gallery.sync.retention:7d}")
+    private Duration retention;
+
+    // version: the version the device has after applying it; body is null when it is already current
+    public record Payload(long version, boolean full, byte[] body) {
+    }
+
+    private final Map<String, Payload> payloads = new ConcurrentHashMap<>();
+
+    // Called by UserService whenever what a device matches against changes for this user
+    public void recordChange(Long userId) {
+        galleryChangeRepository.save(new GalleryChange(userId));
+    }
+
+    public Payload sync(long since) throws IOException {
+        Long oldest = galleryChangeRepository.findOldestVersion();
+        Long latest = galleryChangeRepository.findLatestVersion();
+        // Nothing to build a delta from: no gallery yet, pruned past the device's version, or a database
+        // that was reset behind it
+        if (since <= 0 || oldest == null || since < oldest - 1 || since > latest) {
+            return full(oldest);
+        }
+
+        LocalDateTime settled = galleryChangeRepository.findDatabaseTime().minus(settle);
+        long version = since;
+        Set<Long> users = new LinkedHashSet<>();
+        for (GalleryChangeRepository.ChangeRow change : galleryChangeRepository.findChangesSince(since,
+                PageRequest.of(0, maxDeltaUsers * 4))) {
+            if (change.getId() != version + 1 && change.getCreatedAt().isAfter(settled)) {
+                break;
+            }
+            users.add(change.getUserId());
+            if (users.size() > maxDeltaUsers) {
+                return full(oldest);
+            }
+            version = change.getId();
+        }
+        if (version == since) {
+            return new Payload(since, false, null);
+        }
+
+        String key = since + ":" + version;
+        Payload cached = payloads.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Payload payload = new Payload(version, false, build(since, version, users));
+        cache(key, payload);
+        return payload;
+    }
+
+    // Full gallery as of the newest settled change; later changes come again with the next delta
+    private Payload full(Long oldest) throws IOException {
+        Long settledVersion = galleryChangeRepository.findLatestVersionBefore(
+                galleryChangeRepository.findDatabaseTime().minus(settle));
+        long version = settledVersion != null ? settledVersion : oldest != null ? oldest - 1 : 0;
+        String key = "full:" + version;
+        Payload cached = payloads.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Payload payload = new Payload(version, true, build(null, version, null));
+        cache(key, payload);
+        return payload;
+    }
+
+    // users null: every user with a face
+    private byte[] build(Long since, long version, Collection<Long> users) throws IOException {
+        // Embeddings are computed lazily for the gallery snapshot, possibly not yet on this node
+        if (gallerySnapshotService.hasPendingEncodings()) {
+            gallerySnapshotService.invalidate();
+        }
+        gallerySnapshotService.current();
+
+        List<UserRepository.EncodingRow> rows = users == null ? userRepository.findAllEncodings()
+                : userRepository.findEncodingsByIds(users);
+        Set<Long> deletes = users == null ? new LinkedHashSet<>() : new LinkedHashSet<>(users);
+        List<Map<String, Object>> upserts = new ArrayList<>();
+        int dims = 0;
+        for (UserRepository.EncodingRow row : rows) {
+            if (row.getFaceEncoding() == null || row.getFaceEncoding().length == 0) {
+                continue;
+            }
+            dims = row.getFaceEncoding().length / Float.BYTES;
+            byte[] outliers = row.getFaceOutliers() != null
+                    && row.getFaceOutliers().length % row.getFaceEncoding().length == 0 ? row.getFaceOutliers() : new byte[0];
+            byte[] vectors = new byte[row.getFaceEncoding().length + outliers.length];
+            System.arraycopy(row.getFaceEncoding(), 0, vectors, 0, row.getFaceEncoding().length);
+            System.arraycopy(outliers, 0, vectors, row.getFaceEncoding().length, outliers.length);
+
+            Map<String, Object> upsert = new LinkedHashMap<>();
+            upsert.put("userId", row.getId());
+            upsert.put("username", row.getUsername());
+            // Little-endian float32, the centroid first and then any outlier vectors
+            upsert.put("vectors", Base64.getEncoder().encodeToString(vectors));
+            upserts.add(upsert);
+            deletes.remove(row.getId());
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("version", version);
+        body.put("since", since);
+        body.put("full", users == null);
+        body.put("dims", dims);
+        body.put("upserts", upserts);
+        body.put("deletes", deletes);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, body);
+        }
+        log.debug("Built gallery {} {} -> {}: {} upserts, {} deletes, {} bytes", users == null ? "snapshot" : "delta",
+                since, version, upserts.size(), deletes.size(), bytes.size());
+        return bytes.toByteArray();
+    }
+
+    private void cache(String key, Payload payload) {
+        if (payloads.size() >= MAX_CACHED_PAYLOADS) {
+            payloads.clear();
+        }
+        payloads.put(key, payload);
+    }
+
+    // Devices further behind than the retention get a full gallery
+    @Scheduled(cron = "${face.gallery.sync.prune-cron:0 45 3 * * *}")
+    public void prune() {
+        Long latest = galleryChangeRepository.findLatestVersion();
+        if (latest == null) {
+            return;
+        }
+        // Keeps the newest entry so the current version survives a quiet period
+        int deleted = galleryChangeRepository.deleteOlderThan(
+                galleryChangeRepository.findDatabaseTime().minus(retention), latest);
+        if (deleted > 0) {
+            log.info("Pruned {} gallery changes older than {}", deleted, retention);
+        }
+    }
+}
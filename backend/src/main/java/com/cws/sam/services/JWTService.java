@@ -5,6 +5,7 @@ import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
@@ -20,7 +21,13 @@ public class JWTService {
 
     private String secretkey = "";
 
-    public JWTService() {
+    // Every node behind a load balancer must share the secret (base64, 256 bits or more) or tokens
+    // from one node are rejected by the others; without it each start generates its own key
+    public JWTService(@Value("${jwt.secret:}") String configuredSecret) {
+        if (!configuredSecret.isBlank()) {
+            secretkey = configuredSecret;
+            return;
+        }
         try {
             KeyGenerator keyGen = KeyGenerator.getInstance("HmacSHA256");
             SecretKey sk = keyGen.generateKey();
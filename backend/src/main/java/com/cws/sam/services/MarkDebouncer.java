@@ -0,0 +1,66 @@
+package com.cws.sam.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// Drops repeat recognitions of the same user from the same session inside a quiet window, before
+// any database work. A camera reports a face on many consecutive frames; only the first report per
+// window becomes a mark, and the repeats get its outcome. Entries expire on their own (Caffeine's timer
+// wheel) and the map is size-bounded.
+@Component
+public class MarkDebouncer {
+
+    private static final String NO_SESSION = "-";
+
+    private final Cache<String, CompletableFuture<Boolean>> recent;
+    private final boolean enabled;
+
+    @Autowired
+    private RecognitionMetrics recognitionMetrics;
+
+    public MarkDebouncer(@Value("${attendance.debounce.window:30s}") Duration window,
+                         @Value("${attendance.debounce.max-entries:100000}") long maxEntries) {
+        this.enabled = !window.isZero() && !window.isNegative();
+        this.recent = Caffeine.newBuilder()
+                .expireAfterWrite(enabled ? window : Duration.ofMillis(1))
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    // first: this report should be marked, then passed to done(). Otherwise a repeat, counted and dropped;
+    // outcome is the first report's, incomplete while that mark has not committed yet
+    public record Admission(boolean first, CompletableFuture<Boolean> outcome) {
+    }
+
+    public Admission admit(String username, String session) {
+        CompletableFuture<Boolean> outcome = new CompletableFuture<>();
+        if (!enabled) {
+            return new Admission(true, outcome);
+        }
+        CompletableFuture<Boolean> inFlight = recent.asMap().putIfAbsent(key(username, session), outcome);
+        if (inFlight == null) {
+            return new Admission(true, outcome);
+        }
+        recognitionMetrics.markDebounced();
+        return new Admission(false, inFlight);
+    }
+
+    // Publishes the first report's outcome to its repeats. A failed mark is forgotten so the worker's retry
+    // is not swallowed.
+    public void done(String username, String session, Admission admission, boolean marked) {
+        if (!marked) {
+            recent.asMap().remove(key(username, session), admission.outcome());
+        }
+        admission.outcome().complete(marked);
+    }
+
+    private static String key(String username, String session) {
+        return username + '\n' + (session != null && !session.isBlank() ? session : NO_SESSION);
+    }
+}
@@ -1,8 +1,7 @@
 package com.cws.sam.services;
 
-import com.cws.sam.models.User;
+import com.cws.sam.dtos.UserIdentity;
 import com.cws.sam.models.UserPrincipal;
-import com.cws.sam.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -15,11 +14,11 @@ import java.util.Optional;
 public class MyUserDetailsService implements UserDetailsService {
 
     @Autowired
-    private UserRepository userRepo;
+    private UserIdentityService userIdentityService;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        Optional<User> user = userRepo.findByEmail(email); // ✅ updated
+        Optional<UserIdentity> user = userIdentityService.findByEmail(email);
         if (user.isEmpty()) {
             throw new UsernameNotFoundException("User not found with email: " + email);
         }
@@ -0,0 +1,37 @@
+package com.cws.sam.services;
+
+import com.cws.sam.config.ReadWriteRoutingDataSource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Remembers recent writes per user for as long as the replica may lag behind, so a read-only
+// transaction that reads that user's data back goes to the primary instead.
+@Component
+public class ReadYourWritesGuard {
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWritesGuard(@Value("${spring.datasource.replica.max-lag:5s}") Duration maxLag) {
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(maxLag)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void recordWrite(String email) {
+        if (email != null) {
+            recentWrites.put(email, Boolean.TRUE);
+        }
+    }
+
+    // Call at the start of a read-only transaction that reads data for this user
+    public void beforeRead(String email) {
+        if (email != null && recentWrites.getIfPresent(email) != null) {
+            ReadWriteRoutingDataSource.usePrimaryForCurrentTransaction();
+        }
+    }
+}
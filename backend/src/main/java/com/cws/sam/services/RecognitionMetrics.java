@@ -0,0 +1,159 @@
+package com.cws.sam.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Meters for the recognition and attendance hot paths, scraped from /actuator/prometheus.
+// Marks per second is rate(attendance_marks_total[1m]) on the Prometheus side.
+@Component
+public class RecognitionMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer markLookup;
+    private final Timer markSave;
+    private final Counter marks;
+    private final Counter marksFailed;
+    private final Counter marksDebounced;
+    private final Timer galleryBuild;
+    private final AtomicInteger gallerySize = new AtomicInteger();
+    private final DistributionSummary galleryFaces;
+    private final Timer sessionStart;
+    private final Timer jwtValidation;
+    private final Counter framesReceived;
+    private final Counter workerFramesProcessed;
+    private final Counter workerFramesSkipped;
+    private final DistributionSummary workerQueueDepth;
+    private final Timer workerSpawn;
+
+    @Autowired
+    public RecognitionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.markLookup = Timer.builder("attendance.mark").tag("phase", "lookup")
+                .description("Time to resolve the user and today's record for a mark").register(registry);
+        this.markSave = Timer.builder("attendance.mark").tag("phase", "save")
+                .description("Time to persist a mark").register(registry);
+        this.marks = Counter.builder("attendance.marks").tag("result", "recorded").register(registry);
+        this.marksFailed = Counter.builder("attendance.marks").tag("result", "rejected").register(registry);
+        this.marksDebounced = Counter.builder("attendance.marks").tag("result", "debounced")
+                .description("Repeat recognitions dropped before reaching the database").register(registry);
+        this.galleryBuild = Timer.builder("recognition.gallery.build")
+                .description("Time to export enrolled faces for a session").register(registry);
+        registry.gauge("recognition.gallery.size", gallerySize);
+        this.galleryFaces = DistributionSummary.builder("recognition.gallery.faces")
+                .description("Faces exported per session gallery").register(registry);
+        this.sessionStart = Timer.builder("recognition.session.start")
+                .description("Start request to worker spawned, including the gallery export").register(registry);
+        this.jwtValidation = Timer.builder("jwt.validation")
+                .description("User lookup and token validation in JwtFilter").register(registry);
+        this.framesReceived = Counter.builder("frames.received")
+                .description("Frames received from browsers over /frames").register(registry);
+        this.workerFramesProcessed = Counter.builder("recognition.worker.frames").tag("outcome", "processed")
+                .description("Frames read by workers, as reported in their telemetry").register(registry);
+        this.workerFramesSkipped = Counter.builder("recognition.worker.frames").tag("outcome", "skipped")
+                .description("Frames read by workers, as reported in their telemetry").register(registry);
+        this.workerQueueDepth = DistributionSummary.builder("recognition.worker.queue.depth")
+                .description("Frames waiting at the source when a worker took one").register(registry);
+        this.workerSpawn = Timer.builder("recognition.worker.spawn")
+                .description("Worker process start to camera ready").register(registry);
+    }
+
+    public Timer markLookup() {
+        return markLookup;
+    }
+
+    public Timer markSave() {
+        return markSave;
+    }
+
+    public Timer jwtValidation() {
+        return jwtValidation;
+    }
+
+    public void markRecorded() {
+        marks.increment();
+    }
+
+    public void markRejected() {
+        marksFailed.increment();
+    }
+
+    public void markDebounced() {
+        marksDebounced.increment();
+    }
+
+    public void galleryBuilt(long nanos, int faces) {
+        galleryBuild.record(nanos, TimeUnit.NANOSECONDS);
+        gallerySize.set(faces);
+        galleryFaces.record(faces);
+    }
+
+    public void sessionStarted(long nanos) {
+        sessionStart.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackActiveSessions(Map<String, ?> sessions) {
+        registry.gaugeMapSize("recognition.sessions.active", java.util.List.of(), sessions);
+    }
+
+    // From process start until the worker reports its camera is open
+    // Not tagged per session: session ids are emails, and each would be a new time series
+    public void workerReady(long nanos) {
+        workerSpawn.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void frameReceived() {
+        framesReceived.increment();
+    }
+
+    // reason: stale (queued too long), overwritten (worker never took it), client (skipped by the browser),
+    // oversized or closed
+    public void framesDropped(String reason, long count) {
+        if (count > 0) {
+            Counter.builder("frames.dropped").tag("reason", reason)
+                    .description("Browser frames that never reached a worker").register(registry)
+                    .increment(count);
+        }
+    }
+
+    // stage: queue (delay beyond the session's fastest frame), delivery (received to taken by the worker,
+    // server clock only) or end-to-end (capture to taken by the worker, needs client and server clocks in sync)
+    public void frameLatency(String stage, long micros) {
+        if (micros >= 0) {
+            Timer.builder("frames.latency").tag("stage", stage)
+                    .description("Browser frame latency per stage").register(registry)
+                    .record(micros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    // Worker telemetry of all sessions together; /sessions/{session}/stats has it per session
+    public void workerFrames(long processed, long skipped) {
+        workerFramesProcessed.increment(Math.max(0, processed));
+        workerFramesSkipped.increment(Math.max(0, skipped));
+    }
+
+    public void workerQueueDepth(long depth) {
+        workerQueueDepth.record(depth);
+    }
+
+    // stage: capture, frame, detect, encode, match, mark or frame_to_mark (see WorkerTelemetryService)
+    public void workerStage(String stage, long micros) {
+        Timer.builder("recognition.worker.stage").tag("stage", stage)
+                .description("Worker time per recognition stage").register(registry)
+                .record(micros, TimeUnit.MICROSECONDS);
+    }
+
+    public void workerExited(int exitCode) {
+        Counter.builder("recognition.worker.exits")
+                .tag("exitCode", Integer.toString(exitCode))
+                .register(registry)
+                .increment();
+    }
+}
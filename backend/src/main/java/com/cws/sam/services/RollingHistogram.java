@@ -0,0 +1,56 @@
+package com.cws.sam.services;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.IntCountsHistogram;
+
+// Values recorded over the last window, in fixed memory: the window is split into slices, each an
+// HdrHistogram that is reset and reused once it falls out of the window. Values above highest are
+// clamped. Not thread-safe on its own; SessionTelemetry guards it.
+final class RollingHistogram {
+
+    private final IntCountsHistogram[] slices;
+    private final long[] sliceStarts;
+    private final long sliceMillis;
+    private final long highest;
+
+    RollingHistogram(int slices, long windowMillis, long highest, int significantDigits) {
+        this.slices = new IntCountsHistogram[slices];
+        this.sliceStarts = new long[slices];
+        this.sliceMillis = Math.max(1, windowMillis / slices);
+        this.highest = highest;
+        for (int i = 0; i < slices; i++) {
+            this.slices[i] = new IntCountsHistogram(1, highest, significantDigits);
+            this.sliceStarts[i] = Long.MIN_VALUE;
+        }
+    }
+
+    void record(long value, long nowMillis) {
+        long start = nowMillis - Math.floorMod(nowMillis, sliceMillis);
+        int index = (int) Math.floorMod(start / sliceMillis, (long) slices.length);
+        if (sliceStarts[index] != start) {
+            slices[index].reset();
+            sliceStarts[index] = start;
+        }
+        slices[index].recordValue(Math.max(0, Math.min(value, highest)));
+    }
+
+    // Everything recorded in the slices still inside the window
+    Histogram window(long nowMillis) {
+        Histogram merged = new Histogram(1, highest, slices[0].getNumberOfSignificantValueDigits());
+        long oldest = nowMillis - Math.floorMod(nowMillis, sliceMillis) - (slices.length - 1) * sliceMillis;
+        for (int i = 0; i < slices.length; i++) {
+            if (sliceStarts[i] >= oldest) {
+                merged.add(slices[i]);
+            }
+        }
+        return merged;
+    }
+
+    long footprintBytes() {
+        long bytes = 0;
+        for (IntCountsHistogram slice : slices) {
+            bytes += slice.getEstimatedFootprintInBytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,113 @@
+package com.cws.sam.services;
+
+import com.cws.sam.models.RecognitionSession;
+import com.cws.sam.repositories.RecognitionSessionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Cluster-wide view of running recognition sessions, kept in the recognition_sessions table.
+// Nodes never call each other: a stop for another node's session is a flag on its row, which the
+// owner picks up on its next heartbeat (see FaceRecognitionService.heartbeat).
+@Slf4j
+@Service
+public class SessionRegistry {
+
+    @Autowired
+    private RecognitionSessionRepository repository;
+
+    // Defaults to pid@host, which is unique for several instances on one machine too
+    @Value("${cluster.node-id:}")
+    private String nodeId;
+
+    @Value("${cluster.session-lease:15s}")
+    private Duration lease;
+
+    @PostConstruct
+    void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        log.info("Recognition sessions on this node are registered as {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // Claims a new session for this node; a session for the same email elsewhere is asked to stop
+    public void register(String session, String email, String params) {
+        int elsewhere = repository.requestStopOnOtherNodes(nodeId, email);
+        if (elsewhere > 0) {
+            log.info("Asked {} session(s) of {} on other nodes to stop", elsewhere, email);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        repository.save(new RecognitionSession(session, email, nodeId, now, now.plus(lease), false,
+                params, false));
+    }
+
+    public void release(String session) {
+        repository.deleteSession(session);
+    }
+
+    // Extends the lease of every session still running here and drops rows this node no longer runs;
+    // sessions is this node's view of its running sessions, taken at asOf
+    public void renew(Collection<String> sessions, LocalDateTime asOf) {
+        if (sessions.isEmpty()) {
+            repository.deleteOrphans(nodeId, asOf);
+            return;
+        }
+        repository.renew(nodeId, sessions, LocalDateTime.now().plus(lease));
+        repository.deleteOrphans(nodeId, sessions, asOf);
+    }
+
+    // Sessions on this node that some node asked to stop
+    public List<String> pendingStops() {
+        return repository.findStopRequests(nodeId);
+    }
+
+    public Optional<RecognitionSession> find(String session) {
+        return repository.findSession(session);
+    }
+
+    // Stores new params; changed=true hands them to the owning node on its next heartbeat
+    public boolean updateParams(String session, String params, boolean changed) {
+        return repository.updateParams(session, params, changed) > 0;
+    }
+
+    // Sessions on this node whose params another node changed
+    public List<RecognitionSession> pendingParamChanges() {
+        return repository.findParamChanges(nodeId);
+    }
+
+    public void paramsApplied(String session, String params) {
+        repository.clearParamsChanged(session, params);
+    }
+
+    // Flags every session owned by another node; returns how many were flagged
+    public int requestStopOnOtherNodes() {
+        return repository.requestStopOnOtherNodes(nodeId);
+    }
+
+    public List<RecognitionSession> liveSessions() {
+        return repository.findLive(LocalDateTime.now());
+    }
+
+    // Removes sessions of nodes that stopped heartbeating
+    public int reapExpired() {
+        int reaped = repository.deleteExpired(LocalDateTime.now());
+        if (reaped > 0) {
+            log.warn("Removed {} recognition session(s) whose node stopped renewing its lease", reaped);
+        }
+        return reaped;
+    }
+}
@@ -0,0 +1,126 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.UserIdentity;
+import com.cws.sam.models.IdentityChange;
+import com.cws.sam.repositories.IdentityChangeRepository;
+import com.cws.sam.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Cached identity lookups for the per-request paths (JWT auth, /mark, /check).
+// Misses are not cached so a newly registered user is visible at once; UserService evicts on every change
+// once it has committed. Other nodes learn of it from the identity_changes log, which they poll every
+// identity-cache.refresh-interval; the cache TTL (spring.cache.caffeine.spec) is only a backstop.
+@Slf4j
+@Service
+public class UserIdentityService {
+
+    public static final String BY_EMAIL = "usersByEmail";
+    public static final String BY_USERNAME = "usersByUsername";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IdentityChangeRepository identityChangeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Changes are re-read for this long, so one whose transaction commits after a later one is not missed
+    @Value("${identity-cache.change-window:1m}")
+    private Duration changeWindow;
+
+    @Value("${identity-cache.retention:1d}")
+    private Duration retention;
+
+    // Changes inside the window this node has already evicted
+    private Set<Long> evictedChanges = Set.of();
+
+    @Cacheable(cacheNames = BY_EMAIL, unless = "#result == null")
+    public Optional<UserIdentity> findByEmail(String email) {
+        return userRepository.findIdentityByEmail(email);
+    }
+
+    @Cacheable(cacheNames = BY_USERNAME, unless = "#result == null")
+    public Optional<UserIdentity> findByUsername(String username) {
+        return userRepository.findIdentityByUsername(username);
+    }
+
+    // Puts identities loaded in bulk into both caches, as if each had been looked up once
+    public void prime(List<UserIdentity> identities) {
+        Cache byEmail = cacheManager.getCache(BY_EMAIL);
+        Cache byUsername = cacheManager.getCache(BY_USERNAME);
+        for (UserIdentity identity : identities) {
+            if (byEmail != null) {
+                byEmail.put(identity.getEmail(), identity);
+            }
+            if (byUsername != null) {
+                byUsername.put(identity.getUsername(), identity);
+            }
+        }
+    }
+
+    // Pass the values from before the change so a renamed user does not stay cached under the old name
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BY_EMAIL, key = "#email"),
+            @CacheEvict(cacheNames = BY_USERNAME, key = "#username")
+    })
+    public void evict(String email, String username) {
+    }
+
+    // Call inside the changing transaction, with the values from before the change, so other nodes evict too
+    public void recordChange(String email, String username) {
+        identityChangeRepository.save(new IdentityChange(email, username));
+    }
+
+    @Scheduled(fixedDelayString = "${identity-cache.refresh-interval:2s}",
+            initialDelayString = "${identity-cache.refresh-interval:2s}")
+    public void evictChanged() {
+        LocalDateTime since = identityChangeRepository.findDatabaseTime().minus(changeWindow);
+        Set<Long> seen = new HashSet<>();
+        for (IdentityChange change : identityChangeRepository.findChangesSince(since)) {
+            seen.add(change.getId());
+            if (!evictedChanges.contains(change.getId())) {
+                evictKeys(change.getEmail(), change.getUsername());
+            }
+        }
+        evictedChanges = seen;
+    }
+
+    @Scheduled(cron = "${identity-cache.prune-cron:0 50 3 * * *}")
+    public void prune() {
+        int deleted = identityChangeRepository.deleteOlderThan(
+                identityChangeRepository.findDatabaseTime().minus(retention));
+        if (deleted > 0) {
+            log.info("Pruned {} identity changes older than {}", deleted, retention);
+        }
+    }
+
+    // Not evict(): a self-call would bypass the cache proxy
+    private void evictKeys(String email, String username) {
+        Cache byEmail = cacheManager.getCache(BY_EMAIL);
+        Cache byUsername = cacheManager.getCache(BY_USERNAME);
+        if (byEmail != null && email != null) {
+            byEmail.evict(email);
+        }
+        if (byUsername != null && username != null) {
+            byUsername.evict(username);
+        }
+    }
+}
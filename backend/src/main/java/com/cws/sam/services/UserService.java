@@ -1,38 +1,88 @@
 package com.cws.sam.services;
 
+import com.cws.sam.dtos.FaceEnrollmentDto;
+import com.cws.sam.dtos.FaceImageQualityDto;
 import com.cws.sam.dtos.LoginRequestDto;
 import com.cws.sam.dtos.LoginResponseDto;
+import com.cws.sam.dtos.UserDetailDto;
+import com.cws.sam.dtos.UserIdentity;
 import com.cws.sam.dtos.UserRequestDto;
+import com.cws.sam.dtos.UserResponseDto;
 import com.cws.sam.exceptions.AuthenticationFailedException;
 import com.cws.sam.exceptions.FaceImageProcessingException;
+import com.cws.sam.exceptions.FaceImageRejectedException;
 import com.cws.sam.exceptions.UserAlreadyExistsException;
 import com.cws.sam.exceptions.UserNotFoundException;
+import com.cws.sam.models.FaceEnrollment;
 import com.cws.sam.models.User;
+import com.cws.sam.models.UserPrincipal;
+import com.cws.sam.repositories.AttendanceRepository;
+import com.cws.sam.repositories.FaceEnrollmentRepository;
 import com.cws.sam.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    private static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+    // Roles that unlock more than a user's own data: admin, and devices that download the face gallery
+    private static final Set<String> PRIVILEGED_AUTHORITIES = Set.of(ADMIN_AUTHORITY, "ROLE_DEVICE");
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private UserIdentityService userIdentityService;
+
+    @Autowired
+    private ReadYourWritesGuard readYourWritesGuard;
+
+    @Autowired
+    private GallerySnapshotService gallerySnapshotService;
+
+    @Autowired
+    private FaceImageQualityService faceImageQualityService;
+
+    @Autowired
+    private FaceEnrollmentRepository faceEnrollmentRepository;
+
+    @Autowired
+    private GallerySyncService gallerySyncService;
+
+    @Value("${face.enrollment.max-images:10}")
+    private int maxEnrollmentImages;
+
     @Autowired
     private JWTService jwtService;
 
@@ -42,14 +92,24 @@ public class UserService {
     @Autowired
     private PasswordEncoder encoder;
 
-    // Helper: encode image to byte[]
+    // Helper: encode image to byte[], rejecting photos that would not give a usable embedding
     private byte[] encodeFaceImage(MultipartFile faceImage) throws IOException {
         if (faceImage != null && !faceImage.isEmpty()) {
-            return faceImage.getBytes();
+            byte[] bytes = faceImage.getBytes();
+            FaceImageQualityDto quality = checkFaceImage(bytes);
+            if (!quality.isAccepted()) {
+                throw new FaceImageRejectedException(quality);
+            }
+            return bytes;
         }
         return null;
     }
 
+    // Quality check only, without storing anything
+    public FaceImageQualityDto checkFaceImage(byte[] imageBytes) throws IOException {
+        return faceImageQualityService.assess(decodeFaceImage(imageBytes));
+    }
+
     private BufferedImage decodeFaceImage(byte[] imageBytes) throws IOException {
         if (imageBytes != null && imageBytes.length > 0) {
             try (ByteArrayInputStream bais = new ByteArrayInputStream(imageBytes)) {
@@ -59,19 +119,39 @@ public class UserService {
         return null;  // Return null if the byte array is empty or null
     }
 
+    @Transactional(readOnly = true)
+    public List<UserResponseDto> getAllUsers() {
+        return userRepository.findAllUserDtos();
+    }
+
+    // User with the last `days` days of attendance: one query for the user, one for the attendance
+    @Transactional(readOnly = true)
+    public Optional<UserDetailDto> getUserDetail(String email, int days) {
+        readYourWritesGuard.beforeRead(email);
+        return userRepository.findUserDtoByEmail(email)
+                .map(user -> new UserDetailDto(user, attendanceRepository.findRecentDtosByUserId(
+                        user.getId(), LocalDate.now().minusDays(days))));
+    }
+
     // Register new user (WITHOUT face image)
     public User register(UserRequestDto requestDto) {
         if (userRepository.findByUsername(requestDto.getUsername()).isPresent()) {
             throw new UserAlreadyExistsException("Username already exists");
         }
 
+        checkRoleAssignable(requestDto.getRole());
         User user = new User();
         user.setUsername(requestDto.getUsername());
         user.setPassword(encoder.encode(requestDto.getPassword()));
         user.setRole(requestDto.getRole());
         user.setEmail(requestDto.getEmail());
+        user.setClassName(requestDto.getClassName());
+        user.setSite(requestDto.getSite());
+        user.setShift(requestDto.getShift());
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        readYourWritesGuard.recordWrite(saved.getEmail());
+        return saved;
     }
 
     // Login: verify + generate token
@@ -89,7 +169,7 @@ public class UserService {
                         .collect(Collectors.toList());
 
                 String email = loginRequestDto.getEmail();
-                User user = userRepository.findByEmail(email)
+                UserIdentity user = userIdentityService.findByEmail(email)
                         .orElseThrow(() -> new AuthenticationFailedException("User not found"));
 
                 String token = jwtService.generateToken(loginRequestDto.getEmail(), roles);
@@ -117,9 +197,11 @@ public class UserService {
 
 
     // Update user by email (with optional face image)
+    @Transactional
     public User updateByEmail(String email, UserRequestDto requestDto, MultipartFile faceImage) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
+        String previousUsername = user.getUsername();
 
         if (requestDto.getUsername() != null) {
             user.setUsername(requestDto.getUsername());
@@ -130,30 +212,64 @@ public class UserService {
         }
 
         if (requestDto.getRole() != null) {
+            checkRoleAssignable(requestDto.getRole());
             user.setRole(requestDto.getRole());
         }
 
+        if (requestDto.getClassName() != null) {
+            user.setClassName(requestDto.getClassName());
+        }
+        if (requestDto.getSite() != null) {
+            user.setSite(requestDto.getSite());
+        }
+        if (requestDto.getShift() != null) {
+            user.setShift(requestDto.getShift());
+        }
+
+        boolean faceChanged = false;
         try {
             byte[] faceBytes = encodeFaceImage(faceImage);
             if (faceBytes != null) {
                 user.setFaceImage(faceBytes);
+                user.setFaceEncoding(null);
+                replacePrimaryEnrollment(user, faceBytes);
+                faceChanged = true;
             }
         } catch (IOException e) {
             throw new FaceImageProcessingException("Error processing face image: " + e.getMessage());
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        boolean galleryChanged = faceChanged || !user.getUsername().equals(previousUsername);
+        afterCommit(() -> {
+            userIdentityService.evict(email, previousUsername);
+            readYourWritesGuard.recordWrite(email);
+            // The gallery snapshot carries usernames and embeddings
+            if (galleryChanged) {
+                gallerySnapshotService.invalidate();
+            }
+        });
+        userIdentityService.recordChange(email, previousUsername);
+        if (galleryChanged) {
+            gallerySyncService.recordChange(saved.getId());
+        }
+        return saved;
     }
 
     // NEW: Update only face image by email
+    @Transactional
     public User updateFaceImageByEmail(String email, MultipartFile faceImage) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
 
+        boolean faceChanged = false;
         try {
             byte[] faceBytes = encodeFaceImage(faceImage);
             if (faceBytes != null) {
                 user.setFaceImage(faceBytes);
+                user.setFaceEncoding(null);
+                replacePrimaryEnrollment(user, faceBytes);
+                faceChanged = true;
             } else {
                 throw new FaceImageProcessingException("Face image is empty or invalid");
             }
@@ -161,6 +277,177 @@ public class UserService {
             throw new FaceImageProcessingException("Error processing face image: " + e.getMessage());
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        afterCommit(() -> {
+            userIdentityService.evict(email, user.getUsername());
+            readYourWritesGuard.recordWrite(email);
+            gallerySnapshotService.invalidate();
+        });
+        gallerySyncService.recordChange(saved.getId());
+        return saved;
+    }
+
+    // Delete user by email; returns false if there is no such user
+    @Transactional
+    public boolean deleteUser(String email) {
+        Optional<User> user = userRepository.findByEmail(email);
+        if (user.isEmpty()) {
+            return false;
+        }
+        faceEnrollmentRepository.deleteByUserId(user.get().getId());
+        userRepository.delete(user.get());
+        afterCommit(() -> {
+            userIdentityService.evict(email, user.get().getUsername());
+            gallerySnapshotService.invalidate();
+        });
+        userIdentityService.recordChange(email, user.get().getUsername());
+        gallerySyncService.recordChange(user.get().getId());
+        return true;
+    }
+
+    // Adds enrollment photos, each quality-checked like /image; returns one result per file. The user's
+    // current photo becomes the primary enrollment first; without one, the first accepted photo becomes it.
+    // The match vector is recomputed from all photos with the next gallery snapshot.
+    @Transactional
+    public List<Map<String, Object>> addEnrollmentImages(String email, List<MultipartFile> images) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
+        long count = faceEnrollmentRepository.countByUserId(user.getId());
+        if (count == 0 && user.getFaceImage() != null) {
+            faceEnrollmentRepository.save(new FaceEnrollment(user, user.getFaceImage(), true));
+            count++;
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        boolean added = false;
+        for (MultipartFile image : images) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("file", image.getOriginalFilename());
+            result.put("success", false);
+            try {
+                byte[] bytes = count < maxEnrollmentImages ? encodeFaceImage(image) : null;
+                if (count >= maxEnrollmentImages) {
+                    result.put("reasons", List.of("at most " + maxEnrollmentImages + " enrollment photos per user"));
+                } else if (bytes == null) {
+                    result.put("reasons", List.of("empty file"));
+                } else {
+                    boolean primary = user.getFaceImage() == null;
+                    if (primary) {
+                        user.setFaceImage(bytes);
+                    }
+                    FaceEnrollment saved = faceEnrollmentRepository.save(new FaceEnrollment(user, bytes, primary));
+                    result.put("success", true);
+                    result.put("id", saved.getId());
+                    count++;
+                    added = true;
+                }
+            } catch (FaceImageRejectedException e) {
+                result.put("reasons", e.getQuality().getReasons());
+                result.put("quality", e.getQuality());
+            } catch (FaceImageProcessingException e) {
+                result.put("reasons", List.of(e.getMessage()));
+            } catch (IOException e) {
+                result.put("reasons", List.of("could not read the upload: " + e.getMessage()));
+            }
+            results.add(result);
+        }
+
+        if (added) {
+            user.setFaceEncoding(null);
+            user.setFaceOutliers(null);
+            userRepository.save(user);
+            afterCommit(() -> {
+                readYourWritesGuard.recordWrite(email);
+                gallerySnapshotService.invalidate();
+            });
+            gallerySyncService.recordChange(user.getId());
+        }
+        return results;
+    }
+
+    @Transactional(readOnly = true)
+    public List<FaceEnrollmentDto> getEnrollments(String email) {
+        readYourWritesGuard.beforeRead(email);
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
+        float[] centroid = user.getFaceEncoding() == null ? new float[0]
+                : GallerySnapshotService.fromBytes(user.getFaceEncoding());
+        return faceEnrollmentRepository.findRowsByUserId(user.getId()).stream()
+                .map(row -> {
+                    byte[] encoding = row.getEncoding();
+                    String status = encoding == null ? "pending" : encoding.length == 0 ? "no-face" : "encoded";
+                    Double distance = encoding != null && encoding.length > 0 && encoding.length == centroid.length * Float.BYTES
+                            ? FaceCentroid.distance(GallerySnapshotService.fromBytes(encoding), centroid) : null;
+                    return new FaceEnrollmentDto(row.getId(), row.isPrimaryImage(), status, row.isOutlier(), distance,
+                            row.getCreatedAt());
+                })
+                .collect(Collectors.toList());
+    }
+
+    // False if the user has no such photo; the primary photo is replaced through /image instead
+    @Transactional
+    public boolean deleteEnrollment(String email, Long id) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
+        Optional<FaceEnrollment> enrollment = faceEnrollmentRepository.findById(id)
+                .filter(found -> found.getUser().getId().equals(user.getId()));
+        if (enrollment.isEmpty()) {
+            return false;
+        }
+        if (enrollment.get().isPrimaryImage()) {
+            throw new FaceImageProcessingException("The primary photo cannot be deleted, upload a new one through /image");
+        }
+        faceEnrollmentRepository.delete(enrollment.get());
+        user.setFaceEncoding(null);
+        user.setFaceOutliers(null);
+        userRepository.save(user);
+        afterCommit(() -> {
+            readYourWritesGuard.recordWrite(email);
+            gallerySnapshotService.invalidate();
+        });
+        gallerySyncService.recordChange(user.getId());
+        return true;
+    }
+
+    // /register is public, so only an admin may hand out the admin or device role
+    private static void checkRoleAssignable(String role) {
+        if (role == null || !PRIVILEGED_AUTHORITIES.contains(UserPrincipal.authority(role))) {
+            return;
+        }
+        Authentication caller = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = caller != null && caller.getAuthorities().stream()
+                .anyMatch(authority -> ADMIN_AUTHORITY.equals(authority.getAuthority()));
+        if (!admin) {
+            throw new AccessDeniedException("Only admins can assign the " + role + " role");
+        }
+    }
+
+    // Caches are dropped once the change is visible; dropped earlier, a concurrent read could load
+    // the old row back into them
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Once a user has enrollment photos, the primary one follows the user's photo
+    private void replacePrimaryEnrollment(User user, byte[] image) {
+        if (user.getId() == null || faceEnrollmentRepository.countByUserId(user.getId()) == 0) {
+            return;
+        }
+        FaceEnrollment primary = faceEnrollmentRepository.findFirstByUserIdAndPrimaryImageTrue(user.getId())
+                .orElseGet(() -> new FaceEnrollment(user, image, true));
+        primary.setImage(image);
+        primary.setEncoding(null);
+        primary.setOutlier(false);
+        faceEnrollmentRepository.save(primary);
+        user.setFaceOutliers(null);
     }
 }
@@ -0,0 +1,204 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.AttendanceRecordDto;
+import com.cws.sam.dtos.UserIdentity;
+import com.cws.sam.repositories.AttendanceRepository;
+import com.cws.sam.repositories.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// Runs once after startup, off the main thread, so the first requests after a deploy do not pay for an
+// empty connection pool, cold Hibernate queries, empty identity caches and an unbuilt gallery.
+// WarmupHealthIndicator keeps the readiness probe OUT_OF_SERVICE until every phase has finished; a failed
+// phase is logged and reported but does not keep the node out of rotation.
+@Slf4j
+@Service
+public class WarmupService {
+
+    @Autowired
+    private ObjectProvider<HikariDataSource> dataSources;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private UserIdentityService userIdentityService;
+
+    @Autowired
+    private GallerySnapshotService gallerySnapshotService;
+
+    @Autowired
+    private JWTService jwtService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SimpleAsyncTaskExecutorBuilder taskExecutorBuilder;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    // Users with attendance in this many days count as active and get their identity cached
+    @Value("${warmup.identity-days:7}")
+    private int identityDays;
+
+    @Value("${warmup.max-identities:5000}")
+    private int maxIdentities;
+
+    @Value("${face.recognition.gallery.mode:snapshot}")
+    private String galleryMode;
+
+    private final Map<String, Map<String, Object>> phases = new LinkedHashMap<>();
+    private volatile boolean finished;
+    private volatile long totalMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            finished = true;
+            return;
+        }
+        taskExecutorBuilder.threadNamePrefix("warmup-").build().execute(this::run);
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getTotalMs() {
+        return totalMs;
+    }
+
+    // Status, duration and result of every phase that has run so far
+    public synchronized Map<String, Map<String, Object>> getPhases() {
+        Map<String, Map<String, Object>> copy = new LinkedHashMap<>();
+        phases.forEach((name, phase) -> copy.put(name, new LinkedHashMap<>(phase)));
+        return copy;
+    }
+
+    void run() {
+        long start = System.nanoTime();
+        try {
+            phase("connection-pool", this::fillPools);
+            phase("auth", this::exerciseAuth);
+            phase("identities", this::loadIdentities);
+            phase("attendance", this::loadTodayAttendance);
+            if (galleryMode.equals("snapshot")) {
+                phase("gallery", () -> {
+                    GallerySnapshot snapshot = gallerySnapshotService.current();
+                    return "version " + snapshot.getVersion() + ", " + snapshot.getCount() + " faces";
+                });
+            }
+        } finally {
+            totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            finished = true;
+            log.info("Warm-up finished in {} ms, ready for traffic", totalMs);
+        }
+    }
+
+    private void phase(String name, Callable<String> work) {
+        long start = System.nanoTime();
+        String status = "ok";
+        String result;
+        try {
+            result = work.call();
+        } catch (Exception e) {
+            status = "failed";
+            result = e.getMessage();
+            log.warn("Warm-up phase {} failed, continuing", name, e);
+        }
+        long nanos = System.nanoTime() - start;
+        Timer.builder("startup.warmup").tag("phase", name).tag("status", status)
+                .description("Duration of each startup warm-up phase").register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("status", status);
+        phase.put("ms", TimeUnit.NANOSECONDS.toMillis(nanos));
+        phase.put("result", result);
+        synchronized (this) {
+            phases.put(name, phase);
+        }
+        log.info("Warm-up phase {} {} in {} ms: {}", name, status, phase.get("ms"), result);
+    }
+
+    // Opens the pool's minimum idle connections now instead of on the first requests
+    private String fillPools() throws SQLException {
+        List<String> filled = new ArrayList<>();
+        for (HikariDataSource pool : dataSources) {
+            int target = Math.max(1, Math.min(pool.getMinimumIdle(), pool.getMaximumPoolSize()));
+            List<Connection> connections = new ArrayList<>(target);
+            try {
+                for (int i = 0; i < target; i++) {
+                    Connection connection = pool.getConnection();
+                    connections.add(connection);
+                    connection.isValid(5);
+                }
+            } finally {
+                for (Connection connection : connections) {
+                    connection.close();
+                }
+            }
+            filled.add(pool.getPoolName() + ": " + target + " connections");
+        }
+        return String.join(", ", filled);
+    }
+
+    // Token round trip as in JwtFilter, plus one password hash check as in /login
+    private String exerciseAuth() {
+        String subject = "warmup@localhost";
+        String token = jwtService.generateToken(subject, List.of("ROLE_USER"));
+        jwtService.extractRoles(token);
+        if (!jwtService.validateToken(token, User.withUsername(subject).password("").build())) {
+            throw new IllegalStateException("Generated token did not validate");
+        }
+        passwordEncoder.matches("warmup", passwordEncoder.encode("warmup"));
+        return "token and password check";
+    }
+
+    private String loadIdentities() {
+        List<UserIdentity> identities = userRepository.findRecentlyActiveIdentities(
+                LocalDate.now().minusDays(identityDays), PageRequest.of(0, maxIdentities));
+        userIdentityService.prime(identities);
+        return identities.size() + " active users cached";
+    }
+
+    // Loads today's rows and runs the /check lookup once so its query is planned and the pages are in memory
+    private String loadTodayAttendance() {
+        LocalDate today = LocalDate.now();
+        List<AttendanceRecordDto> records = attendanceRepository.findRecordsByDateBetween(today, today);
+        if (!records.isEmpty()) {
+            attendanceRepository.findByUserIdAndDate(records.get(0).getUserId(), today);
+        }
+        return records.size() + " records today";
+    }
+}
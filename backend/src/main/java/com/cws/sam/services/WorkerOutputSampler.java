@@ -0,0 +1,39 @@
+package com.cws.sam.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Thins out repetitive worker output. Lines that differ only in numbers (frame counters, timings,
+// confidences) share a key: the first `alwaysLog` of each key pass, then one in every `sampleEvery`.
+// One instance per worker reader thread, so no synchronization.
+final class WorkerOutputSampler {
+
+    private static final Pattern NUMBERS = Pattern.compile("\\d+(\\.\\d+)?");
+    private static final int MAX_KEYS = 256;
+
+    private final int alwaysLog;
+    private final int sampleEvery;
+    private final Map<String, long[]> seen = new HashMap<>();
+
+    WorkerOutputSampler(int alwaysLog, int sampleEvery) {
+        this.alwaysLog = alwaysLog;
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    // Returns -1 to drop the line, otherwise how many similar lines were dropped since the last one logged
+    long admit(String line) {
+        if (seen.size() >= MAX_KEYS) {
+            seen.clear();
+        }
+        long[] state = seen.computeIfAbsent(NUMBERS.matcher(line).replaceAll("#"), key -> new long[2]);
+        long count = ++state[0];
+        if (count <= alwaysLog || (count - alwaysLog) % sampleEvery == 0) {
+            long dropped = state[1];
+            state[1] = 0;
+            return dropped;
+        }
+        state[1]++;
+        return -1;
+    }
+}
@@ -0,0 +1,172 @@
+package com.cws.sam.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Timings reported by recognition workers as TELEMETRY lines on stdout (python-client/worker_telemetry.py),
+// kept per session in rolling HdrHistograms of fixed size for /sessions/{session}/stats and recorded as
+// recognition.worker.* metrics. Only the node running a session has its telemetry.
+//   TELEMETRY {"captured": 42, "processed": 14, "queue_depth": [0, 1], "stages_ms": {"detect": [31.2, ...], ...}}
+@Slf4j
+@Service
+public class WorkerTelemetryService {
+
+    static final String PREFIX = "TELEMETRY ";
+    // capture: waiting for the camera or browser | frame: one processed frame | detect, encode, match: its parts
+    // mark: /mark round trip | frame_to_mark: frame read until the mark was acknowledged
+    static final List<String> STAGES = List.of("capture", "frame", "detect", "encode", "match", "mark", "frame_to_mark");
+    private static final long HIGHEST_MICROS = 60_000_000L;
+    private static final long HIGHEST_QUEUE_DEPTH = 10_000L;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RecognitionMetrics recognitionMetrics;
+
+    @Value("${face.recognition.telemetry.window:60s}")
+    private Duration window;
+
+    @Value("${face.recognition.telemetry.slices:4}")
+    private int slices;
+
+    @Value("${face.recognition.telemetry.significant-digits:2}")
+    private int significantDigits;
+
+    private final Map<String, SessionTelemetry> sessions = new ConcurrentHashMap<>();
+
+    public void start(String session) {
+        sessions.put(session, new SessionTelemetry(System.currentTimeMillis()));
+    }
+
+    public void stop(String session) {
+        sessions.remove(session);
+    }
+
+    // True if the line is a telemetry report, which then is not worker log output
+    public boolean accept(String session, String line) {
+        if (!line.startsWith(PREFIX)) {
+            return false;
+        }
+        SessionTelemetry telemetry = sessions.get(session);
+        if (telemetry != null) {
+            try {
+                telemetry.record(objectMapper.readTree(line.substring(PREFIX.length())), System.currentTimeMillis());
+            } catch (JsonProcessingException e) {
+                log.debug("Unreadable telemetry from the worker of session {}", session, e);
+            }
+        }
+        return true;
+    }
+
+    public Optional<Map<String, Object>> stats(String session) {
+        SessionTelemetry telemetry = sessions.get(session);
+        return telemetry == null ? Optional.empty() : Optional.of(telemetry.stats(System.currentTimeMillis()));
+    }
+
+    private final class SessionTelemetry {
+        final long startedAt;
+        final Map<String, RollingHistogram> stages = new LinkedHashMap<>();
+        final RollingHistogram queueDepth;
+        long captured;
+        long processed;
+        long reports;
+        long reportedAt;
+
+        SessionTelemetry(long startedAt) {
+            this.startedAt = startedAt;
+            for (String stage : STAGES) {
+                stages.put(stage, new RollingHistogram(slices, window.toMillis(), HIGHEST_MICROS, significantDigits));
+            }
+            this.queueDepth = new RollingHistogram(slices, window.toMillis(), HIGHEST_QUEUE_DEPTH, significantDigits);
+        }
+
+        synchronized void record(JsonNode report, long now) {
+            long reportCaptured = Math.max(0, report.path("captured").asLong());
+            long reportProcessed = Math.max(0, report.path("processed").asLong());
+            captured += reportCaptured;
+            processed += reportProcessed;
+            recognitionMetrics.workerFrames(reportProcessed, reportCaptured - reportProcessed);
+            for (JsonNode depth : report.path("queue_depth")) {
+                queueDepth.record(depth.asLong(), now);
+                recognitionMetrics.workerQueueDepth(depth.asLong());
+            }
+            // Stages the backend does not know are ignored, so memory stays fixed whatever the worker sends
+            report.path("stages_ms").fields().forEachRemaining(stage -> {
+                RollingHistogram histogram = stages.get(stage.getKey());
+                if (histogram == null) {
+                    return;
+                }
+                for (JsonNode millis : stage.getValue()) {
+                    long micros = Math.round(millis.asDouble() * 1000);
+                    histogram.record(micros, now);
+                    recognitionMetrics.workerStage(stage.getKey(), micros);
+                }
+            });
+            reports++;
+            reportedAt = now;
+        }
+
+        synchronized Map<String, Object> stats(long now) {
+            // Rates over the part of the window the session has been running for
+            double seconds = Math.max(1, Math.min(window.toMillis(), now - startedAt)) / 1000.0;
+            Map<String, Object> stages = new LinkedHashMap<>();
+            long footprint = queueDepth.footprintBytes();
+            for (Map.Entry<String, RollingHistogram> stage : this.stages.entrySet()) {
+                stages.put(stage.getKey(), summary(stage.getValue().window(now), 1000.0, "Ms"));
+                footprint += stage.getValue().footprintBytes();
+            }
+            Histogram capture = this.stages.get("capture").window(now);
+            Histogram frame = this.stages.get("frame").window(now);
+
+            Map<String, Object> frames = new LinkedHashMap<>();
+            frames.put("captured", captured);
+            frames.put("processed", processed);
+            frames.put("skipped", captured - processed);
+            frames.put("capturedPerSecond", round(capture.getTotalCount() / seconds));
+            frames.put("processedPerSecond", round(frame.getTotalCount() / seconds));
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("windowSeconds", window.toSeconds());
+            stats.put("startedAt", Instant.ofEpochMilli(startedAt).toString());
+            stats.put("reports", reports);
+            stats.put("reportedAt", reports == 0 ? null : Instant.ofEpochMilli(reportedAt).toString());
+            stats.put("frames", frames);
+            stats.put("queueDepth", summary(queueDepth.window(now), 1, ""));
+            stats.put("stages", stages);
+            stats.put("memoryBytes", footprint);
+            return stats;
+        }
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, double scale, String unit) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        if (histogram.getTotalCount() > 0) {
+            summary.put("mean" + unit, round(histogram.getMean() / scale));
+            summary.put("p50" + unit, round(histogram.getValueAtPercentile(50) / scale));
+            summary.put("p90" + unit, round(histogram.getValueAtPercentile(90) / scale));
+            summary.put("p99" + unit, round(histogram.getValueAtPercentile(99) / scale));
+            summary.put("max" + unit, round(histogram.getMaxValue() / scale));
+        }
+        return summary;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
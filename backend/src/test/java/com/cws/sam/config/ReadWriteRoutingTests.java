@@ -0,0 +1,96 @@
+package com.cws.sam.config;
+
+import com.cws.sam.dtos.UserResponseDto;
+import com.cws.sam.models.User;
+import com.cws.sam.repositories.UserRepository;
+import com.cws.sam.services.AttendanceService;
+import com.cws.sam.services.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two independent H2 databases stand in for primary and replica. Nothing replicates between them,
+// so which rows a read sees shows which database it went to.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.url=jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.username=sa",
+        "spring.datasource.replica.password=",
+        "spring.datasource.replica.driver-class-name=org.h2.Driver",
+        "spring.datasource.replica.hikari.maximum-pool-size=2",
+        "spring.datasource.replica.max-lag=1m"
+})
+class ReadWriteRoutingTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        // Hibernate only creates the schema on the primary; copy it to the replica
+        replica = new JdbcTemplate(replicaDataSource);
+        List<String> ddl = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class);
+        ddl.stream().filter(statement -> statement.startsWith("CREATE")).forEach(replica::execute);
+
+        User user = new User();
+        user.setUsername("primary-user");
+        user.setEmail("primary@example.com");
+        user.setRole("STUDENT");
+        userRepository.save(user);
+
+        replica.update("insert into users (id, username, email, role) values (100, 'replica-user', 'replica@example.com', 'STUDENT')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        replica.execute("DROP ALL OBJECTS");
+        new JdbcTemplate(primaryDataSource).update("delete from attendance");
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplicaPool() {
+        assertThat(userService.getAllUsers()).extracting(UserResponseDto::getUsername).containsExactly("replica-user");
+        // Not read-only: derived queries outside a transaction stay on the primary
+        assertThat(userRepository.existsByEmail("primary@example.com")).isTrue();
+        assertThat(userRepository.existsByEmail("replica@example.com")).isFalse();
+        assertThat(primaryDataSource.getMaximumPoolSize()).isNotEqualTo(replicaDataSource.getMaximumPoolSize());
+    }
+
+    @Test
+    void readAfterMarkFallsBackToPrimary() {
+        // Same email on the replica, but without the attendance row the mark is about to write
+        replica.update("insert into users (id, username, email, role) values (101, 'primary-user', 'primary@example.com', 'STUDENT')");
+        assertThat(userService.getUserDetail("primary@example.com", 30).orElseThrow().getRecentAttendance()).isEmpty();
+
+        attendanceService.markAttendance("primary-user", LocalDateTime.now());
+
+        assertThat(userService.getUserDetail("primary@example.com", 30).orElseThrow().getRecentAttendance()).hasSize(1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.cws.sam.controllers;
+
+import com.cws.sam.models.Attendance;
+import com.cws.sam.models.User;
+import com.cws.sam.repositories.AttendanceRepository;
+import com.cws.sam.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Query counts per endpoint are fixed regardless of how many users and records exist
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class UserControllerTests {
+
+    private static final int USERS = 20;
+    private static final int DAYS = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<Attendance> records = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setUsername("user" + u);
+            user.setEmail("user" + u + "@example.com");
+            user.setRole("STUDENT");
+            user.setFaceImage(new byte[]{1, 2, 3});
+            userRepository.save(user);
+
+            for (int d = 0; d < DAYS; d++) {
+                LocalDate date = LocalDate.now().minusDays(d);
+                records.add(new Attendance(null, user, date, date.atTime(9, 0), date.atTime(17, 0), "Present"));
+            }
+        }
+        attendanceRepository.saveAll(records);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        attendanceRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void getAllUsersRunsOneQuery() throws Exception {
+        mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(USERS))
+                .andExpect(jsonPath("$[0].password").doesNotExist())
+                .andExpect(jsonPath("$[0].faceImage").doesNotExist())
+                .andExpect(jsonPath("$[0].hasFaceImage").value(true));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void getUserWithRecentAttendanceRunsTwoQueries() throws Exception {
+        mockMvc.perform(get("/user").param("email", "user3@example.com").param("days", "30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.username").value("user3"))
+                .andExpect(jsonPath("$.recentAttendance.length()").value(DAYS));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+    }
+
+    @Test
+    void checkAttendanceDoesNotLoadUserEntity() throws Exception {
+        mockMvc.perform(get("/check").param("email", "user5@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.marked").value(true));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
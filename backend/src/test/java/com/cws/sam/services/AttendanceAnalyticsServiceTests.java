@@ -0,0 +1,68 @@
+package com.cws.sam.services;
+
+import com.cws.sam.models.Attendance;
+import com.cws.sam.models.User;
+import com.cws.sam.repositories.AttendanceRepository;
+import com.cws.sam.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Reports count lateness to the second, as the policy does, and see records written by other nodes
+@SpringBootTest
+class AttendanceAnalyticsServiceTests {
+
+    private static final LocalDate DAY = LocalDate.of(2031, 3, 4);
+
+    @Autowired
+    private AttendanceAnalyticsService attendanceAnalyticsService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        attendanceRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void arrivalSecondsAfterTheGracePeriodIsLate() {
+        // Default rule: 09:00 shift start, 10 minutes grace
+        attendanceRepository.save(new Attendance(null, user("alice"), DAY, DAY.atTime(9, 10, 30), null, "Late"));
+        attendanceRepository.save(new Attendance(null, user("bob"), DAY, DAY.atTime(9, 10, 0), null, "Present"));
+        attendanceAnalyticsService.rebuild();
+
+        Map<String, Object> histogram = attendanceAnalyticsService.lateArrivalHistogram(DAY, DAY, 5, 60);
+
+        assertThat(histogram.get("lateArrivals")).isEqualTo(1L);
+    }
+
+    @Test
+    void recordsWrittenWithoutThisNodeAreCountedBeforeTheNextRebuild() {
+        attendanceAnalyticsService.rebuild();
+        // Saved straight to the table, as a mark taken on another node would be
+        attendanceRepository.save(new Attendance(null, user("carol"), DAY, DAY.atTime(9, 45), null, "Late"));
+
+        Map<String, Object> histogram = attendanceAnalyticsService.lateArrivalHistogram(DAY, DAY, 5, 60);
+
+        assertThat(histogram.get("lateArrivals")).isEqualTo(1L);
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRole("STUDENT");
+        return userRepository.save(user);
+    }
+}
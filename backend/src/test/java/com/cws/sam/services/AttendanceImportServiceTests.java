@@ -0,0 +1,110 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.ImportResultDto;
+import com.cws.sam.models.Attendance;
+import com.cws.sam.models.User;
+import com.cws.sam.repositories.AttendanceRepository;
+import com.cws.sam.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Legacy CSV import: merging into existing days, rejecting bad lines and resuming from a checkpoint
+@SpringBootTest(properties = {
+        "attendance.import.dir=target/test-import",
+        "attendance.import.batch-size=2"
+})
+class AttendanceImportServiceTests {
+
+    private static final Path IMPORT_DIR = Paths.get("target/test-import");
+    private static final LocalDate DAY = LocalDate.of(2021, 3, 4);
+
+    @Autowired
+    private AttendanceImportService attendanceImportService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectories(IMPORT_DIR);
+        alice = user("alice");
+        bob = user("bob");
+    }
+
+    @AfterEach
+    void tearDown() {
+        attendanceRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void mergesIntoAnExistingDayAndRejectsBadLines() throws IOException {
+        // Marked late on the day; the legacy system knew about an earlier arrival
+        attendanceRepository.save(new Attendance(null, alice, DAY, DAY.atTime(9, 30), null, "Late"));
+        write("merge.csv", "username,date,inTime,outTime\n"
+                + "alice,2021-03-04,08:00,17:00\n"
+                + "nobody,2021-03-04,08:00,17:00\n");
+
+        ImportResultDto result = attendanceImportService.importFile("merge.csv");
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().contains("line 3", "unknown username");
+        Attendance merged = attendanceRepository.findByUserIdAndDate(alice.getId(), DAY).orElseThrow();
+        assertThat(merged.getInTime()).isEqualTo(LocalDateTime.of(DAY, LocalTime.of(8, 0)));
+        assertThat(merged.getOutTime()).isEqualTo(LocalDateTime.of(DAY, LocalTime.of(17, 0)));
+        // Evaluated from the merged times, not kept from the earlier mark
+        assertThat(merged.getStatus()).isEqualTo(AttendancePolicyEvaluator.PRESENT);
+    }
+
+    @Test
+    void resumesAfterTheCheckpointedLine() throws IOException {
+        write("resume.csv", "username,date,inTime,outTime\n"
+                + "alice,2021-03-04,08:55,17:00\n"
+                + "alice,2021-03-05,08:55,17:00\n"
+                + "bob,2021-03-05,09:30,17:00\n");
+        // A previous run committed the chunk ending at line 2 and then stopped
+        Files.writeString(IMPORT_DIR.resolve("resume.csv.checkpoint"), "2");
+
+        ImportResultDto result = attendanceImportService.importFile("resume.csv");
+
+        assertThat(result.getResumedFromLine()).isEqualTo(2);
+        assertThat(result.getLinesRead()).isEqualTo(2);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(attendanceRepository.findByUserIdAndDate(alice.getId(), DAY)).isEmpty();
+        assertThat(attendanceRepository.findByUserIdAndDate(bob.getId(), DAY.plusDays(1)).orElseThrow().getStatus())
+                .isEqualTo(AttendancePolicyEvaluator.LATE);
+        assertThat(IMPORT_DIR.resolve("resume.csv.checkpoint")).doesNotExist();
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRole("STUDENT");
+        return userRepository.save(user);
+    }
+
+    private static void write(String name, String content) throws IOException {
+        Files.writeString(IMPORT_DIR.resolve(name), content);
+    }
+}
@@ -0,0 +1,59 @@
+package com.cws.sam.services;
+
+import com.cws.sam.config.AttendancePolicyProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Default rule: 09:00-17:00 shift, 10 minutes grace, half day under 240 minutes, 5 minutes between in and out
+class AttendancePolicyEvaluatorTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 6);
+
+    private final AttendancePolicyEvaluator evaluator = new AttendancePolicyEvaluator(new AttendancePolicyProperties.Rule());
+
+    @Test
+    void lateOnlyAfterTheGracePeriod() {
+        assertThat(evaluator.evaluate(at(9, 10, 0), null)).isEqualTo(AttendancePolicyEvaluator.PRESENT);
+        assertThat(evaluator.evaluate(at(9, 10, 1), null)).isEqualTo(AttendancePolicyEvaluator.LATE);
+    }
+
+    @Test
+    void halfDayCountsOnlyTimeInsideTheShift() {
+        // 07:00-12:30 is five and a half hours, but only three and a half of them inside the shift
+        assertThat(evaluator.evaluate(at(7, 0, 0), at(12, 30, 0))).isEqualTo(AttendancePolicyEvaluator.HALF_DAY);
+        assertThat(evaluator.evaluate(at(9, 0, 0), at(13, 0, 0))).isEqualTo(AttendancePolicyEvaluator.PRESENT);
+        // A late arrival who stays long enough is still late
+        assertThat(evaluator.evaluate(at(9, 30, 0), at(17, 0, 0))).isEqualTo(AttendancePolicyEvaluator.LATE);
+    }
+
+    @Test
+    void outMarkNeedsTheMinimumGap() {
+        assertThat(evaluator.acceptsOutMark(at(9, 0, 0), at(9, 4, 59))).isFalse();
+        assertThat(evaluator.acceptsOutMark(at(9, 0, 0), at(9, 5, 0))).isTrue();
+    }
+
+    @Test
+    void rejectsInconsistentRules() {
+        AttendancePolicyProperties.Rule negative = new AttendancePolicyProperties.Rule();
+        negative.setGracePeriodMinutes(-1);
+        assertThatThrownBy(() -> new AttendancePolicyEvaluator(negative)).isInstanceOf(IllegalArgumentException.class);
+
+        AttendancePolicyProperties.Rule inverted = new AttendancePolicyProperties.Rule();
+        inverted.setShiftEnd(LocalTime.of(8, 0));
+        assertThatThrownBy(() -> new AttendancePolicyEvaluator(inverted)).isInstanceOf(IllegalArgumentException.class);
+
+        AttendancePolicyProperties.Rule longGrace = new AttendancePolicyProperties.Rule();
+        longGrace.setGracePeriodMinutes(8 * 60);
+        assertThatThrownBy(() -> new AttendancePolicyEvaluator(longGrace)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static LocalDateTime at(int hour, int minute, int second) {
+        return DAY.atTime(hour, minute, second);
+    }
+}
@@ -0,0 +1,37 @@
+package com.cws.sam.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class FaceCentroidTests {
+
+    @Test
+    void keepsOneBadPhotoOutOfTheCentroid() {
+        List<float[]> embeddings = List.of(
+                new float[]{1.0f, 0.0f}, new float[]{1.1f, 0.0f}, new float[]{0.9f, 0.1f}, new float[]{5.0f, 5.0f});
+
+        FaceCentroid.Result result = FaceCentroid.compute(embeddings, 0.45, 0);
+
+        assertThat(result.outlier()).containsExactly(false, false, false, true);
+        assertThat(result.centroid()[0]).isCloseTo(1.0f, offset(0.01f));
+        assertThat(result.outlierVectors()).isEmpty();
+    }
+
+    @Test
+    void turnsTheLargestOutlierGroupIntoAnExtraVector() {
+        List<float[]> embeddings = List.of(
+                new float[]{0f, 0f}, new float[]{0.1f, 0f}, new float[]{0f, 0.1f}, new float[]{0.1f, 0.1f},
+                new float[]{3f, 3f}, new float[]{3.1f, 3f},
+                new float[]{-4f, 2f});
+
+        FaceCentroid.Result result = FaceCentroid.compute(embeddings, 0.45, 1);
+
+        assertThat(result.outlierVectors()).hasSize(1);
+        assertThat(FaceCentroid.distance(result.outlierVectors().get(0), new float[]{3.05f, 3f})).isLessThan(0.01);
+        assertThat(result.outlier()).containsExactly(false, false, false, false, true, true, true);
+    }
+}
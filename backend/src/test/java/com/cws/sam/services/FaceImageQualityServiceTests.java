@@ -0,0 +1,49 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.FaceImageQualityDto;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FaceImageQualityServiceTests {
+
+    private final FaceImageQualityService service = new FaceImageQualityService(160, 40, 50, 210, 0.25, 512);
+
+    @Test
+    void acceptsDetailedWellExposedImage() {
+        FaceImageQualityDto quality = service.assess(image(640, 480, 128, 40, false));
+
+        assertThat(quality.isAccepted()).as("reasons %s", quality.getReasons()).isTrue();
+        assertThat(quality.getWidth()).isEqualTo(640);
+    }
+
+    @Test
+    void rejectsBlurryDarkAndTinyImages() {
+        assertThat(service.assess(image(640, 480, 128, 0, true)).getReasons())
+                .anyMatch(reason -> reason.startsWith("too blurry"));
+        assertThat(service.assess(image(640, 480, 20, 10, false)).getReasons())
+                .anyMatch(reason -> reason.startsWith("too dark"));
+        assertThat(service.assess(image(100, 120, 128, 40, false)).getReasons())
+                .anyMatch(reason -> reason.startsWith("too small"));
+        assertThat(service.assess(null).isAccepted()).isFalse();
+    }
+
+    // Grey image around base with uniform noise of the given amplitude, or a smooth horizontal gradient
+    private static BufferedImage image(int width, int height, int base, int noise, boolean gradient) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value = gradient
+                        ? base - 32 + 64 * x / width
+                        : base + (noise == 0 ? 0 : random.nextInt(2 * noise + 1) - noise);
+                value = Math.max(0, Math.min(255, value));
+                image.setRGB(x, y, value << 16 | value << 8 | value);
+            }
+        }
+        return image;
+    }
+}
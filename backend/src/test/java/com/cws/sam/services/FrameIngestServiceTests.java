@@ -0,0 +1,86 @@
+package com.cws.sam.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameIngestServiceTests {
+
+    @TempDir
+    Path dir;
+
+    private SimpleMeterRegistry registry;
+    private FrameIngestService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        service = new FrameIngestService();
+        ReflectionTestUtils.setField(service, "recognitionMetrics", new RecognitionMetrics(registry));
+        ReflectionTestUtils.setField(service, "framesDir", dir.toString());
+        ReflectionTestUtils.setField(service, "slots", 4);
+        ReflectionTestUtils.setField(service, "maxFrameBytes", 1024);
+        ReflectionTestUtils.setField(service, "maxAge", Duration.ofMillis(500));
+    }
+
+    @Test
+    void workerTakesTheNewestFrameAndSkippedOnesCountAsDropped() throws Exception {
+        FrameRing worker = FrameRing.open(service.open("s1"));
+        double now = System.currentTimeMillis();
+
+        for (int i = 1; i <= 3; i++) {
+            assertThat(service.accept("s1", message(now, 0, new byte[]{(byte) i}))).isTrue();
+        }
+        FrameRing.Frame frame = worker.readLatest();
+        assertThat(frame.seq()).isEqualTo(3);
+        assertThat(frame.data()).containsExactly(3);
+        assertThat(worker.readLatest()).isNull();
+
+        // The next write notices that frames 1 and 2 were never taken
+        service.accept("s1", message(now, 0, new byte[]{4}));
+        assertThat(dropped("overwritten")).isEqualTo(2);
+        assertThat(registry.get("frames.latency").tag("stage", "delivery").timer().count()).isEqualTo(1);
+
+        service.close("s1");
+        assertThat(worker.isClosed()).isTrue();
+        assertThat(dropped("closed")).isEqualTo(1);
+        assertThat(service.accept("s1", message(now, 0, new byte[]{5}))).isFalse();
+    }
+
+    @Test
+    void dropsStaleOversizedAndClientSkippedFrames() throws Exception {
+        service.open("s1");
+        double now = System.currentTimeMillis();
+
+        service.accept("s1", message(now, 0, new byte[1]));
+        // Captured two seconds before the fastest frame so far: stuck in a queue somewhere
+        service.accept("s1", message(now - 2000, 0, new byte[1]));
+        service.accept("s1", message(now, 0, new byte[2048]));
+        service.accept("s1", message(now, 5, new byte[1]));
+
+        assertThat(dropped("stale")).isEqualTo(1);
+        assertThat(dropped("oversized")).isEqualTo(1);
+        assertThat(dropped("client")).isEqualTo(5);
+        assertThat(registry.get("frames.received").counter().count()).isEqualTo(4);
+    }
+
+    private double dropped(String reason) {
+        return registry.get("frames.dropped").tag("reason", reason).counter().count();
+    }
+
+    private static ByteBuffer message(double captureMillis, int clientSkipped, byte[] jpeg) {
+        ByteBuffer message = ByteBuffer.allocate(FrameIngestService.HEADER_BYTES + jpeg.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        message.putDouble(captureMillis).putInt(clientSkipped).put(jpeg).flip();
+        return message;
+    }
+}
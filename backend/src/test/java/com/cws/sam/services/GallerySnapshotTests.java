@@ -0,0 +1,58 @@
+package com.cws.sam.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GallerySnapshotTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsThroughTheMappedFile() throws Exception {
+        Path file = dir.resolve("gallery-7.bin");
+        float[] matrix = {0.1f, 0.2f, 0.3f, -1f, -2f, -3f};
+        GallerySnapshot.write(file, 7L, new long[]{11L, 42L}, List.of("alice", "bob"), matrix, 3);
+
+        GallerySnapshot snapshot = GallerySnapshot.open(file);
+
+        assertThat(snapshot.getVersion()).isEqualTo(7L);
+        assertThat(snapshot.getCount()).isEqualTo(2);
+        assertThat(snapshot.getDims()).isEqualTo(3);
+        assertThat(snapshot.userId(1)).isEqualTo(42L);
+        assertThat(snapshot.username(1)).isEqualTo("bob");
+        assertThat(snapshot.value(1, 2)).isEqualTo(-3f);
+        assertThat(snapshot.contains("alice")).isTrue();
+        assertThat(snapshot.contains("carol")).isFalse();
+    }
+
+    @Test
+    void alignsTheMatrixForNumpy() throws Exception {
+        Path file = dir.resolve("gallery-1.bin");
+        GallerySnapshot.write(file, 1L, new long[]{1L}, List.of("alice"), new float[]{1f, 2f}, 2);
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        long matrixOffset = header.getLong(32);
+        assertThat(matrixOffset % 64).isZero();
+        assertThat(header.getFloat((int) matrixOffset + 4)).isEqualTo(2f);
+    }
+
+    @Test
+    void handlesAnEmptyGallery() throws Exception {
+        Path file = dir.resolve("gallery-2.bin");
+        GallerySnapshot.write(file, 2L, new long[0], List.of(), new float[0], 0);
+
+        GallerySnapshot snapshot = GallerySnapshot.open(file);
+
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.contains("")).isFalse();
+    }
+}
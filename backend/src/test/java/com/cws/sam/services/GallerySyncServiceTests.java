@@ -0,0 +1,98 @@
+package com.cws.sam.services;
+
+import com.cws.sam.models.User;
+import com.cws.sam.repositories.GalleryChangeRepository;
+import com.cws.sam.repositories.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Devices get the whole gallery first, then only what changed, deletions included
+@SpringBootTest(properties = {
+        "face.gallery.sync.settle=0s",
+        "face.recognition.gallery.snapshot-dir=target/test-gallery-sync"
+})
+class GallerySyncServiceTests {
+
+    @Autowired
+    private GallerySyncService gallerySyncService;
+
+    @Autowired
+    private GalleryChangeRepository galleryChangeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        galleryChangeRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void sendsTheGalleryThenOnlyChanges() throws IOException {
+        User alice = enroll("alice", 1f);
+        GallerySyncService.Payload full = gallerySyncService.sync(0);
+        JsonNode snapshot = read(full);
+        assertThat(full.full()).isTrue();
+        assertThat(snapshot.get("upserts")).hasSize(1);
+        assertThat(snapshot.get("dims").asInt()).isEqualTo(2);
+
+        User bob = enroll("bob", 2f);
+        userRepository.delete(alice);
+        gallerySyncService.recordChange(alice.getId());
+        GallerySyncService.Payload delta = gallerySyncService.sync(full.version());
+        JsonNode changes = read(delta);
+
+        assertThat(delta.full()).isFalse();
+        assertThat(delta.version()).isEqualTo(full.version() + 2);
+        assertThat(changes.get("upserts")).hasSize(1);
+        assertThat(changes.get("upserts").get(0).get("userId").asLong()).isEqualTo(bob.getId());
+        assertThat(changes.get("deletes")).hasSize(1);
+        assertThat(changes.get("deletes").get(0).asLong()).isEqualTo(alice.getId());
+    }
+
+    @Test
+    void reportsACurrentDeviceAsUnchanged() throws IOException {
+        enroll("carol", 3f);
+        long version = gallerySyncService.sync(0).version();
+
+        GallerySyncService.Payload payload = gallerySyncService.sync(version);
+
+        assertThat(payload.body()).isNull();
+        assertThat(payload.version()).isEqualTo(version);
+    }
+
+    private User enroll(String username, float value) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRole("STUDENT");
+        user.setFaceImage(new byte[]{1, 2, 3});
+        user.setFaceEncoding(ByteBuffer.allocate(2 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putFloat(value).putFloat(-value).array());
+        User saved = userRepository.save(user);
+        gallerySyncService.recordChange(saved.getId());
+        return saved;
+    }
+
+    private JsonNode read(GallerySyncService.Payload payload) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(payload.body()))) {
+            return objectMapper.readTree(in);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.cws.sam.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarkDebouncerTests {
+
+    private SimpleMeterRegistry registry;
+    private MarkDebouncer debouncer;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        debouncer = new MarkDebouncer(Duration.ofMinutes(1), 1000);
+        ReflectionTestUtils.setField(debouncer, "recognitionMetrics", new RecognitionMetrics(registry));
+    }
+
+    @Test
+    void dropsRepeatsPerUserAndSession() {
+        assertThat(debouncer.admit("alice", "cam1").first()).isTrue();
+        assertThat(debouncer.admit("alice", "cam1").first()).isFalse();
+        assertThat(debouncer.admit("alice", "cam1").first()).isFalse();
+
+        // Another camera or another user is a separate key
+        assertThat(debouncer.admit("alice", "cam2").first()).isTrue();
+        assertThat(debouncer.admit("bob", "cam1").first()).isTrue();
+
+        assertThat(registry.get("attendance.marks").tag("result", "debounced").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void repeatsGetTheFirstOutcomeOnceItIsDone() {
+        MarkDebouncer.Admission first = debouncer.admit("alice", "cam1");
+        MarkDebouncer.Admission repeat = debouncer.admit("alice", "cam1");
+        assertThat(repeat.outcome()).isNotDone();
+
+        debouncer.done("alice", "cam1", first, true);
+
+        assertThat(repeat.outcome()).isCompletedWithValue(true);
+    }
+
+    @Test
+    void failedMarkLetsRetryThrough() {
+        MarkDebouncer.Admission first = debouncer.admit("alice", null);
+        debouncer.done("alice", null, first, false);
+
+        assertThat(first.outcome()).isCompletedWithValue(false);
+        assertThat(debouncer.admit("alice", null).first()).isTrue();
+    }
+
+    @Test
+    void zeroWindowDisables() {
+        MarkDebouncer disabled = new MarkDebouncer(Duration.ZERO, 1000);
+
+        assertThat(disabled.admit("alice", "cam1").first()).isTrue();
+        assertThat(disabled.admit("alice", "cam1").first()).isTrue();
+    }
+}
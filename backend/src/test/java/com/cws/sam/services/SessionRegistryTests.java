@@ -0,0 +1,101 @@
+package com.cws.sam.services;
+
+import com.cws.sam.models.RecognitionSession;
+import com.cws.sam.repositories.RecognitionSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two nodes sharing one database: the context's registry is node A, a second instance plays node B
+@SpringBootTest(properties = "cluster.node-id=node-a")
+class SessionRegistryTests {
+
+    @Autowired
+    private SessionRegistry nodeA;
+
+    @Autowired
+    private RecognitionSessionRepository repository;
+
+    private SessionRegistry nodeB;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        nodeB = node("node-b", Duration.ofSeconds(15));
+    }
+
+    @Test
+    void stopRequestsReachTheOwningNode() {
+        nodeA.register("s-a", "camera@example.com", null);
+
+        assertThat(nodeB.requestStopOnOtherNodes()).isEqualTo(1);
+
+        assertThat(nodeA.pendingStops()).containsExactly("s-a");
+        assertThat(nodeB.pendingStops()).isEmpty();
+        assertThat(nodeB.liveSessions()).extracting(RecognitionSession::getNodeId).containsExactly("node-a");
+    }
+
+    @Test
+    void startingTheSameEmailElsewhereStopsTheOldSession() {
+        nodeA.register("s-a", "camera@example.com", null);
+        nodeB.register("s-b", "camera@example.com", null);
+
+        assertThat(nodeA.pendingStops()).containsExactly("s-a");
+        assertThat(nodeB.pendingStops()).isEmpty();
+    }
+
+    @Test
+    void sessionsOfADeadNodeExpire() {
+        SessionRegistry deadNode = node("node-c", Duration.ofSeconds(-1));
+        deadNode.register("s-c", "camera@example.com", null);
+        nodeA.register("s-a", "other@example.com", null);
+
+        assertThat(nodeA.reapExpired()).isEqualTo(1);
+        assertThat(nodeA.liveSessions()).extracting(RecognitionSession::getId).containsExactly("s-a");
+    }
+
+    @Test
+    void renewDropsSessionsTheNodeNoLongerRuns() {
+        nodeA.register("s-1", "one@example.com", null);
+        nodeA.register("s-2", "two@example.com", null);
+        nodeB.register("s-b", "three@example.com", null);
+
+        nodeA.renew(List.of("s-2"), LocalDateTime.now().plusSeconds(1));
+
+        assertThat(repository.findAll()).extracting(RecognitionSession::getId)
+                .containsExactlyInAnyOrder("s-2", "s-b");
+    }
+
+    @Test
+    void paramChangesReachTheOwningNode() {
+        nodeA.register("s-a", "camera@example.com", "{\"frameSkip\":3}");
+
+        assertThat(nodeB.updateParams("s-a", "{\"frameSkip\":6}", true)).isTrue();
+        assertThat(nodeB.pendingParamChanges()).isEmpty();
+        assertThat(nodeA.pendingParamChanges()).extracting(RecognitionSession::getParams)
+                .containsExactly("{\"frameSkip\":6}");
+
+        // A change that arrives after the owner read the row keeps the flag set
+        nodeB.updateParams("s-a", "{\"frameSkip\":9}", true);
+        nodeA.paramsApplied("s-a", "{\"frameSkip\":6}");
+        assertThat(nodeA.pendingParamChanges()).hasSize(1);
+        nodeA.paramsApplied("s-a", "{\"frameSkip\":9}");
+        assertThat(nodeA.pendingParamChanges()).isEmpty();
+    }
+
+    private SessionRegistry node(String nodeId, Duration lease) {
+        SessionRegistry registry = new SessionRegistry();
+        ReflectionTestUtils.setField(registry, "repository", repository);
+        ReflectionTestUtils.setField(registry, "nodeId", nodeId);
+        ReflectionTestUtils.setField(registry, "lease", lease);
+        return registry;
+    }
+}
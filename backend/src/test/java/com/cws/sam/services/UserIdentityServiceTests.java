@@ -0,0 +1,113 @@
+package com.cws.sam.services;
+
+import com.cws.sam.dtos.UserRequestDto;
+import com.cws.sam.models.User;
+import com.cws.sam.repositories.IdentityChangeRepository;
+import com.cws.sam.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Identity lookups hit the database once, and every user change is visible on the next lookup, on other nodes
+// after the change-log poll
+@SpringBootTest(properties = "spring.cache.type=caffeine")
+class UserIdentityServiceTests {
+
+    @Autowired
+    private UserIdentityService userIdentityService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IdentityChangeRepository identityChangeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setRole("STUDENT");
+        user.setFaceImage(new byte[]{1, 2, 3});
+        userRepository.save(user);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllInBatch();
+        identityChangeRepository.deleteAllInBatch();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromCache() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(userIdentityService.findByEmail("alice@example.com")).isPresent();
+            assertThat(userIdentityService.findByUsername("alice")).isPresent();
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void updateEvictsOldUsernameAndEmail() {
+        userIdentityService.findByEmail("alice@example.com");
+        userIdentityService.findByUsername("alice");
+
+        UserRequestDto update = new UserRequestDto();
+        update.setUsername("alice2");
+        update.setRole("STAFF");
+        userService.updateByEmail("alice@example.com", update, null);
+
+        assertThat(userIdentityService.findByUsername("alice")).isEmpty();
+        assertThat(userIdentityService.findByUsername("alice2")).isPresent();
+        assertThat(userIdentityService.findByEmail("alice@example.com").orElseThrow().getRole()).isEqualTo("STAFF");
+    }
+
+    @Test
+    void deleteEvicts() {
+        userIdentityService.findByEmail("alice@example.com");
+
+        assertThat(userService.deleteUser("alice@example.com")).isTrue();
+
+        assertThat(userIdentityService.findByEmail("alice@example.com")).isEmpty();
+    }
+
+    @Test
+    void changeFromAnotherNodeIsEvictedByThePoll() {
+        userIdentityService.findByEmail("alice@example.com");
+
+        // Another node's update: the row and the change log move, this node's cache does not
+        User user = userRepository.findByEmail("alice@example.com").orElseThrow();
+        user.setRole("ADMIN");
+        userRepository.save(user);
+        userIdentityService.recordChange("alice@example.com", "alice");
+        assertThat(userIdentityService.findByEmail("alice@example.com").orElseThrow().getRole()).isEqualTo("STUDENT");
+
+        userIdentityService.evictChanged();
+
+        assertThat(userIdentityService.findByEmail("alice@example.com").orElseThrow().getRole()).isEqualTo("ADMIN");
+    }
+}
@@ -0,0 +1,71 @@
+package com.cws.sam.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkerTelemetryServiceTests {
+
+    private SimpleMeterRegistry registry;
+    private WorkerTelemetryService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        service = new WorkerTelemetryService();
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "recognitionMetrics", new RecognitionMetrics(registry));
+        ReflectionTestUtils.setField(service, "window", Duration.ofSeconds(60));
+        ReflectionTestUtils.setField(service, "slices", 4);
+        ReflectionTestUtils.setField(service, "significantDigits", 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsAreAggregatedPerSessionAndKeptOutOfTheLog() {
+        service.start("s1");
+
+        assertThat(service.accept("s1", "2026-01-01 - INFO - Camera opened successfully.")).isFalse();
+        assertThat(service.accept("s1", "TELEMETRY {\"captured\":9,\"processed\":3,\"queue_depth\":[0,2],"
+                + "\"stages_ms\":{\"detect\":[10,20,30],\"mark\":[120.5],\"unknown\":[1]}}")).isTrue();
+        assertThat(service.accept("s1", "TELEMETRY {not json")).isTrue();
+
+        Map<String, Object> stats = service.stats("s1").orElseThrow();
+        Map<String, Object> frames = (Map<String, Object>) stats.get("frames");
+        Map<String, Map<String, Object>> stages = (Map<String, Map<String, Object>>) stats.get("stages");
+        assertThat(frames).containsEntry("captured", 9L).containsEntry("processed", 3L).containsEntry("skipped", 6L);
+        assertThat(stages.get("detect")).containsEntry("count", 3L);
+        assertThat((double) stages.get("detect").get("p50Ms")).isBetween(19.0, 21.0);
+        assertThat((double) stages.get("mark").get("maxMs")).isBetween(119.0, 122.0);
+        assertThat(stages).doesNotContainKey("unknown");
+        assertThat(((Map<String, Object>) stats.get("queueDepth")).get("max")).isEqualTo(2.0);
+
+        assertThat(registry.get("recognition.worker.stage").tag("stage", "detect").timer().count()).isEqualTo(3);
+        assertThat(registry.get("recognition.worker.frames").tag("outcome", "skipped").counter().count()).isEqualTo(6);
+
+        service.stop("s1");
+        assertThat(service.stats("s1")).isEmpty();
+    }
+
+    @Test
+    void oldSlicesLeaveTheWindow() {
+        RollingHistogram histogram = new RollingHistogram(4, 60_000, 1_000_000, 2);
+        histogram.record(100, 0);
+        histogram.record(200, 30_000);
+
+        assertThat(histogram.window(59_999).getTotalCount()).isEqualTo(2);
+        assertThat(histogram.window(60_000).getTotalCount()).isEqualTo(1);
+        assertThat(histogram.window(120_000).getTotalCount()).isZero();
+
+        // A slice is reused once it has left the window
+        histogram.record(300, 60_000);
+        assertThat(histogram.window(60_000).getTotalCount()).isEqualTo(2);
+    }
+}
@@ -5,6 +5,7 @@ import { Camera, CheckCircle, XCircle, Circle, Loader2 } from 'lucide-react';
 import { cn } from '@/lib/utils';
 import { toast } from 'sonner';
 import { useAuth } from '@/contexts/AuthContext';
+import { useFrameStream } from '@/hooks/use-frame-stream';
 
 interface AttendanceMarkerProps {
   onAttendanceMarked: () => void;
@@ -13,6 +14,9 @@ interface AttendanceMarkerProps {
 
 export type ScanStage = 'initial' | 'scanning' | 'success' | 'error';
 
+const BACKEND_URL = 'http://localhost:8081';
+const SCAN_TIMEOUT_MS = 15000;
+
 const AttendanceMarker: React.FC<AttendanceMarkerProps> = ({
   onAttendanceMarked,
   isAttendanceMarked
@@ -24,8 +28,10 @@ const AttendanceMarker: React.FC<AttendanceMarkerProps> = ({
   const streamRef = useRef<MediaStream | null>(null);
   const isComponentActive = useRef(true);
   const hasScanStarted = useRef(false);
+  const frameStream = useFrameStream();
 
   const stopCamera = () => {
+    frameStream.stop();
     if (streamRef.current) {
       streamRef.current.getTracks().forEach(track => track.stop());
       streamRef.current = null;
@@ -80,22 +86,34 @@ const AttendanceMarker: React.FC<AttendanceMarkerProps> = ({
     }
 
     try {
-      const response = await fetch('http://localhost:8081/start-recognition', {
+      // The worker reads frames streamed from this browser camera instead of a camera on the server
+      const response = await fetch(`${BACKEND_URL}/start-recognition`, {
         method: 'POST',
         headers: {
           'Content-Type': 'application/x-www-form-urlencoded',
         },
-        body: `email=${encodeURIComponent(user.email)}`,
+        body: `email=${encodeURIComponent(user.email)}&source=browser`,
       });
 
       if (!response.ok) throw new Error('Backend trigger failed');
+      const session = await response.json();
 
-      await new Promise(resolve => setTimeout(resolve, 1000));
+      if (videoRef.current && session.frames) {
+        // The frame socket authenticates with the login token; WebSockets cannot carry an Authorization header
+        const framesUrl = `${BACKEND_URL.replace(/^http/, 'ws')}${session.frames}&access_token=${encodeURIComponent(user.token ?? '')}`;
+        await frameStream.start(framesUrl, videoRef.current);
+      }
 
-      const checkRes = await fetch(`http://localhost:8081/check?email=${encodeURIComponent(user.email)}`);
-      const data = await checkRes.json();
+      let marked = false;
+      const deadline = Date.now() + SCAN_TIMEOUT_MS;
+      while (!marked && isComponentActive.current && Date.now() < deadline) {
+        await new Promise(resolve => setTimeout(resolve, 1000));
+        const checkRes = await fetch(`${BACKEND_URL}/check?email=${encodeURIComponent(user.email)}`);
+        const data = await checkRes.json();
+        marked = data.marked;
+      }
 
-      if (data.marked && isComponentActive.current) {
+      if (marked && isComponentActive.current) {
         setScanStage('success');
         onAttendanceMarked();
         toast.success('Attendance marked!', {
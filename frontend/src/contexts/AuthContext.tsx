@@ -12,7 +12,7 @@ interface User {
   avatar?: string;
   isPresent?: boolean;
   attendanceTime?: string;
-  // token?: string;
+  token?: string;
 }
 
 interface AuthContextType {
@@ -0,0 +1,84 @@
+import { useCallback, useRef } from 'react';
+
+// Frame header understood by the backend: float64 capture time (epoch ms) + uint32 frames skipped so far, little-endian
+const HEADER_BYTES = 12;
+
+interface FrameStreamOptions {
+  fps?: number;
+  quality?: number;
+  maxWidth?: number;
+}
+
+// Streams JPEG frames from a <video> element to the backend frame socket.
+// Only the latest frame matters: while the socket still has unsent data the frame is skipped, not queued.
+export function useFrameStream({ fps = 10, quality = 0.7, maxWidth = 640 }: FrameStreamOptions = {}) {
+  const socketRef = useRef<WebSocket | null>(null);
+  const timerRef = useRef<number | null>(null);
+
+  const stop = useCallback(() => {
+    if (timerRef.current !== null) {
+      window.clearInterval(timerRef.current);
+      timerRef.current = null;
+    }
+    if (socketRef.current) {
+      socketRef.current.close();
+      socketRef.current = null;
+    }
+  }, []);
+
+  const start = useCallback((url: string, video: HTMLVideoElement) => new Promise<void>((resolve, reject) => {
+    stop();
+    const socket = new WebSocket(url);
+    socket.binaryType = 'arraybuffer';
+    socketRef.current = socket;
+
+    const canvas = document.createElement('canvas');
+    const context = canvas.getContext('2d');
+    let skipped = 0;
+    let encoding = false;
+
+    const sendFrame = () => {
+      if (socket.readyState !== WebSocket.OPEN || !context || video.videoWidth === 0) {
+        return;
+      }
+      if (encoding || socket.bufferedAmount > 0) {
+        skipped++;
+        return;
+      }
+      const scale = Math.min(1, maxWidth / video.videoWidth);
+      canvas.width = Math.round(video.videoWidth * scale);
+      canvas.height = Math.round(video.videoHeight * scale);
+      const capturedAt = performance.timeOrigin + performance.now();
+      context.drawImage(video, 0, 0, canvas.width, canvas.height);
+
+      encoding = true;
+      canvas.toBlob(async blob => {
+        encoding = false;
+        if (!blob || socket.readyState !== WebSocket.OPEN) {
+          return;
+        }
+        const jpeg = new Uint8Array(await blob.arrayBuffer());
+        const message = new Uint8Array(HEADER_BYTES + jpeg.length);
+        const header = new DataView(message.buffer);
+        header.setFloat64(0, capturedAt, true);
+        header.setUint32(8, skipped, true);
+        message.set(jpeg, HEADER_BYTES);
+        socket.send(message);
+      }, 'image/jpeg', quality);
+    };
+
+    socket.onopen = () => {
+      timerRef.current = window.setInterval(sendFrame, 1000 / fps);
+      resolve();
+    };
+    socket.onerror = () => reject(new Error('Frame stream connection failed'));
+    socket.onclose = () => {
+      if (timerRef.current !== null) {
+        window.clearInterval(timerRef.current);
+        timerRef.current = null;
+      }
+    };
+  }), [fps, quality, maxWidth, stop]);
+
+  return { start, stop };
+}